@@ -3,7 +3,6 @@ package com.example.mental_health;
 import com.example.mental_health.*;
 import com.example.mental_health.*;
 import java.time.LocalDate;
-import java.util.List;
 
 /**
  * Demonstration of AI capabilities for the Mental Health Application
@@ -52,43 +51,40 @@ public class AIDemo {
             // Generate trend analysis
             System.out.println("3. TREND ANALYSIS");
             System.out.println("==================");
-            List<MoodEntry> recentMoods = userProfile.getRecentMoodEntries(14);
-            String trendAnalysis = aiService.generateTrendAnalysis(recentMoods);
+            String trendAnalysis = aiService.generateTrendAnalysis(userProfile);
             System.out.println(trendAnalysis);
             System.out.println();
             
             // Generate personalized recommendations
             System.out.println("4. PERSONALIZED RECOMMENDATIONS");
             System.out.println("================================");
-            String recommendations = aiService.generatePersonalizedRecommendations(
-                userProfile, analysisResult.getMoodAnalysis());
+            String recommendations = aiService.generatePersonalizedRecommendations(userProfile);
             System.out.println(recommendations);
             
             // Generate mood prediction
             System.out.println("5. MOOD PREDICTION");
             System.out.println("==================");
-            String prediction = aiService.generateMoodPredictionText(userProfile.getMoodEntries());
+            String prediction = aiService.generateMoodPredictionText(userProfile);
             System.out.println(prediction);
             System.out.println();
             
             // Analyze journal sentiment
             System.out.println("6. JOURNAL SENTIMENT ANALYSIS");
             System.out.println("==============================");
-            String sentimentAnalysis = aiService.analyzeJournalSentiment(userProfile.getJournalEntries());
+            String sentimentAnalysis = aiService.analyzeJournalSentiment(userProfile);
             System.out.println(sentimentAnalysis);
             System.out.println();
             
             // Analyze temporal patterns
             System.out.println("7. TEMPORAL PATTERN ANALYSIS");
             System.out.println("=============================");
-            String temporalAnalysis = aiService.analyzeTemporalPatterns(userProfile.getMoodEntries());
+            String temporalAnalysis = aiService.analyzeTemporalPatterns(userProfile);
             System.out.println(temporalAnalysis);
             
             // Show detailed mood analysis
             System.out.println("8. DETAILED MOOD ANALYSIS");
             System.out.println("==========================");
-            MoodAnalyzer moodAnalyzer = new MoodAnalyzer();
-            MoodAnalysisResult detailedAnalysis = moodAnalyzer.analyzeMoodPatterns(userProfile.getMoodEntries());
+            MoodAnalysisResult detailedAnalysis = analysisResult.getMoodAnalysis();
             
             if (detailedAnalysis.getWeeklyPatterns() != null) {
                 System.out.println("Weekly patterns:");
@@ -102,6 +98,15 @@ public class AIDemo {
                 System.out.printf("Max negative streak: %d days%n", streaks.getMaxNegativeStreak());
             }
             
+            // Show that unchanged profiles reuse their analysis
+            System.out.println("9. ANALYSIS CACHE");
+            System.out.println("==================");
+            aiService.performAnalysis(dataManager.getCompleteUserData(userId));
+            System.out.println("Same profile again: " + aiService.getCacheStats());
+            dataManager.saveMoodEntry(userId, new MoodEntry(LocalDate.now(), 4, "Nouvelle entrée"));
+            aiService.performAnalysis(dataManager.getCompleteUserData(userId));
+            System.out.println("After a new entry:  " + aiService.getCacheStats());
+            
             System.out.println("\n=== Demo completed successfully! ===");
             
         } catch (Exception e) {
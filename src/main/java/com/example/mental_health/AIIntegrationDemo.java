@@ -94,19 +94,19 @@ public class AIIntegrationDemo {
             System.out.println("==========================");
             
             // Trend analysis
-            String trendAnalysis = aiService.generateTrendAnalysis(userProfile.getRecentMoodEntries(14));
+            String trendAnalysis = aiService.generateTrendAnalysis(userProfile);
             System.out.println("Trend analysis:");
             System.out.println("  " + trendAnalysis);
             System.out.println();
             
             // Sentiment analysis
-            String sentimentAnalysis = aiService.analyzeJournalSentiment(userProfile.getJournalEntries());
+            String sentimentAnalysis = aiService.analyzeJournalSentiment(userProfile);
             System.out.println("Journal sentiment:");
             System.out.println("  " + sentimentAnalysis);
             System.out.println();
             
             // Temporal patterns
-            String temporalAnalysis = aiService.analyzeTemporalPatterns(userProfile.getMoodEntries());
+            String temporalAnalysis = aiService.analyzeTemporalPatterns(userProfile);
             System.out.println("Temporal patterns:");
             System.out.println("  " + temporalAnalysis);
             System.out.println();
@@ -0,0 +1,173 @@
+package com.example.mental_health;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Intermediate and final results of the analysis of one version of a profile on one day.
+ *
+ * Every getter runs the stages its value needs, unless they already ran for this
+ * context, so all the outputs read from one context come from the same computations.
+ * The profile must not change while a stage runs; once it has changed the context is
+ * stale and a new one should be started (see {@link #getProfileVersion()}).
+ *
+ * Once the result is computed the context drops its reference to the profile and keeps
+ * only the outputs, so that cached contexts don't keep profiles in memory. Stages that
+ * have not run by then need the profile again: AIWellnessService passes it to them.
+ */
+public class AnalysisContext {
+
+    private final AnalysisPipeline pipeline;
+    private UserProfile userProfile;   // null once the result is computed
+    private final long profileVersion;
+    private final LocalDate analysisDate;
+    private final EnumSet<AnalysisPipeline.Stage> completedStages = EnumSet.noneOf(AnalysisPipeline.Stage.class);
+    private final long[] stageNanos = new long[AnalysisPipeline.Stage.values().length];
+
+    // Stage outputs, written by the pipeline
+    MoodAnalysisResult moodAnalysis;
+    int moodCount;
+    boolean hasJournalEntries;
+    int recentCount;
+    double recentAverage;
+    double recentTrendSlope;
+    MoodPrediction prediction;
+    List<Recommendation> recommendations;
+    double wellnessScore;
+    int journalEntryCount;
+    int positiveJournalEntries;
+    int negativeJournalEntries;
+    int weekdayEntryCount;
+    DayOfWeek bestDay;
+    DayOfWeek worstDay;
+    double bestDayAverage;
+    double worstDayAverage;
+    AIAnalysisResult result;
+
+    AnalysisContext(AnalysisPipeline pipeline, UserProfile userProfile, LocalDate analysisDate) {
+        this.pipeline = pipeline;
+        this.userProfile = userProfile;
+        this.profileVersion = userProfile.getVersion();
+        this.analysisDate = analysisDate;
+    }
+
+    /**
+     * Runs a stage and the stages it depends on, unless they already ran
+     */
+    public synchronized void require(AnalysisPipeline.Stage stage) {
+        if (completedStages.contains(stage)) return;
+        if (userProfile == null) {
+            throw new IllegalStateException("The profile was released with the result; get the context again from AIWellnessService");
+        }
+        for (AnalysisPipeline.Stage dependency : stage.getDependencies()) {
+            require(dependency);
+        }
+        long start = System.nanoTime();
+        pipeline.run(stage, this);
+        stageNanos[stage.ordinal()] = System.nanoTime() - start;
+        completedStages.add(stage);
+        if (stage == AnalysisPipeline.Stage.RESULT) {
+            userProfile = null;
+        }
+    }
+
+    /**
+     * Runs a stage on the profile this context analyzes, which is released again afterwards
+     * if the result was already computed
+     */
+    synchronized void require(AnalysisPipeline.Stage stage, UserProfile profile) {
+        if (completedStages.contains(stage)) return;
+        userProfile = profile;
+        try {
+            require(stage);
+        } finally {
+            if (completedStages.contains(AnalysisPipeline.Stage.RESULT)) {
+                userProfile = null;
+            }
+        }
+    }
+
+    /**
+     * Whether every output can still be read: the profile wasn't released or every stage ran
+     */
+    public synchronized boolean canReadAllOutputs() {
+        return userProfile != null || completedStages.size() == AnalysisPipeline.Stage.values().length;
+    }
+
+    public synchronized boolean isCompleted(AnalysisPipeline.Stage stage) {
+        return completedStages.contains(stage);
+    }
+
+    /**
+     * Time spent running a stage, excluding its dependencies (0 if it did not run)
+     */
+    public synchronized long getStageNanos(AnalysisPipeline.Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * The analyzed profile, or null once the result is computed
+     */
+    public synchronized UserProfile getUserProfile() { return userProfile; }
+    public long getProfileVersion() { return profileVersion; }
+    public LocalDate getAnalysisDate() { return analysisDate; }
+    public SentimentLexicon getLexicon() { return pipeline.getLexicon(); }
+
+    // Outputs
+
+    public synchronized AIAnalysisResult getResult() {
+        require(AnalysisPipeline.Stage.RESULT);
+        return result;
+    }
+
+    public synchronized MoodAnalysisResult getMoodAnalysis() {
+        require(AnalysisPipeline.Stage.MOOD_PATTERNS);
+        return moodAnalysis;
+    }
+
+    public synchronized MoodPrediction getPrediction() {
+        require(AnalysisPipeline.Stage.PREDICTION);
+        return prediction;
+    }
+
+    public synchronized List<Recommendation> getRecommendations() {
+        require(AnalysisPipeline.Stage.RECOMMENDATIONS);
+        return recommendations;
+    }
+
+    public synchronized double getWellnessScore() {
+        require(AnalysisPipeline.Stage.WELLNESS_SCORE);
+        return wellnessScore;
+    }
+
+    /**
+     * Average and trend of the moods of the last days
+     */
+    public synchronized String getTrendAnalysisText() {
+        require(AnalysisPipeline.Stage.RECENT_TREND);
+        return AnalysisPipeline.trendText(recentCount, recentAverage, recentTrendSlope);
+    }
+
+    public synchronized String getPredictionText() {
+        require(AnalysisPipeline.Stage.PREDICTION);
+        return AnalysisPipeline.predictionText(moodCount, prediction);
+    }
+
+    public synchronized String getPersonalizedRecommendationsText() {
+        require(AnalysisPipeline.Stage.MOOD_PATTERNS);
+        return AnalysisPipeline.personalizedRecommendationsText(moodAnalysis.getAverageMood(),
+                moodAnalysis.getVolatilityScore(), hasJournalEntries);
+    }
+
+    public synchronized String getJournalSentimentText() {
+        require(AnalysisPipeline.Stage.JOURNAL_SENTIMENT);
+        return AnalysisPipeline.sentimentText(journalEntryCount, positiveJournalEntries, negativeJournalEntries);
+    }
+
+    public synchronized String getTemporalPatternsText() {
+        require(AnalysisPipeline.Stage.TEMPORAL_PATTERNS);
+        return AnalysisPipeline.temporalText(weekdayEntryCount, bestDay, bestDayAverage, worstDay, worstDayAverage);
+    }
+}
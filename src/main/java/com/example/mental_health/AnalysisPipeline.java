@@ -0,0 +1,337 @@
+package com.example.mental_health;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The stages of the AI analysis of a profile.
+ *
+ * Each stage derives some quantities of an {@link AnalysisContext} from the profile
+ * and from the outputs of the stages it depends on. Stages run when one of their
+ * outputs is first asked for, at most once per context, so the regression, weekday
+ * grouping and other derived quantities are computed once however many views of
+ * the analysis (result object, texts, chart) are built from the context.
+ */
+public class AnalysisPipeline {
+
+    public static final int RECENT_TREND_DAYS = 14;
+    public static final int PREDICTION_DAYS = 3;
+
+    /**
+     * Stages, each listed after the stages it depends on
+     */
+    public enum Stage {
+        /** Average, regression, volatility, weekday means and streaks of all moods */
+        MOOD_PATTERNS,
+        /** Average and regression (per day) of the moods of the last RECENT_TREND_DAYS days */
+        RECENT_TREND,
+        /** Mood expected in the next days, from the profile's forecasting model */
+        PREDICTION(MOOD_PATTERNS),
+        RECOMMENDATIONS(MOOD_PATTERNS),
+        WELLNESS_SCORE(MOOD_PATTERNS),
+        /** Score of each journal entry, and counts of positive and negative entries */
+        JOURNAL_SENTIMENT,
+        /** Best and worst weekdays */
+        TEMPORAL_PATTERNS,
+        /** The AIAnalysisResult gathering the outputs of the other stages */
+        RESULT(MOOD_PATTERNS, PREDICTION, RECOMMENDATIONS, WELLNESS_SCORE);
+
+        private final Stage[] dependencies;
+
+        Stage(Stage... dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        public List<Stage> getDependencies() {
+            return List.of(dependencies);
+        }
+    }
+
+    private final MoodAnalyzer moodAnalyzer = new MoodAnalyzer();
+    private final SentimentLexicon lexicon;
+
+    public AnalysisPipeline() {
+        this(SentimentLexicon.getDefault());
+    }
+
+    public AnalysisPipeline(SentimentLexicon lexicon) {
+        this.lexicon = lexicon;
+    }
+
+    /**
+     * The lexicon journal entries are scored with
+     */
+    public SentimentLexicon getLexicon() {
+        return lexicon;
+    }
+
+    /**
+     * Starts the analysis of a profile; stages run as the context's outputs are read
+     */
+    public AnalysisContext newContext(UserProfile userProfile, LocalDate analysisDate) {
+        return new AnalysisContext(this, userProfile, analysisDate);
+    }
+
+    /**
+     * Runs one stage, its dependencies having run already
+     */
+    void run(Stage stage, AnalysisContext context) {
+        switch (stage) {
+            case MOOD_PATTERNS -> analyzeMoodPatterns(context);
+            case RECENT_TREND -> analyzeRecentTrend(context);
+            case PREDICTION -> predictMood(context);
+            case RECOMMENDATIONS -> recommend(context);
+            case WELLNESS_SCORE -> scoreWellness(context);
+            case JOURNAL_SENTIMENT -> analyzeJournalSentiment(context);
+            case TEMPORAL_PATTERNS -> analyzeTemporalPatterns(context);
+            case RESULT -> buildResult(context);
+        }
+    }
+
+    // Stages
+
+    private void analyzeMoodPatterns(AnalysisContext context) {
+        UserProfile profile = context.getUserProfile();
+        context.moodAnalysis = moodAnalyzer.analyzeMoodPatterns(profile);
+        context.moodCount = profile.getMoodStatistics().getCount();
+        context.hasJournalEntries = !profile.getJournalEntries().isEmpty();
+    }
+
+    private void analyzeRecentTrend(AnalysisContext context) {
+        long cutoff = context.getAnalysisDate().minusDays(RECENT_TREND_DAYS).toEpochDay();
+        MoodRangeIndex.Aggregate recent = context.getUserProfile().getMoodRanges().query(cutoff, Long.MAX_VALUE);
+        context.recentCount = recent.getCount();
+        if (recent.getCount() == 0) return;
+        context.recentAverage = recent.getMean(3.0);
+        context.recentTrendSlope = recent.getTrendSlope();
+    }
+
+    private void predictMood(AnalysisContext context) {
+        int count = context.moodCount;
+        if (count < 3) {
+            context.prediction = new MoodPrediction(3.0, 0.3, "Données insuffisantes", "stable");
+            return;
+        }
+
+        context.prediction = forecastPrediction(context.getUserProfile().getMoodForecaster(), context.getAnalysisDate());
+    }
+
+    /**
+     * Prediction of the average mood of the PREDICTION_DAYS days after a date. The confidence
+     * is the probability, under the model's error distribution, that the mood of the last of
+     * these days is within half a point of the prediction; the interval holds it with 95%.
+     */
+    static MoodPrediction forecastPrediction(MoodForecaster forecaster, LocalDate date) {
+        long firstDay = date.toEpochDay() + 1;
+        double sum = 0;
+        for (int i = 0; i < PREDICTION_DAYS; i++) {
+            sum += forecaster.forecast(firstDay + i);
+        }
+        double predictedMood = Math.max(1, Math.min(5, sum / PREDICTION_DAYS));
+        double deviation = forecaster.forecastStandardDeviation(firstDay + PREDICTION_DAYS - 1);
+        double confidence = deviation == 0 ? 1.0 : erf(0.5 / (deviation * Math.sqrt(2)));
+
+        // Trend over the predicted days, in mood points
+        double trend = forecaster.getTrend() * PREDICTION_DAYS;
+        String trendType = trend > 0.1 ? "improving" : trend < -0.1 ? "declining" : "stable";
+        MoodPrediction prediction = new MoodPrediction(predictedMood, confidence, PREDICTION_DAYS + " prochains jours", trendType);
+        prediction.setPredictionInterval(Math.max(1, predictedMood - 1.96 * deviation),
+                Math.min(5, predictedMood + 1.96 * deviation));
+        return prediction;
+    }
+
+    /**
+     * Error function (Abramowitz and Stegun 7.1.26, accurate to 1.5e-7)
+     */
+    private static double erf(double x) {
+        double t = 1 / (1 + 0.3275911 * Math.abs(x));
+        double polynomial = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        double value = 1 - polynomial * Math.exp(-x * x);
+        return x >= 0 ? value : -value;
+    }
+
+    private void recommend(AnalysisContext context) {
+        List<Recommendation> recommendations = new ArrayList<>();
+        double avgMood = context.moodAnalysis.getAverageMood();
+        double volatility = context.moodAnalysis.getVolatilityScore();
+
+        if (avgMood < 2.5) {
+            recommendations.add(new Recommendation("professional", "Consultation professionnelle",
+                    "Envisagez de consulter un professionnel de la santé mentale", "high"));
+        }
+
+        if (volatility > 60) {
+            recommendations.add(new Recommendation("mindfulness", "Stabilisation émotionnelle",
+                    "Pratiquez la méditation quotidienne pour réduire la volatilité émotionnelle", "medium"));
+        }
+
+        if (context.getUserProfile().getJournalEntries().isEmpty()) {
+            recommendations.add(new Recommendation("lifestyle", "Tenue de journal",
+                    "Commencez à tenir un journal pour mieux comprendre vos patterns émotionnels", "low"));
+        }
+
+        if (avgMood >= 4.0) {
+            recommendations.add(new Recommendation("activity", "Maintien des habitudes",
+                    "Continuez vos habitudes actuelles qui semblent très positives", "low"));
+        }
+
+        context.recommendations = recommendations;
+    }
+
+    private void scoreWellness(AnalysisContext context) {
+        UserProfile profile = context.getUserProfile();
+        MoodAnalysisResult moodAnalysis = context.moodAnalysis;
+        double moodScore = (moodAnalysis.getAverageMood() / 5.0) * 40; // 40% weight
+        double consistencyScore = Math.max(0, (100 - moodAnalysis.getVolatilityScore()) / 100.0) * 30; // 30% weight
+        double engagementScore = Math.min(1.0, profile.getTotalEntriesCount() / 30.0) * 20; // 20% weight
+        double journalScore = Math.min(1.0, profile.getJournalEntries().size() / 10.0) * 10; // 10% weight
+
+        context.wellnessScore = Math.min(100, moodScore + consistencyScore + engagementScore + journalScore);
+    }
+
+    private void analyzeJournalSentiment(AnalysisContext context) {
+        int[] counts = scoreJournalEntries(context.getUserProfile().getJournalEntries());
+        context.journalEntryCount = counts[0];
+        context.positiveJournalEntries = counts[1];
+        context.negativeJournalEntries = counts[2];
+    }
+
+    private void analyzeTemporalPatterns(AnalysisContext context) {
+        WeekdayMoodAggregates weekdays = context.getUserProfile().getWeekdayMoods();
+        context.weekdayEntryCount = weekdays.getTotalCount();
+        int best = weekdays.getBestWeekday();
+        int worst = weekdays.getWorstWeekday();
+        context.bestDay = best < 0 ? null : DayOfWeek.of(best + 1);
+        context.worstDay = worst < 0 ? null : DayOfWeek.of(worst + 1);
+        context.bestDayAverage = best < 0 ? 0 : weekdays.getMean(best, 0);
+        context.worstDayAverage = worst < 0 ? 5 : weekdays.getMean(worst, 5);
+    }
+
+    private void buildResult(AnalysisContext context) {
+        MoodAnalysisResult moodAnalysis = context.moodAnalysis;
+        AIAnalysisResult result = new AIAnalysisResult(moodAnalysis, context.recommendations, context.prediction);
+        result.setOverallWellnessScore(context.wellnessScore);
+        result.setSummary(String.format("Analyse complète: Score de bien-être %.1f/100. " +
+                        "Humeur moyenne %.1f/5 avec volatilité de %.1f. " +
+                        "Basé sur %d entrées d'humeur et %d entrées de journal.",
+                context.wellnessScore, moodAnalysis.getAverageMood(), moodAnalysis.getVolatilityScore(),
+                context.moodCount, context.getUserProfile().getJournalEntries().size()));
+        context.result = result;
+    }
+
+    // Shared with the list-based methods of AIWellnessService
+
+    /**
+     * Reads the score of each journal entry, scoring (and storing the score of) the
+     * entries not yet scored with the current lexicon: usually none, as saved entries
+     * are scored in the background by a SentimentScorer
+     *
+     * @return the number of entries, of positive entries and of negative entries
+     */
+    int[] scoreJournalEntries(List<JournalEntry> journalEntries) {
+        int positiveCount = 0;
+        int negativeCount = 0;
+        for (JournalEntry entry : journalEntries) {
+            double score = lexicon.scoreEntry(entry);
+            if (score > 0) positiveCount++;
+            if (score < 0) negativeCount++;
+        }
+        return new int[] {journalEntries.size(), positiveCount, negativeCount};
+    }
+
+    static String sentimentText(int totalEntries, int positiveCount, int negativeCount) {
+        if (totalEntries == 0) {
+            return "Aucune entrée de journal disponible pour l'analyse de sentiment.";
+        }
+
+        double positiveRatio = (double) positiveCount / totalEntries;
+        double negativeRatio = (double) negativeCount / totalEntries;
+
+        String sentiment;
+        if (positiveRatio > negativeRatio + 0.2) {
+            sentiment = "principalement positif";
+        } else if (negativeRatio > positiveRatio + 0.2) {
+            sentiment = "tendance négative";
+        } else {
+            sentiment = "équilibré";
+        }
+
+        return String.format("Analyse de %d entrées: Sentiment %s (%.0f%% positif, %.0f%% négatif)",
+                totalEntries, sentiment, positiveRatio * 100, negativeRatio * 100);
+    }
+
+    static String trendText(int count, double averageMood, double trend) {
+        if (count == 0) {
+            return "Aucune donnée d'humeur disponible pour l'analyse de tendance.";
+        }
+
+        String trendDescription;
+        if (trend > 0.1) {
+            trendDescription = "amélioration notable";
+        } else if (trend < -0.1) {
+            trendDescription = "déclin observable";
+        } else {
+            trendDescription = "stabilité";
+        }
+
+        return String.format("Sur %d jours d'analyse: Humeur moyenne %.1f/5, tendance de %s (pente: %.3f)",
+                count, averageMood, trendDescription, trend);
+    }
+
+    static String predictionText(int count, MoodPrediction prediction) {
+        if (count < 7) {
+            return "Prédiction: Données insuffisantes (minimum 7 jours requis)";
+        }
+
+        String trendDescription = switch (prediction.getTrend()) {
+            case "improving" -> "amélioration";
+            case "declining" -> "déclin";
+            default -> "stabilité";
+        };
+        return String.format("Prédiction %d jours: %.1f/5 (intervalle à 95%%: %.1f - %.1f, confiance: %.0f%%) - Tendance: %s",
+                PREDICTION_DAYS, prediction.getPredictedMood(), prediction.getLowerBound(), prediction.getUpperBound(),
+                prediction.getConfidence() * 100, trendDescription);
+    }
+
+    static String personalizedRecommendationsText(double avgMood, double volatility, boolean hasJournal) {
+        StringBuilder recommendations = new StringBuilder();
+        recommendations.append("Recommandations personnalisées:\\n\\n");
+
+        // Based on average mood
+        if (avgMood < 2.5) {
+            recommendations.append("• Envisagez de consulter un professionnel de la santé mentale\\n");
+            recommendations.append("• Pratiquez des activités qui vous apportent de la joie\\n");
+        } else if (avgMood < 3.5) {
+            recommendations.append("• Intégrez des exercices de relaxation dans votre routine\\n");
+            recommendations.append("• Connectez-vous avec vos proches\\n");
+        } else {
+            recommendations.append("• Maintenez vos habitudes positives actuelles\\n");
+            recommendations.append("• Explorez de nouvelles activités enrichissantes\\n");
+        }
+
+        // Based on volatility
+        if (volatility > 60) {
+            recommendations.append("• Travaillez sur la régularité de votre routine\\n");
+            recommendations.append("• Pratiquez la méditation pour stabiliser vos émotions\\n");
+        }
+
+        // Based on journal entries
+        if (!hasJournal) {
+            recommendations.append("• Commencez à tenir un journal pour mieux comprendre vos émotions\\n");
+        }
+
+        return recommendations.toString();
+    }
+
+    static String temporalText(int count, DayOfWeek bestDay, double bestAvg, DayOfWeek worstDay, double worstAvg) {
+        if (count < 7) {
+            return "Données insuffisantes pour l'analyse temporelle (minimum 7 jours).";
+        }
+
+        return String.format("Patterns détectés: Meilleur jour %s (%.1f/5), jour difficile %s (%.1f/5)",
+                bestDay != null ? WeekdayMoodAggregates.getDayName(bestDay) : "N/A", bestAvg,
+                worstDay != null ? WeekdayMoodAggregates.getDayName(worstDay) : "N/A", worstAvg);
+    }
+}
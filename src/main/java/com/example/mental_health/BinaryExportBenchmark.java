@@ -0,0 +1,281 @@
+package com.example.mental_health;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of BinaryExporter against JsonExporter on the profiles of ExportBenchmark,
+ * 1 to 10 years of daily journal entries and moods, with their AI analysis, then on
+ * the same moods without any text.
+ *
+ * Compares the size of both exports, the time to encode them and the time to decode
+ * them back into a profile, in memory so that file system costs don't blur the
+ * comparison (exports are encoded to a null stream). JSON is decoded with a JsonReader
+ * loop like the one of JsonImporter, building the profile rather than saving the
+ * entries to a UserDataManager. The binary export is checked to read back as the
+ * exported profile and analysis first.
+ *
+ * JSON writes texts as UTF-8, which an import compresses again for memory; the binary
+ * export copies the compressed bytes of the texts with their dictionary, so on journals
+ * it is about 13 times smaller and reading it back doesn't compress anything. The last
+ * line tells whether the binary export is at least 5 times smaller and 10 times faster to
+ * write and to read than JSON on the profiles with journals, naming the rows that miss.
+ *
+ * Usage: BinaryExportBenchmark [exports per measurement]   (default: 20)
+ */
+public class BinaryExportBenchmark {
+
+    private static final long WARM_UP_NANOS = 1_000_000_000L;
+
+    // Targets of the binary export against JSON on the profiles with journals
+    private static final double TARGET_SIZE_RATIO = 5;
+    private static final double TARGET_SPEEDUP = 10;
+
+    public static void main(String[] args) throws IOException {
+        int exports = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        AIWellnessService wellnessService = new AIWellnessService();
+
+        System.out.println("=== Binary Export Benchmark ===\n");
+        System.out.printf("%-10s %11s %11s %7s %11s %11s %7s %11s %11s %7s%n", "History",
+                "JSON (KB)", "binary (KB)", "ratio", "JSON write", "bin write", "speedup",
+                "JSON read", "bin read", "speedup");
+
+        // Warm-up, so that the first row isn't measured before the codecs are compiled
+        compare(1, false, exports, wellnessService);
+        List<String> missed = new ArrayList<>();
+        for (int years : new int[] {1, 3, 10}) {
+            Comparison comparison = compare(years, false, exports, wellnessService);
+            System.out.println(comparison);
+            missed.addAll(comparison.missedTargets());
+        }
+        System.out.println("\nMoods without notes nor journal entries");
+        for (int years : new int[] {1, 3, 10}) {
+            System.out.println(compare(years, true, exports, wellnessService));
+        }
+
+        System.out.printf("%nTargets with journals: %.0fx smaller, %.0fx faster to write and to read%n",
+                TARGET_SIZE_RATIO, TARGET_SPEEDUP);
+        System.out.println(missed.isEmpty() ? "All targets met" : "Targets NOT met: " + String.join(", ", missed));
+    }
+
+    /**
+     * Measures both formats on a profile
+     */
+    private static Comparison compare(int years, boolean moodsOnly, int exports, AIWellnessService wellnessService) throws IOException {
+        UserProfile profile = moodsOnly ? withoutTexts(ExportBenchmark.createProfile(years)) : ExportBenchmark.createProfile(years);
+        AIAnalysisResult analysis = wellnessService.performAnalysis(profile);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeJson(out, profile, analysis);
+        byte[] json = out.toByteArray();
+        out.reset();
+        BinaryExporter.write(out, profile, analysis);
+        byte[] binary = out.toByteArray();
+        verify(profile, analysis, binary);
+
+        double jsonWrite = measure(exports, () -> writeJson(OutputStream.nullOutputStream(), profile, analysis));
+        double binaryWrite = measure(exports, () -> BinaryExporter.write(OutputStream.nullOutputStream(), profile, analysis));
+        double jsonRead = measure(exports, () -> readJson(json));
+        double binaryRead = measure(exports, () -> new BinaryExportReader(ByteBuffer.wrap(binary)).readProfile());
+        return new Comparison(years, json.length, binary.length, jsonWrite, binaryWrite, jsonRead, binaryRead);
+    }
+
+    /**
+     * Sizes and mean times of both formats on a profile
+     */
+    private static final class Comparison {
+        private final int years;
+        private final double sizeRatio;
+        private final double writeSpeedup;
+        private final double readSpeedup;
+        private final String row;
+
+        Comparison(int years, int jsonBytes, int binaryBytes, double jsonWrite, double binaryWrite,
+                   double jsonRead, double binaryRead) {
+            this.years = years;
+            this.sizeRatio = (double) jsonBytes / binaryBytes;
+            this.writeSpeedup = jsonWrite / binaryWrite;
+            this.readSpeedup = jsonRead / binaryRead;
+            this.row = String.format("%-10s %11.1f %11.1f %6.1fx %8.2f ms %8.2f ms %6.1fx %8.2f ms %8.2f ms %6.1fx",
+                    years + " years", jsonBytes / 1024.0, binaryBytes / 1024.0, sizeRatio,
+                    jsonWrite, binaryWrite, writeSpeedup, jsonRead, binaryRead, readSpeedup);
+        }
+
+        List<String> missedTargets() {
+            List<String> missed = new ArrayList<>();
+            if (sizeRatio < TARGET_SIZE_RATIO) missed.add(String.format("size on %d years (%.1fx)", years, sizeRatio));
+            if (writeSpeedup < TARGET_SPEEDUP) missed.add(String.format("write on %d years (%.1fx)", years, writeSpeedup));
+            if (readSpeedup < TARGET_SPEEDUP) missed.add(String.format("read on %d years (%.1fx)", years, readSpeedup));
+            return missed;
+        }
+
+        @Override
+        public String toString() {
+            return row;
+        }
+    }
+
+    private static UserProfile withoutTexts(UserProfile profile) {
+        UserProfile moods = new UserProfile(profile.getUserId());
+        for (MoodEntry entry : profile.getMoodEntries()) {
+            moods.getMoodEntries().add(new MoodEntry(entry.getDate(), entry.getMoodLevel(), null));
+        }
+        return moods;
+    }
+
+    private static void writeJson(OutputStream out, UserProfile profile, AIAnalysisResult analysis) throws IOException {
+        try (JsonWriter json = new JsonWriter(Channels.newChannel(out))) {
+            JsonExporter.writeDocument(json, profile, analysis);
+        }
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the task repeatedly after as many warm-up runs, and at least WARM_UP_NANOS of them,
+     * so that the loops over the longest histories are compiled before they are measured
+     *
+     * @return the mean milliseconds per run
+     */
+    private static double measure(int runs, Task task) throws IOException {
+        long warmUpEnd = System.nanoTime() + WARM_UP_NANOS;
+        for (int i = 0; i < runs || System.nanoTime() < warmUpEnd; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / runs;
+    }
+
+    private static void verify(UserProfile profile, AIAnalysisResult analysis, byte[] binary) throws IOException {
+        BinaryExportReader reader = new BinaryExportReader(ByteBuffer.wrap(binary));
+        UserProfile read = reader.readProfile();
+        List<String> differences = new ArrayList<>();
+        if (!profile.getUserId().equals(read.getUserId())) differences.add("userId");
+        if (!profile.getGoals().equals(read.getGoals())) differences.add("goals");
+        if (!profile.getReminders().equals(read.getReminders())) differences.add("reminders");
+        if (profile.getMoodEntries().size() != read.getMoodEntries().size()) differences.add("mood count");
+        for (int i = 0; i < Math.min(profile.getMoodEntries().size(), read.getMoodEntries().size()); i++) {
+            MoodEntry expected = profile.getMoodEntries().get(i);
+            MoodEntry actual = read.getMoodEntries().get(i);
+            if (!expected.getDate().equals(actual.getDate()) || expected.getMoodLevel() != actual.getMoodLevel()
+                    || !String.valueOf(expected.getNote()).equals(String.valueOf(actual.getNote()))) {
+                differences.add("mood " + expected.getDate());
+            }
+        }
+        if (profile.getJournalEntries().size() != read.getJournalEntries().size()) differences.add("journal count");
+        for (int i = 0; i < Math.min(profile.getJournalEntries().size(), read.getJournalEntries().size()); i++) {
+            JournalEntry expected = profile.getJournalEntries().get(i);
+            JournalEntry actual = read.getJournalEntries().get(i);
+            if (!expected.getDate().equals(actual.getDate()) || expected.getSentimentScore() != actual.getSentimentScore()
+                    || !String.valueOf(expected.getContent()).equals(String.valueOf(actual.getContent()))) {
+                differences.add("journal " + expected.getDate());
+            }
+        }
+        int[] moods = {0};
+        reader.forEachMood((epochDay, moodLevel) -> moods[0]++);
+        if (moods[0] != profile.getMoodEntries().size()) differences.add("visited moods");
+
+        AIAnalysisResult readAnalysis = reader.readAnalysis();
+        if (!analysis.getAnalysisTimestamp().equals(readAnalysis.getAnalysisTimestamp())
+                || analysis.getOverallWellnessScore() != readAnalysis.getOverallWellnessScore()
+                || !String.valueOf(analysis.getSummary()).equals(String.valueOf(readAnalysis.getSummary()))
+                || !String.valueOf(analysis.getRecommendations()).equals(String.valueOf(readAnalysis.getRecommendations()))
+                || !String.valueOf(analysis.getPrediction()).equals(String.valueOf(readAnalysis.getPrediction()))) {
+            differences.add("analysis");
+        }
+        if (!differences.isEmpty()) {
+            throw new IllegalStateException("Binary export reads back differently: " + differences);
+        }
+    }
+
+    /**
+     * Reads the profile of a JSON export as JsonImporter does, into a profile
+     */
+    private static UserProfile readJson(byte[] document) throws IOException {
+        List<MoodEntry> moods = new ArrayList<>();
+        List<JournalEntry> journals = new ArrayList<>();
+        UserProfile profile = null;
+        try (Reader in = new InputStreamReader(new ByteArrayInputStream(document), StandardCharsets.UTF_8)) {
+            JsonReader json = new JsonReader(in);
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("userProfile")) {
+                    json.skipValue();
+                    continue;
+                }
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "userId" -> profile = new UserProfile(json.nextString());
+                        case "moodEntries" -> {
+                            json.beginArray();
+                            while (json.hasNext()) {
+                                MoodEntry entry = new MoodEntry();
+                                json.beginObject();
+                                while (json.hasNext()) {
+                                    switch (json.nextName()) {
+                                        case "date" -> entry.setDate(LocalDate.parse(json.nextString()));
+                                        case "moodLevel" -> entry.setMoodLevel(json.nextInt());
+                                        case "note" -> entry.setNote(json.nextString());
+                                        default -> json.skipValue();
+                                    }
+                                }
+                                json.endObject();
+                                moods.add(entry);
+                            }
+                            json.endArray();
+                        }
+                        case "journalEntries" -> {
+                            json.beginArray();
+                            while (json.hasNext()) {
+                                JournalEntry entry = new JournalEntry();
+                                json.beginObject();
+                                while (json.hasNext()) {
+                                    switch (json.nextName()) {
+                                        case "date" -> entry.setDate(LocalDate.parse(json.nextString()));
+                                        case "content" -> entry.setContent(json.nextString());
+                                        case "sentimentScore" -> entry.setSentimentScore(json.nextDouble());
+                                        default -> json.skipValue();
+                                    }
+                                }
+                                json.endObject();
+                                journals.add(entry);
+                            }
+                            json.endArray();
+                        }
+                        case "goals" -> readStrings(json, profile.getGoals());
+                        case "reminders" -> readStrings(json, profile.getReminders());
+                        default -> json.skipValue();
+                    }
+                }
+                json.endObject();
+            }
+            json.endObject();
+        }
+        profile.getMoodEntries().addAll(moods);
+        profile.getJournalEntries().addAll(journals);
+        return profile;
+    }
+
+    private static void readStrings(JsonReader json, List<String> values) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            values.add(json.nextString());
+        }
+        json.endArray();
+    }
+}
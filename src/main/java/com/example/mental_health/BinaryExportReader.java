@@ -0,0 +1,423 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the exports written by BinaryExporter, straight from a ByteBuffer.
+ *
+ * Opening an export only walks its top-level fields and keeps a view of each in the
+ * buffer, without copying any bytes. Moods can then be visited from these views
+ * without creating entries; profiles and analyses are decoded on demand, texts
+ * straight from the bytes of the buffer. Compressed texts are kept as they are when
+ * their dictionary is loaded here; otherwise they are decompressed with the dictionary
+ * embedded in the export and compressed again with the default store, so that the
+ * profile never depends on a dictionary this install doesn't save. Fields of unknown
+ * tags, written by later versions, are skipped.
+ */
+public class BinaryExportReader {
+
+    /**
+     * Receives the moods of an export, oldest first
+     */
+    @FunctionalInterface
+    public interface MoodVisitor {
+        void visit(int epochDay, int moodLevel);
+    }
+
+    private final int version;
+    private String userId;
+    private ByteBuffer moods;
+    private ByteBuffer journals;
+    private final List<ByteBuffer> goals = new ArrayList<>();
+    private final List<ByteBuffer> reminders = new ArrayList<>();
+    private ByteBuffer analysis;
+    private final List<ByteBuffer> dictionaries = new ArrayList<>();
+
+    /**
+     * Opens the export at the buffer's position, leaving the buffer after it
+     */
+    public BinaryExportReader(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != BinaryExporter.MAGIC) {
+                throw new IOException("Not a binary export");
+            }
+            version = in.get() & 0xFF;
+            if (version < 1 || version > BinaryExporter.VERSION) {
+                throw new IOException("Unsupported export version " + version);
+            }
+            int key;
+            while ((key = VarInts.readUnsigned(in)) != BinaryExporter.END) {
+                switch (key) {
+                    case BinaryExporter.USER_ID << 3 | BinaryExporter.BYTES -> userId = readString(in);
+                    case BinaryExporter.MOODS << 3 | BinaryExporter.BYTES -> moods = bytes(in);
+                    case BinaryExporter.JOURNALS << 3 | BinaryExporter.BYTES -> journals = bytes(in);
+                    case BinaryExporter.GOAL << 3 | BinaryExporter.BYTES -> goals.add(bytes(in));
+                    case BinaryExporter.REMINDER << 3 | BinaryExporter.BYTES -> reminders.add(bytes(in));
+                    case BinaryExporter.ANALYSIS << 3 | BinaryExporter.BYTES -> analysis = bytes(in);
+                    case BinaryExporter.TEXT_DICTIONARY << 3 | BinaryExporter.BYTES -> dictionaries.add(bytes(in));
+                    default -> skip(in, key);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated binary export", e);
+        }
+    }
+
+    public int getVersion() { return version; }
+    public String getUserId() { return userId; }
+    public boolean hasAnalysis() { return analysis != null; }
+
+    public int getMoodCount() throws IOException {
+        return entryCount(moods);
+    }
+
+    public int getJournalCount() throws IOException {
+        return entryCount(journals);
+    }
+
+    /**
+     * Visits every mood, decoding dates and levels from the buffer
+     */
+    public void forEachMood(MoodVisitor visitor) throws IOException {
+        if (moods == null) return;
+        try {
+            ByteBuffer fields = moods.duplicate();
+            int count = 0;
+            ByteBuffer days = null;
+            ByteBuffer levels = null;
+            while (fields.hasRemaining()) {
+                int key = VarInts.readUnsigned(fields);
+                switch (key) {
+                    case BinaryExporter.ENTRY_COUNT << 3 | BinaryExporter.VARINT -> count = VarInts.readUnsigned(fields);
+                    case BinaryExporter.ENTRY_DAYS << 3 | BinaryExporter.BYTES -> days = bytes(fields);
+                    case BinaryExporter.MOOD_LEVELS << 3 | BinaryExporter.BYTES -> levels = bytes(fields);
+                    default -> skip(fields, key);
+                }
+            }
+            if (count > 0 && (days == null || levels == null)) {
+                throw new IOException("Moods without dates or levels");
+            }
+            int day = 0;
+            for (int i = 0; i < count; i++) {
+                day += VarInts.readSigned(days);
+                visitor.visit(day, level(levels, i));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated moods", e);
+        }
+    }
+
+    /**
+     * Decodes the profile; its statistics are computed as the entries are added
+     */
+    public UserProfile readProfile() throws IOException {
+        UserProfile profile = new UserProfile(userId);
+        try {
+            CompressedTextStore[] stores = readStores();
+            if (moods != null) profile.getMoodEntries().addAll(readMoodEntries(moods.duplicate(), stores));
+            if (journals != null) profile.getJournalEntries().addAll(readJournalEntries(journals.duplicate(), stores));
+            for (ByteBuffer goal : goals) {
+                profile.getGoals().add(decode(goal));
+            }
+            for (ByteBuffer reminder : reminders) {
+                profile.getReminders().add(decode(reminder));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated user profile", e);
+        } catch (IllegalStateException e) {
+            throw new IOException("Corrupted text in user profile", e);
+        }
+        return profile;
+    }
+
+    /**
+     * Decodes the AI analysis, or returns null if the export has none
+     */
+    public AIAnalysisResult readAnalysis() throws IOException {
+        if (analysis == null) return null;
+        try {
+            ByteBuffer in = analysis.duplicate();
+            AIAnalysisResult result = new AIAnalysisResult();
+            List<Recommendation> recommendations = new ArrayList<>();
+            result.setRecommendations(recommendations);
+            result.setAnalysisTimestamp(null);
+            long epochSecond = 0;
+            int nanos = 0;
+            boolean timestamped = false;
+            while (in.hasRemaining()) {
+                int key = VarInts.readUnsigned(in);
+                switch (key) {
+                    case BinaryExporter.ANALYSIS_TIMESTAMP << 3 | BinaryExporter.VARINT -> {
+                        epochSecond = VarInts.readSignedLong(in);
+                        timestamped = true;
+                    }
+                    case BinaryExporter.ANALYSIS_TIMESTAMP_NANOS << 3 | BinaryExporter.VARINT -> nanos = VarInts.readUnsigned(in);
+                    case BinaryExporter.ANALYSIS_WELLNESS_SCORE << 3 | BinaryExporter.FIXED64 -> result.setOverallWellnessScore(in.getDouble());
+                    case BinaryExporter.ANALYSIS_SUMMARY << 3 | BinaryExporter.BYTES -> result.setSummary(readString(in));
+                    case BinaryExporter.ANALYSIS_MOOD << 3 | BinaryExporter.BYTES -> result.setMoodAnalysis(readMoodAnalysis(bytes(in)));
+                    case BinaryExporter.ANALYSIS_RECOMMENDATION << 3 | BinaryExporter.BYTES -> recommendations.add(readRecommendation(bytes(in)));
+                    case BinaryExporter.ANALYSIS_PREDICTION << 3 | BinaryExporter.BYTES -> result.setPrediction(readPrediction(bytes(in)));
+                    default -> skip(in, key);
+                }
+            }
+            if (timestamped) {
+                result.setAnalysisTimestamp(LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC));
+            }
+            return result;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IOException("Invalid AI analysis", e);
+        }
+    }
+
+    private List<MoodEntry> readMoodEntries(ByteBuffer in, CompressedTextStore[] stores) throws IOException {
+        int count = 0;
+        ByteBuffer days = null;
+        ByteBuffer levels = null;
+        ByteBuffer notes = null;
+        ByteBuffer noteTexts = null;
+        while (in.hasRemaining()) {
+            int key = VarInts.readUnsigned(in);
+            switch (key) {
+                case BinaryExporter.ENTRY_COUNT << 3 | BinaryExporter.VARINT -> count = VarInts.readUnsigned(in);
+                case BinaryExporter.ENTRY_DAYS << 3 | BinaryExporter.BYTES -> days = bytes(in);
+                case BinaryExporter.MOOD_LEVELS << 3 | BinaryExporter.BYTES -> levels = bytes(in);
+                case BinaryExporter.MOOD_NOTES << 3 | BinaryExporter.BYTES -> notes = bytes(in);
+                case BinaryExporter.MOOD_NOTE_TEXTS << 3 | BinaryExporter.BYTES -> noteTexts = bytes(in);
+                default -> skip(in, key);
+            }
+        }
+        if (count > 0 && (days == null || levels == null)) {
+            throw new IOException("Moods without dates or levels");
+        }
+        List<MoodEntry> entries = new ArrayList<>(count);
+        int day = 0;
+        for (int i = 0; i < count; i++) {
+            day += VarInts.readSigned(days);
+            MoodEntry entry = new MoodEntry(LocalDate.ofEpochDay(day), level(levels, i), null);
+            if (noteTexts != null) {
+                entry.setCompressedNote(readText(noteTexts, stores));
+            } else if (notes != null) {
+                entry.setNote(VarInts.readString(notes));
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private List<JournalEntry> readJournalEntries(ByteBuffer in, CompressedTextStore[] stores) throws IOException {
+        int count = 0;
+        ByteBuffer days = null;
+        ByteBuffer contents = null;
+        ByteBuffer texts = null;
+        ByteBuffer scores = null;
+        ByteBuffer lexiconVersions = null;
+        while (in.hasRemaining()) {
+            int key = VarInts.readUnsigned(in);
+            switch (key) {
+                case BinaryExporter.ENTRY_COUNT << 3 | BinaryExporter.VARINT -> count = VarInts.readUnsigned(in);
+                case BinaryExporter.ENTRY_DAYS << 3 | BinaryExporter.BYTES -> days = bytes(in);
+                case BinaryExporter.JOURNAL_CONTENTS << 3 | BinaryExporter.BYTES -> contents = bytes(in);
+                case BinaryExporter.JOURNAL_TEXTS << 3 | BinaryExporter.BYTES -> texts = bytes(in);
+                case BinaryExporter.JOURNAL_SCORES << 3 | BinaryExporter.BYTES -> scores = bytes(in);
+                case BinaryExporter.JOURNAL_LEXICON_VERSIONS << 3 | BinaryExporter.BYTES -> lexiconVersions = bytes(in);
+                default -> skip(in, key);
+            }
+        }
+        if (count > 0 && days == null) {
+            throw new IOException("Journal entries without dates");
+        }
+        List<JournalEntry> entries = new ArrayList<>(count);
+        int day = 0;
+        for (int i = 0; i < count; i++) {
+            day += VarInts.readSigned(days);
+            JournalEntry entry = new JournalEntry(LocalDate.ofEpochDay(day), null);
+            if (texts != null) {
+                entry.setCompressedContent(readText(texts, stores));
+            } else if (contents != null) {
+                entry.setContent(VarInts.readString(contents));
+            }
+            if (scores != null) {
+                double score = scores.getDouble();
+                if (lexiconVersions != null) {
+                    entry.setSentiment(score, entry.getCompressedContent(), VarInts.readUnsigned(lexiconVersions));
+                } else {
+                    entry.setSentimentScore(score);
+                }
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Resolves the embedded dictionaries: the registered store of the same dictionary, or an
+     * unregistered one whose texts are compressed again as they are read
+     */
+    private CompressedTextStore[] readStores() {
+        CompressedTextStore[] stores = new CompressedTextStore[dictionaries.size()];
+        for (int i = 0; i < stores.length; i++) {
+            ByteBuffer view = dictionaries.get(i).duplicate();
+            byte[] dictionary = new byte[view.remaining()];
+            view.get(dictionary);
+            CompressedTextStore store = CompressedTextStore.forDictionary(dictionary);
+            stores[i] = store != null ? store : CompressedTextStore.unregistered(dictionary);
+        }
+        return stores;
+    }
+
+    private static CompressedText readText(ByteBuffer in, CompressedTextStore[] stores) throws IOException {
+        int tag = VarInts.readUnsigned(in);
+        if (tag == BinaryExporter.NULL_TEXT) return null;
+        if (tag < 0 || tag - 2 >= stores.length) {
+            throw new IOException("Invalid text dictionary reference " + tag);
+        }
+        int length = VarInts.readUnsigned(in);
+        int size = VarInts.readUnsigned(in);
+        if (length < 0 || size < 0 || size > in.remaining()) {
+            throw new IOException("Invalid text length " + size);
+        }
+        byte[] data = new byte[size];
+        in.get(data);
+        if (tag == BinaryExporter.PLAIN_TEXT) {
+            return new CompressedText(null, data, length);
+        }
+        CompressedTextStore store = stores[tag - 2];
+        if (CompressedTextStore.forId(store.getId()) == store) {
+            return new CompressedText(store, data, length);
+        }
+        return CompressedText.of(CompressedTextStore.decompress(store, data, length));
+    }
+
+    private static MoodAnalysisResult readMoodAnalysis(ByteBuffer in) throws IOException {
+        MoodAnalysisResult result = new MoodAnalysisResult();
+        while (in.hasRemaining()) {
+            int key = VarInts.readUnsigned(in);
+            switch (key) {
+                case BinaryExporter.MOOD_AVERAGE << 3 | BinaryExporter.FIXED64 -> result.setAverageMood(in.getDouble());
+                case BinaryExporter.MOOD_TREND_SLOPE << 3 | BinaryExporter.FIXED64 -> result.setTrendSlope(in.getDouble());
+                case BinaryExporter.MOOD_VOLATILITY << 3 | BinaryExporter.FIXED64 -> result.setVolatilityScore(in.getDouble());
+                case BinaryExporter.MOOD_VARIANCE << 3 | BinaryExporter.VARINT -> result.setMoodVariance(VarInts.readSigned(in));
+                default -> skip(in, key);
+            }
+        }
+        return result;
+    }
+
+    private static Recommendation readRecommendation(ByteBuffer in) throws IOException {
+        Recommendation rec = new Recommendation();
+        while (in.hasRemaining()) {
+            int key = VarInts.readUnsigned(in);
+            switch (key) {
+                case BinaryExporter.RECOMMENDATION_ID << 3 | BinaryExporter.BYTES -> rec.setId(readString(in));
+                case BinaryExporter.RECOMMENDATION_TYPE << 3 | BinaryExporter.BYTES -> rec.setType(readString(in));
+                case BinaryExporter.RECOMMENDATION_TITLE << 3 | BinaryExporter.BYTES -> rec.setTitle(readString(in));
+                case BinaryExporter.RECOMMENDATION_DESCRIPTION << 3 | BinaryExporter.BYTES -> rec.setDescription(readString(in));
+                case BinaryExporter.RECOMMENDATION_PRIORITY << 3 | BinaryExporter.BYTES -> rec.setPriority(readString(in));
+                case BinaryExporter.RECOMMENDATION_CATEGORY << 3 | BinaryExporter.BYTES -> rec.setCategory(readString(in));
+                case BinaryExporter.RECOMMENDATION_ACTION_REQUIRED << 3 | BinaryExporter.VARINT -> rec.setActionRequired(VarInts.readUnsigned(in) != 0);
+                default -> skip(in, key);
+            }
+        }
+        return rec;
+    }
+
+    private static MoodPrediction readPrediction(ByteBuffer in) throws IOException {
+        MoodPrediction prediction = new MoodPrediction();
+        double lowerBound = 0;
+        double upperBound = 0;
+        List<String> factors = null;
+        while (in.hasRemaining()) {
+            int key = VarInts.readUnsigned(in);
+            switch (key) {
+                case BinaryExporter.PREDICTION_MOOD << 3 | BinaryExporter.FIXED64 -> prediction.setPredictedMood(in.getDouble());
+                case BinaryExporter.PREDICTION_CONFIDENCE << 3 | BinaryExporter.FIXED64 -> prediction.setConfidence(in.getDouble());
+                case BinaryExporter.PREDICTION_LOWER_BOUND << 3 | BinaryExporter.FIXED64 -> lowerBound = in.getDouble();
+                case BinaryExporter.PREDICTION_UPPER_BOUND << 3 | BinaryExporter.FIXED64 -> upperBound = in.getDouble();
+                case BinaryExporter.PREDICTION_TIMEFRAME << 3 | BinaryExporter.BYTES -> prediction.setTimeframe(readString(in));
+                case BinaryExporter.PREDICTION_TREND << 3 | BinaryExporter.BYTES -> prediction.setTrend(readString(in));
+                case BinaryExporter.PREDICTION_FACTOR << 3 | BinaryExporter.BYTES -> {
+                    if (factors == null) factors = new ArrayList<>();
+                    factors.add(readString(in));
+                }
+                default -> skip(in, key);
+            }
+        }
+        prediction.setPredictionInterval(lowerBound, upperBound);
+        prediction.setFactors(factors);
+        return prediction;
+    }
+
+    private static int entryCount(ByteBuffer fields) throws IOException {
+        if (fields == null) return 0;
+        ByteBuffer in = fields.duplicate();
+        try {
+            while (in.hasRemaining()) {
+                int key = VarInts.readUnsigned(in);
+                if (key == (BinaryExporter.ENTRY_COUNT << 3 | BinaryExporter.VARINT)) return VarInts.readUnsigned(in);
+                skip(in, key);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated entries", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Mood level of the entry at an index, packed on 3 bits
+     */
+    private static int level(ByteBuffer levels, int index) {
+        int bit = index * 3;
+        int offset = bit >> 3;
+        int packed = levels.get(offset) & 0xFF;
+        if ((bit & 7) > 5) packed |= (levels.get(offset + 1) & 0xFF) << 8;
+        return packed >> (bit & 7) & 0x07;
+    }
+
+    /**
+     * Returns a view of the bytes of a length-delimited field and moves past them
+     */
+    private static ByteBuffer bytes(ByteBuffer in) throws IOException {
+        int length = VarInts.readUnsigned(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Truncated field");
+        }
+        ByteBuffer view = in.slice(in.position(), length);
+        in.position(in.position() + length);
+        return view;
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        return decode(bytes(in));
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+    }
+
+    /**
+     * Skips a field of an unknown tag by its wire type
+     */
+    private static void skip(ByteBuffer in, int key) throws IOException {
+        switch (key & 0x07) {
+            case BinaryExporter.VARINT -> VarInts.readUnsignedLong(in);
+            case BinaryExporter.FIXED64 -> {
+                if (in.remaining() < 8) throw new IOException("Truncated field");
+                in.position(in.position() + 8);
+            }
+            case BinaryExporter.BYTES -> bytes(in);
+            default -> throw new IOException("Unknown wire type in field key " + key);
+        }
+    }
+}
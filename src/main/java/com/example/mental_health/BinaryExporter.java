@@ -0,0 +1,421 @@
+package com.example.mental_health;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary counterpart of JsonExporter, for exports and backups.
+ *
+ * After a magic number and a version byte, the export is a list of fields, each
+ * starting with a varint key holding its tag and wire type, and ending with a 0 key.
+ * Readers skip the fields they don't know, so fields can be added without changing
+ * the version, and a field that is missing (a null text, no AI analysis) simply isn't
+ * written. Entries are stored by columns: the dates as varint deltas between epoch
+ * days, oldest first, so a daily history takes a byte per date, the mood levels packed
+ * on 3 bits each, then the texts. Notes and journal contents are written as they are
+ * kept in memory, compressed by CompressedTextStore, and the export embeds the Deflate
+ * dictionary of each store its texts use: an export is read by any install without
+ * compressing or decompressing the texts again when the reader already has the
+ * dictionary. Other texts (goals, reminders, the AI analysis) are written as UTF-8.
+ * Exports are read back with BinaryExportReader.
+ */
+public class BinaryExporter {
+
+    static final int MAGIC = 0x4D484558; // "MHEX"
+    static final int VERSION = 1;
+
+    // Wire types, in the low 3 bits of each key
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;    // a double or a long on 8 bytes
+    static final int BYTES = 2;      // a varint length followed by the bytes: text, column or nested fields
+
+    static final int END = 0;
+
+    // Export fields
+    static final int USER_ID = 1;
+    static final int MOODS = 2;
+    static final int JOURNALS = 3;
+    static final int GOAL = 4;          // repeated
+    static final int REMINDER = 5;      // repeated
+    static final int ANALYSIS = 6;
+    static final int TEXT_DICTIONARY = 7;   // repeated, referred to by index from the text columns
+
+    // Mood and journal fields
+    static final int ENTRY_COUNT = 1;
+    static final int ENTRY_DAYS = 2;
+    static final int MOOD_LEVELS = 3;
+    static final int MOOD_NOTES = 4;                 // UTF-8, read from exports of earlier builds
+    static final int MOOD_NOTE_TEXTS = 5;
+    static final int JOURNAL_CONTENTS = 3;           // UTF-8, read from exports of earlier builds
+    static final int JOURNAL_SCORES = 4;
+    // 5 held the lexicon version and content hash of each score
+    static final int JOURNAL_LEXICON_VERSIONS = 6;   // lexicon version of each score, 0 if none
+    static final int JOURNAL_TEXTS = 7;
+
+    // Text tags of the text columns: null, plain UTF-8, or compressed with the dictionary (tag - 2)
+    static final int NULL_TEXT = 0;
+    static final int PLAIN_TEXT = 1;
+
+    // Analysis fields
+    static final int ANALYSIS_TIMESTAMP = 1;         // epoch second, as UTC
+    static final int ANALYSIS_TIMESTAMP_NANOS = 2;
+    static final int ANALYSIS_WELLNESS_SCORE = 3;
+    static final int ANALYSIS_SUMMARY = 4;
+    static final int ANALYSIS_MOOD = 5;
+    static final int ANALYSIS_RECOMMENDATION = 6;    // repeated
+    static final int ANALYSIS_PREDICTION = 7;
+
+    static final int MOOD_AVERAGE = 1;
+    static final int MOOD_TREND_SLOPE = 2;
+    static final int MOOD_VOLATILITY = 3;
+    static final int MOOD_VARIANCE = 4;
+
+    static final int RECOMMENDATION_ID = 1;
+    static final int RECOMMENDATION_TYPE = 2;
+    static final int RECOMMENDATION_TITLE = 3;
+    static final int RECOMMENDATION_DESCRIPTION = 4;
+    static final int RECOMMENDATION_PRIORITY = 5;
+    static final int RECOMMENDATION_CATEGORY = 6;
+    static final int RECOMMENDATION_ACTION_REQUIRED = 7;
+
+    static final int PREDICTION_MOOD = 1;
+    static final int PREDICTION_CONFIDENCE = 2;
+    static final int PREDICTION_LOWER_BOUND = 3;
+    static final int PREDICTION_UPPER_BOUND = 4;
+    static final int PREDICTION_TIMEFRAME = 5;
+    static final int PREDICTION_TREND = 6;
+    static final int PREDICTION_FACTOR = 7;          // repeated
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // Buffers of the nested fields and of the columns, kept by each thread between exports
+    private static final ThreadLocal<Fields> FIELDS = ThreadLocal.withInitial(Fields::new);
+    private static final ThreadLocal<Fields> COLUMN = ThreadLocal.withInitial(Fields::new);
+
+    /**
+     * Exports user profile and AI analysis (which may be null) to the binary format
+     */
+    public static void exportToBinary(String filePath, UserProfile userProfile, AIAnalysisResult aiAnalysis) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(filePath)), BUFFER_BYTES)) {
+            write(out, userProfile, aiAnalysis);
+        }
+    }
+
+    /**
+     * Writes the export of a profile to a stream
+     */
+    public static void write(OutputStream stream, UserProfile userProfile, AIAnalysisResult aiAnalysis) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        Fields fields = FIELDS.get();
+        Fields column = COLUMN.get();
+        fields.count = 0;
+        column.count = 0;
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeString(out, USER_ID, userProfile.getUserId());
+
+        DateIndexedList<MoodEntry> moodEntries = userProfile.getMoodEntries();
+        DateIndexedList<JournalEntry> journalEntries = userProfile.getJournalEntries();
+
+        // Dictionaries used by the texts of the profile (usually one)
+        List<CompressedTextStore> stores = new ArrayList<>(2);
+        for (MoodEntry entry : moodEntries) {
+            addStore(stores, entry.getCompressedNote());
+        }
+        for (JournalEntry entry : journalEntries) {
+            addStore(stores, entry.getCompressedContent());
+        }
+        for (CompressedTextStore store : stores) {
+            byte[] dictionary = store.getDictionary();
+            VarInts.writeUnsigned(out, key(TEXT_DICTIONARY, BYTES));
+            VarInts.writeUnsigned(out, dictionary.length);
+            out.write(dictionary);
+        }
+
+        // Moods
+        int moodCount = moodEntries.size();
+        writeVarint(fields, ENTRY_COUNT, moodCount);
+        writeDays(column, moodEntries);
+        column.writeTo(fields, ENTRY_DAYS);
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = moodCount - 1; i >= 0; i--) {
+            bits |= (moodEntries.get(i).getMoodLevel() & 0x07) << bitCount;
+            bitCount += 3;
+            if (bitCount >= 8) {
+                column.writeByte(bits);
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+        if (bitCount > 0) column.writeByte(bits);
+        column.writeTo(fields, MOOD_LEVELS);
+        for (int i = moodCount - 1; i >= 0; i--) {
+            writeText(column, moodEntries.get(i).getCompressedNote(), stores);
+        }
+        column.writeTo(fields, MOOD_NOTE_TEXTS);
+        fields.writeTo(out, MOODS);
+
+        // Journal entries
+        int journalCount = journalEntries.size();
+        writeVarint(fields, ENTRY_COUNT, journalCount);
+        writeDays(column, journalEntries);
+        column.writeTo(fields, ENTRY_DAYS);
+        for (int i = journalCount - 1; i >= 0; i--) {
+            writeText(column, journalEntries.get(i).getCompressedContent(), stores);
+        }
+        column.writeTo(fields, JOURNAL_TEXTS);
+        for (int i = journalCount - 1; i >= 0; i--) {
+            column.writeDouble(journalEntries.get(i).getSentimentScore());
+        }
+        column.writeTo(fields, JOURNAL_SCORES);
+        for (int i = journalCount - 1; i >= 0; i--) {
+            VarInts.writeUnsigned(column, journalEntries.get(i).getSentimentLexiconVersion());
+        }
+        column.writeTo(fields, JOURNAL_LEXICON_VERSIONS);
+        fields.writeTo(out, JOURNALS);
+
+        for (String goal : userProfile.getGoals()) {
+            writeString(out, GOAL, goal);
+        }
+        for (String reminder : userProfile.getReminders()) {
+            writeString(out, REMINDER, reminder);
+        }
+
+        if (aiAnalysis != null) {
+            writeAnalysis(fields, column, aiAnalysis);
+            fields.writeTo(out, ANALYSIS);
+        }
+        VarInts.writeUnsigned(out, END);
+        out.flush();
+    }
+
+    private static void writeAnalysis(Fields fields, Fields nested, AIAnalysisResult aiAnalysis) throws IOException {
+        DataOutput out = fields;
+        if (aiAnalysis.getAnalysisTimestamp() != null) {
+            VarInts.writeUnsigned(out, key(ANALYSIS_TIMESTAMP, VARINT));
+            VarInts.writeSignedLong(out, aiAnalysis.getAnalysisTimestamp().toEpochSecond(ZoneOffset.UTC));
+            writeVarint(out, ANALYSIS_TIMESTAMP_NANOS, aiAnalysis.getAnalysisTimestamp().getNano());
+        }
+        writeDouble(out, ANALYSIS_WELLNESS_SCORE, aiAnalysis.getOverallWellnessScore());
+        writeString(out, ANALYSIS_SUMMARY, aiAnalysis.getSummary());
+
+        MoodAnalysisResult moodAnalysis = aiAnalysis.getMoodAnalysis();
+        if (moodAnalysis != null) {
+            writeDouble(nested, MOOD_AVERAGE, moodAnalysis.getAverageMood());
+            writeDouble(nested, MOOD_TREND_SLOPE, moodAnalysis.getTrendSlope());
+            writeDouble(nested, MOOD_VOLATILITY, moodAnalysis.getVolatilityScore());
+            VarInts.writeUnsigned(nested, key(MOOD_VARIANCE, VARINT));
+            VarInts.writeSigned(nested, moodAnalysis.getMoodVariance());
+            nested.writeTo(out, ANALYSIS_MOOD);
+        }
+
+        if (aiAnalysis.getRecommendations() != null) {
+            for (Recommendation rec : aiAnalysis.getRecommendations()) {
+                writeString(nested, RECOMMENDATION_ID, rec.getId());
+                writeString(nested, RECOMMENDATION_TYPE, rec.getType());
+                writeString(nested, RECOMMENDATION_TITLE, rec.getTitle());
+                writeString(nested, RECOMMENDATION_DESCRIPTION, rec.getDescription());
+                writeString(nested, RECOMMENDATION_PRIORITY, rec.getPriority());
+                writeString(nested, RECOMMENDATION_CATEGORY, rec.getCategory());
+                writeVarint(nested, RECOMMENDATION_ACTION_REQUIRED, rec.isActionRequired() ? 1 : 0);
+                nested.writeTo(out, ANALYSIS_RECOMMENDATION);
+            }
+        }
+
+        MoodPrediction prediction = aiAnalysis.getPrediction();
+        if (prediction != null) {
+            writeDouble(nested, PREDICTION_MOOD, prediction.getPredictedMood());
+            writeDouble(nested, PREDICTION_CONFIDENCE, prediction.getConfidence());
+            writeDouble(nested, PREDICTION_LOWER_BOUND, prediction.getLowerBound());
+            writeDouble(nested, PREDICTION_UPPER_BOUND, prediction.getUpperBound());
+            writeString(nested, PREDICTION_TIMEFRAME, prediction.getTimeframe());
+            writeString(nested, PREDICTION_TREND, prediction.getTrend());
+            if (prediction.getFactors() != null) {
+                for (String factor : prediction.getFactors()) {
+                    writeString(nested, PREDICTION_FACTOR, factor);
+                }
+            }
+            nested.writeTo(out, ANALYSIS_PREDICTION);
+        }
+    }
+
+    /**
+     * Writes the epoch days of the entries, oldest first, as deltas from the previous one
+     */
+    private static void writeDays(Fields column, DateIndexedList<?> entries) throws IOException {
+        int previousDay = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            int day = entries.epochDayAt(i);
+            VarInts.writeSigned(column, day - previousDay);
+            previousDay = day;
+        }
+    }
+
+    private static void addStore(List<CompressedTextStore> stores, CompressedText text) {
+        if (text != null && text.store() != null && !stores.contains(text.store())) {
+            stores.add(text.store());
+        }
+    }
+
+    /**
+     * Writes an entry text as it is kept in memory: its tag, its length in characters and its stored bytes
+     */
+    private static void writeText(DataOutput out, CompressedText text, List<CompressedTextStore> stores) throws IOException {
+        if (text == null) {
+            VarInts.writeUnsigned(out, NULL_TEXT);
+            return;
+        }
+        VarInts.writeUnsigned(out, text.store() == null ? PLAIN_TEXT : 2 + stores.indexOf(text.store()));
+        VarInts.writeUnsigned(out, text.length());
+        byte[] data = text.data();
+        VarInts.writeUnsigned(out, data.length);
+        out.write(data);
+    }
+
+    static int key(int tag, int wireType) {
+        return tag << 3 | wireType;
+    }
+
+    private static void writeVarint(DataOutput out, int tag, int value) throws IOException {
+        VarInts.writeUnsigned(out, key(tag, VARINT));
+        VarInts.writeUnsigned(out, value);
+    }
+
+    private static void writeDouble(DataOutput out, int tag, double value) throws IOException {
+        VarInts.writeUnsigned(out, key(tag, FIXED64));
+        out.writeDouble(value);
+    }
+
+    /**
+     * Writes a text as UTF-8, or nothing for null
+     */
+    private static void writeString(DataOutput out, int tag, String value) throws IOException {
+        if (value == null) return;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        VarInts.writeUnsigned(out, key(tag, BYTES));
+        VarInts.writeUnsigned(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Buffer of the fields of a nested message or of the bytes of a column, whose
+     * length must be known before they are written. Unlike a DataOutputStream over a
+     * ByteArrayOutputStream, writes take no lock, as the buffer is never shared.
+     */
+    private static final class Fields implements DataOutput {
+        private byte[] buf = new byte[BUFFER_BYTES];
+        private int count;
+
+        /**
+         * Writes the buffered bytes as a field and empties the buffer
+         */
+        void writeTo(DataOutput out, int tag) throws IOException {
+            VarInts.writeUnsigned(out, key(tag, BYTES));
+            VarInts.writeUnsigned(out, count);
+            out.write(buf, 0, count);
+            count = 0;
+        }
+
+        private void ensure(int bytes) {
+            if (count + bytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + bytes));
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b) {
+            write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        @Override
+        public void writeBoolean(boolean v) {
+            write(v ? 1 : 0);
+        }
+
+        @Override
+        public void writeByte(int v) {
+            write(v);
+        }
+
+        @Override
+        public void writeShort(int v) {
+            ensure(2);
+            buf[count++] = (byte) (v >>> 8);
+            buf[count++] = (byte) v;
+        }
+
+        @Override
+        public void writeChar(int v) {
+            writeShort(v);
+        }
+
+        @Override
+        public void writeInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[count++] = (byte) (v >>> shift);
+            }
+        }
+
+        @Override
+        public void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[count++] = (byte) (v >>> shift);
+            }
+        }
+
+        @Override
+        public void writeFloat(float v) {
+            writeInt(Float.floatToIntBits(v));
+        }
+
+        @Override
+        public void writeDouble(double v) {
+            writeLong(Double.doubleToLongBits(v));
+        }
+
+        @Override
+        public void writeBytes(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+        }
+
+        @Override
+        public void writeChars(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                writeChar(s.charAt(i));
+            }
+        }
+
+        @Override
+        public void writeUTF(String s) {
+            throw new UnsupportedOperationException("Texts are written with VarInts.writeString");
+        }
+    }
+}
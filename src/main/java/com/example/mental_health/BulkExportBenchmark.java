@@ -0,0 +1,72 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of BulkExporter over synthetic users, generated on the fly like in
+ * CohortBenchmark, with one partition written by one worker and then with one partition
+ * per worker for 2, 4... up to the number of cores. Generation is part of the measured
+ * time, as loading profiles is part of a real export.
+ *
+ * Usage: BulkExportBenchmark [users] [days]   (defaults: 20000 users, 365 days)
+ */
+public class BulkExportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 365;
+        int cores = Runtime.getRuntime().availableProcessors();
+        LocalDate today = LocalDate.now();
+        Path directory = Files.createTempDirectory("bulk-export-benchmark");
+
+        System.out.println("=== Bulk Export Benchmark ===");
+        System.out.printf("%,d users x %d days, %d cores%n%n", users, days, cores);
+
+        List<String> userIds = new AbstractList<>() {
+            @Override public String get(int index) { return String.format("user_%08d", index); }
+            @Override public int size() { return users; }
+        };
+        Function<String, UserProfile> snapshots = userId -> {
+            Random random = new Random(userId.hashCode());
+            UserProfile profile = new UserProfile(userId);
+            for (int day = days - 1; day >= 0; day--) {
+                if (random.nextInt(5) == 0) continue;
+                LocalDate date = today.minusDays(day);
+                profile.getMoodEntries().add(new MoodEntry(date, 1 + random.nextInt(5), random.nextInt(4) == 0 ? "Bonne nuit de sommeil" : null));
+                if (random.nextInt(3) == 0) {
+                    profile.getJournalEntries().add(new JournalEntry(date, "Journée calme et reposante, promenade au parc avec des amis."));
+                }
+            }
+            profile.setTotalEntriesCount(profile.getMoodEntries().size());
+            return profile;
+        };
+
+        // Warm-up
+        new BulkExporter().exportUsers(userIds.subList(0, Math.min(users, 1000)), snapshots, directory, 1);
+
+        System.out.println();
+        System.out.printf("%-12s %12s %12s %12s%n", "Partitions", "time (ms)", "users/s", "speedup");
+        double baseline = 0;
+        for (int workers = 1; workers <= cores; workers = workers < cores ? Math.min(cores, workers * 2) : cores + 1) {
+            BulkExporter.Manifest manifest = new BulkExporter().exportUsers(userIds, snapshots, directory, workers);
+            double millis = manifest.getElapsedNanos() / 1_000_000.0;
+            if (workers == 1) baseline = millis;
+            System.out.printf("%-12d %12.1f %12.0f %11.2fx%n", workers, millis, manifest.getUsersPerSecond(), baseline / millis);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
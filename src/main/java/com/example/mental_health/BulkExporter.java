@@ -0,0 +1,252 @@
+package com.example.mental_health;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every user to gzip-compressed JSON Lines files, without the UI.
+ *
+ * Users are split in as many contiguous ranges of their sorted ids as there are
+ * partitions, and each partition is written by its own worker into its own file, one profile per line in the format of the userProfile object of
+ * JsonExporter. Workers share nothing but the list of ids, so the export scales with
+ * the number of cores. Since workers block on file writes, each export runs in a pool
+ * of its own with one worker per partition, shut down once the export is done, rather
+ * than in the common pool. Each user is exported from a snapshot of their profile, taken
+ * under the profile's lock. Once every partition is complete and forced to disk, a
+ * manifest lists the files with their record counts, sizes and CRC-32 checksums; it is
+ * written last and renamed into place, so a directory with a manifest holds a complete
+ * export, even after a crash.
+ *
+ * Usage: BulkExporter data-directory output-directory [partitions]   (default: one per core)
+ */
+public class BulkExporter {
+
+    public static final String MANIFEST_FILE = "manifest.json";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final ForkJoinPool pool; // null for a pool of its own per export
+
+    public BulkExporter() {
+        this.pool = null;
+    }
+
+    /**
+     * Exports with the workers of the given pool, which should have one per partition
+     */
+    public BulkExporter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BulkExporter data-directory output-directory [partitions]");
+            System.exit(1);
+        }
+        int partitions = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (UserDataManager dataManager = new UserDataManager(Path.of(args[0]))) {
+            System.out.println("Write-ahead log replayed: " + dataManager.getLogReplayStats());
+            Manifest manifest = new BulkExporter().exportAllUsers(dataManager, Path.of(args[1]), partitions);
+            System.out.printf("Bulk export: %d users in %d partitions, %,d bytes in %.1f ms (%.0f users/s)%n",
+                    manifest.getUserCount(), partitions, manifest.getByteCount(),
+                    manifest.getElapsedNanos() / 1_000_000.0, manifest.getUsersPerSecond());
+        }
+    }
+
+    /**
+     * Exports every user known to the data manager
+     */
+    public Manifest exportAllUsers(UserDataManager dataManager, Path directory, int partitions) throws IOException {
+        return exportUsers(dataManager.getUserIds(), dataManager::getUserSnapshot, directory, partitions);
+    }
+
+    /**
+     * Exports the given users
+     *
+     * @param snapshots returns a snapshot of the profile of a user, or null for an unknown user
+     */
+    public Manifest exportUsers(List<String> userIds, Function<String, UserProfile> snapshots, Path directory,
+                                int partitions) throws IOException {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("At least one partition is needed");
+        }
+        Files.createDirectories(directory);
+        // Gone for good before the partitions are overwritten, so that it never lists half-written files
+        if (Files.deleteIfExists(directory.resolve(MANIFEST_FILE))) {
+            DurableFiles.forceDirectory(directory);
+        }
+        long start = System.nanoTime();
+
+        ForkJoinPool pool = this.pool != null ? this.pool : new ForkJoinPool(partitions);
+        List<Partition> written;
+        try {
+            written = writePartitions(pool, userIds, snapshots, directory, partitions);
+        } finally {
+            if (pool != this.pool) pool.shutdown();
+        }
+
+        // The partitions are forced by their workers; their names must be on disk as well
+        DurableFiles.forceDirectory(directory);
+
+        Manifest manifest = new Manifest(written, System.nanoTime() - start);
+        writeManifest(directory, manifest);
+        return manifest;
+    }
+
+    private static List<Partition> writePartitions(ForkJoinPool pool, List<String> userIds,
+                                                   Function<String, UserProfile> snapshots, Path directory,
+                                                   int partitions) throws IOException {
+        List<ForkJoinTask<Partition>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            int index = i;
+            int from = (int) ((long) userIds.size() * i / partitions);
+            int to = (int) ((long) userIds.size() * (i + 1) / partitions);
+            tasks.add(pool.submit(() -> writePartition(directory, index, userIds.subList(from, to), snapshots)));
+        }
+        List<Partition> written = new ArrayList<>(partitions);
+        for (ForkJoinTask<Partition> task : tasks) {
+            try {
+                written.add(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Export interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException unchecked) throw unchecked.getCause();
+                throw new IOException("Export of a partition failed", e.getCause());
+            }
+        }
+        return written;
+    }
+
+    private static Partition writePartition(Path directory, int index, List<String> userIds,
+                                            Function<String, UserProfile> snapshots) {
+        Partition partition = new Partition(String.format("partition-%05d.jsonl.gz", index));
+        CRC32 checksum = new CRC32();
+        try (OutputStream file = Files.newOutputStream(directory.resolve(partition.fileName));
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_BYTES), checksum);
+             JsonWriter json = new JsonWriter(Channels.newChannel(new GZIPOutputStream(checked, BUFFER_BYTES)), true)) {
+            for (String userId : userIds) {
+                UserProfile profile = snapshots.apply(userId);
+                if (profile == null) continue;
+                JsonExporter.writeProfile(json, profile);
+                partition.userCount++;
+                partition.moodEntryCount += profile.getMoodEntries().size();
+                partition.journalEntryCount += profile.getJournalEntries().size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + partition.fileName, e);
+        }
+        partition.checksum = checksum.getValue();
+        try {
+            Path file = directory.resolve(partition.fileName);
+            DurableFiles.force(file);
+            partition.byteCount = Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + partition.fileName, e);
+        }
+        return partition;
+    }
+
+    private static void writeManifest(Path directory, Manifest manifest) throws IOException {
+        Path file = directory.resolve(MANIFEST_FILE);
+        Path temporary = file.resolveSibling(MANIFEST_FILE + ".tmp");
+        try (JsonWriter json = JsonWriter.open(temporary)) {
+            json.beginObject();
+            json.name("version").value(1);
+            json.name("exportTimestamp").value(LocalDateTime.now().toString());
+            json.name("format").value("application/jsonl+gzip");
+            json.name("userCount").value(manifest.getUserCount());
+            json.name("partitions").beginArray();
+            for (Partition partition : manifest.getPartitions()) {
+                json.beginObject();
+                json.name("file").value(partition.getFileName());
+                json.name("users").value(partition.getUserCount());
+                json.name("moodEntries").value(partition.getMoodEntryCount());
+                json.name("journalEntries").value(partition.getJournalEntryCount());
+                json.name("bytes").value(partition.getByteCount());
+                json.name("crc32").value(String.format("%08x", partition.getChecksum()));
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        DurableFiles.force(temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DurableFiles.forceDirectory(directory);
+    }
+
+    /**
+     * Partitions of a completed export
+     */
+    public static class Manifest {
+        private final List<Partition> partitions;
+        private final long elapsedNanos;
+
+        Manifest(List<Partition> partitions, long elapsedNanos) {
+            this.partitions = Collections.unmodifiableList(partitions);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<Partition> getPartitions() { return partitions; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public int getUserCount() {
+            int count = 0;
+            for (Partition partition : partitions) {
+                count += partition.userCount;
+            }
+            return count;
+        }
+
+        public long getByteCount() {
+            long count = 0;
+            for (Partition partition : partitions) {
+                count += partition.byteCount;
+            }
+            return count;
+        }
+
+        public double getUsersPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : getUserCount() * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    /**
+     * File of a partition, with what it holds and the CRC-32 of its compressed bytes
+     */
+    public static class Partition {
+        private final String fileName;
+        private int userCount;
+        private long moodEntryCount;
+        private long journalEntryCount;
+        private long byteCount;
+        private long checksum;
+
+        Partition(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String getFileName() { return fileName; }
+        public int getUserCount() { return userCount; }
+        public long getMoodEntryCount() { return moodEntryCount; }
+        public long getJournalEntryCount() { return journalEntryCount; }
+        public long getByteCount() { return byteCount; }
+        public long getChecksum() { return checksum; }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput benchmark for the batch ingest API of UserDataManager.
+ * Replays years of daily mood history for many users.
+ *
+ * Usage: BulkIngestBenchmark [users] [years]   (defaults: 10000 users, 10 years)
+ * The default run keeps ~36M entries in memory, run it with -Xmx4g or more.
+ */
+public class BulkIngestBenchmark {
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int years = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int days = years * 365;
+
+        System.out.println("=== Bulk Ingest Benchmark ===");
+        System.out.printf("%d users x %d days = %,d mood entries%n%n", users, days, (long) users * days);
+
+        // Dates are shared between users to keep the benchmark's own footprint small
+        LocalDate today = LocalDate.now();
+        LocalDate[] dates = new LocalDate[days];
+        for (int i = 0; i < days; i++) {
+            dates[i] = today.minusDays(days - 1 - i);
+        }
+
+        System.out.println("1. SINGLE-ENTRY SAVES (baseline, 1% of users)");
+        System.out.println("=============================================");
+        int baselineUsers = Math.max(1, users / 100);
+        UserDataManager singleManager = new UserDataManager();
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int user = 0; user < baselineUsers; user++) {
+            String userId = "user_" + user;
+            for (int day = 0; day < days; day++) {
+                singleManager.saveMoodEntry(userId, new MoodEntry(dates[day], 1 + random.nextInt(5), null));
+            }
+        }
+        report((long) baselineUsers * days, System.nanoTime() - start);
+        System.out.println();
+
+        System.out.println("2. BATCH SAVES (saveMoodEntries)");
+        System.out.println("================================");
+        UserDataManager batchManager = new UserDataManager();
+        random = new Random(42);
+        List<MoodEntry> batch = new ArrayList<>(days);
+        start = System.nanoTime();
+        for (int user = 0; user < users; user++) {
+            batch.clear();
+            // Import files are usually newest first, like the exporter writes them
+            for (int day = days - 1; day >= 0; day--) {
+                batch.add(new MoodEntry(dates[day], 1 + random.nextInt(5), null));
+            }
+            batchManager.saveMoodEntries("user_" + user, batch);
+
+            if ((user + 1) % Math.max(1, users / 10) == 0) {
+                System.out.printf("  %d/%d users imported%n", user + 1, users);
+            }
+        }
+        report((long) users * days, System.nanoTime() - start);
+        System.out.println();
+
+        System.out.println("3. BACK-FILL OF AN EXISTING HISTORY");
+        System.out.println("===================================");
+        batch.clear();
+        for (int day = 0; day < days; day += 2) {
+            batch.add(new MoodEntry(dates[day], 3, "corrected"));
+        }
+        start = System.nanoTime();
+        for (int user = 0; user < users; user++) {
+            batchManager.saveMoodEntries("user_" + user, batch);
+        }
+        report((long) users * batch.size(), System.nanoTime() - start);
+
+        UserProfile sample = batchManager.getCompleteUserData("user_0");
+        System.out.printf("%nSample profile: %s, 30-day average %.2f%n", sample, sample.getAverageMoodLast30Days());
+    }
+
+    private static void report(long entries, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("%,d entries in %.2f s -> %,.0f entries/s%n", entries, seconds, entries / seconds);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.mental_health;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Population aggregates of the AI analyses of many users
+ */
+public class CohortAnalysisResult {
+
+    public static final int WELLNESS_BUCKETS = 10; // 0-10, 10-20, ..., 90-100
+
+    private int analyzedUsers;
+    private int usersWithoutMoodData;
+    private int skippedUsers;        // not analyzed before the time budget ran out
+    private final long[] wellnessHistogram = new long[WELLNESS_BUCKETS];
+    private double wellnessScoreSum;
+    private int decliningTrendUsers;
+    private int usersWithHighPriority;
+    private final Map<String, Long> highPriorityRecommendations = new HashMap<>();
+
+    // Stage timings: listing and the whole run are wall-clock, the others are summed over workers
+    private long listingNanos;
+    private long loadNanos;
+    private long analysisNanos;
+    private long mergeNanos;
+    private long elapsedNanos;
+
+    /**
+     * Adds the analysis of one user
+     */
+    void add(AIAnalysisResult analysis) {
+        analyzedUsers++;
+        double score = analysis.getOverallWellnessScore();
+        wellnessHistogram[Math.min(WELLNESS_BUCKETS - 1, (int) (score / (100.0 / WELLNESS_BUCKETS)))]++;
+        wellnessScoreSum += score;
+
+        MoodPrediction prediction = analysis.getPrediction();
+        if (prediction != null && "declining".equals(prediction.getTrend())) {
+            decliningTrendUsers++;
+        }
+
+        boolean highPriority = false;
+        if (analysis.getRecommendations() != null) {
+            for (Recommendation recommendation : analysis.getRecommendations()) {
+                if ("high".equals(recommendation.getPriority())) {
+                    highPriorityRecommendations.merge(recommendation.getType(), 1L, Long::sum);
+                    highPriority = true;
+                }
+            }
+        }
+        if (highPriority) usersWithHighPriority++;
+    }
+
+    /**
+     * Adds the aggregates of another part of the population
+     */
+    void merge(CohortAnalysisResult other) {
+        analyzedUsers += other.analyzedUsers;
+        usersWithoutMoodData += other.usersWithoutMoodData;
+        skippedUsers += other.skippedUsers;
+        for (int i = 0; i < WELLNESS_BUCKETS; i++) {
+            wellnessHistogram[i] += other.wellnessHistogram[i];
+        }
+        wellnessScoreSum += other.wellnessScoreSum;
+        decliningTrendUsers += other.decliningTrendUsers;
+        usersWithHighPriority += other.usersWithHighPriority;
+        other.highPriorityRecommendations.forEach((type, count) -> highPriorityRecommendations.merge(type, count, Long::sum));
+        loadNanos += other.loadNanos;
+        analysisNanos += other.analysisNanos;
+        mergeNanos += other.mergeNanos;
+    }
+
+    void addUserWithoutMoodData() { usersWithoutMoodData++; }
+    void addSkippedUsers(int count) { skippedUsers += count; }
+    void addLoadNanos(long nanos) { loadNanos += nanos; }
+    void addAnalysisNanos(long nanos) { analysisNanos += nanos; }
+    void addMergeNanos(long nanos) { mergeNanos += nanos; }
+    void setListingNanos(long nanos) { listingNanos = nanos; }
+    void setElapsedNanos(long nanos) { elapsedNanos = nanos; }
+
+    // Getters
+
+    public int getAnalyzedUsers() { return analyzedUsers; }
+    public int getUsersWithoutMoodData() { return usersWithoutMoodData; }
+    public int getSkippedUsers() { return skippedUsers; }
+    public int getDecliningTrendUsers() { return decliningTrendUsers; }
+    public int getUsersWithHighPriority() { return usersWithHighPriority; }
+    public Map<String, Long> getHighPriorityRecommendations() { return Map.copyOf(highPriorityRecommendations); }
+    public long[] getWellnessHistogram() { return wellnessHistogram.clone(); }
+
+    public long getListingNanos() { return listingNanos; }
+    public long getLoadNanos() { return loadNanos; }
+    public long getAnalysisNanos() { return analysisNanos; }
+    public long getMergeNanos() { return mergeNanos; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * Whether every user was analyzed within the time budget
+     */
+    public boolean isComplete() {
+        return skippedUsers == 0;
+    }
+
+    public double getAverageWellnessScore() {
+        return analyzedUsers == 0 ? 0.0 : wellnessScoreSum / analyzedUsers;
+    }
+
+    public double getDecliningTrendShare() {
+        return analyzedUsers == 0 ? 0.0 : (double) decliningTrendUsers / analyzedUsers;
+    }
+
+    public long getHighPriorityRecommendationCount() {
+        long count = 0;
+        for (long typeCount : highPriorityRecommendations.values()) {
+            count += typeCount;
+        }
+        return count;
+    }
+
+    /**
+     * Upper bound of the histogram bucket holding the given fraction (0-1) of the scores
+     */
+    public double getWellnessScorePercentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * analyzedUsers);
+        long seen = 0;
+        for (int i = 0; i < WELLNESS_BUCKETS; i++) {
+            seen += wellnessHistogram[i];
+            if (seen >= rank && seen > 0) {
+                return (i + 1) * (100.0 / WELLNESS_BUCKETS);
+            }
+        }
+        return 100.0;
+    }
+
+    public double getUsersPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : analyzedUsers * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CohortAnalysisResult{users=%d, withoutMoodData=%d, skipped=%d, averageWellness=%.1f, declining=%.1f%%, highPriority=%d}",
+                analyzedUsers, usersWithoutMoodData, skippedUsers, getAverageWellnessScore(),
+                getDecliningTrendShare() * 100, getHighPriorityRecommendationCount());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.mental_health;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Runs the AI analysis of every user and aggregates the results over the population.
+ *
+ * Users are split in ranges analyzed by the workers of a ForkJoinPool; each worker
+ * aggregates its own users and partial results are merged pairwise on the way back,
+ * so workers never share mutable state. Each user is analyzed on a snapshot of
+ * their profile, taken under the profile's lock, so concurrent saves can't be seen
+ * half-applied. Runs have a time budget: users not reached before it runs out are
+ * counted as skipped rather than delaying the run.
+ */
+public class CohortAnalysisService {
+
+    private static final int USERS_PER_TASK = 256;
+
+    private final AIWellnessService wellnessService;
+    private final ForkJoinPool pool;
+
+    public CohortAnalysisService() {
+        this(new AIWellnessService(), ForkJoinPool.commonPool());
+    }
+
+    public CohortAnalysisService(AIWellnessService wellnessService, ForkJoinPool pool) {
+        this.wellnessService = wellnessService;
+        this.pool = pool;
+    }
+
+    /**
+     * Analyzes every user known to the data manager
+     */
+    public CohortAnalysisResult analyzeAllUsers(UserDataManager dataManager, Duration budget) {
+        long start = System.nanoTime();
+        List<String> userIds = dataManager.getUserIds();
+        long listingNanos = System.nanoTime() - start;
+
+        CohortAnalysisResult result = analyzeUsers(userIds, dataManager::getUserSnapshot,
+                budget.minusNanos(listingNanos));
+        result.setListingNanos(listingNanos);
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Analyzes the given users
+     *
+     * @param snapshots returns a snapshot of the profile of a user, or null for an unknown user
+     */
+    public CohortAnalysisResult analyzeUsers(List<String> userIds, Function<String, UserProfile> snapshots, Duration budget) {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        CohortAnalysisResult result = pool.invoke(new AnalysisTask(userIds, 0, userIds.size(), snapshots, deadline));
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    // Tasks are never serialized: RecursiveTask is Serializable only by inheritance
+    @SuppressWarnings("serial")
+    private class AnalysisTask extends RecursiveTask<CohortAnalysisResult> {
+        private final List<String> userIds;
+        private final int from;
+        private final int to;
+        private final Function<String, UserProfile> snapshots;
+        private final long deadline;
+
+        AnalysisTask(List<String> userIds, int from, int to, Function<String, UserProfile> snapshots, long deadline) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+            this.snapshots = snapshots;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected CohortAnalysisResult compute() {
+            if (to - from <= USERS_PER_TASK) {
+                return analyzeRange();
+            }
+            int middle = (from + to) >>> 1;
+            AnalysisTask left = new AnalysisTask(userIds, from, middle, snapshots, deadline);
+            left.fork();
+            CohortAnalysisResult result = new AnalysisTask(userIds, middle, to, snapshots, deadline).compute();
+            CohortAnalysisResult leftResult = left.join();
+
+            long start = System.nanoTime();
+            result.merge(leftResult);
+            result.addMergeNanos(System.nanoTime() - start);
+            return result;
+        }
+
+        private CohortAnalysisResult analyzeRange() {
+            CohortAnalysisResult result = new CohortAnalysisResult();
+            long time = System.nanoTime();
+            for (int i = from; i < to; i++) {
+                if (time > deadline) {
+                    result.addSkippedUsers(to - i);
+                    break;
+                }
+
+                UserProfile profile = snapshots.apply(userIds.get(i));
+                long loaded = System.nanoTime();
+                result.addLoadNanos(loaded - time);
+                time = loaded;
+
+                if (profile == null || profile.getMoodEntries().isEmpty()) {
+                    result.addUserWithoutMoodData();
+                    continue;
+                }
+                result.add(wellnessService.performAnalysis(profile));
+                long analyzed = System.nanoTime();
+                result.addAnalysisNanos(analyzed - time);
+                time = analyzed;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.mental_health;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of a nightly cohort analysis over synthetic users, generated on the fly
+ * so that the benchmark needs little heap. Generation is reported as the load stage.
+ *
+ * Usage: CohortBenchmark [users] [budget seconds] [days]   (defaults: 1000000 users, 600 s, 30 days)
+ */
+public class CohortBenchmark {
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Duration budget = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 600);
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        LocalDate today = LocalDate.now();
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== Cohort Analysis Benchmark ===");
+        System.out.printf("%,d users x %d days, %d workers, budget %d s%n%n", users, days, workers, budget.toSeconds());
+
+        List<String> userIds = new AbstractList<>() {
+            @Override public String get(int index) { return String.format("user_%08d", index); }
+            @Override public int size() { return users; }
+        };
+
+        CohortAnalysisResult result = new CohortAnalysisService().analyzeUsers(userIds, userId -> {
+            Random random = new Random(userId.hashCode());
+            UserProfile profile = new UserProfile(userId);
+            // Some users improve, others decline
+            double drift = (random.nextDouble() - 0.5) / days * 4;
+            double base = 1.5 + random.nextDouble() * 3;
+            for (int day = days - 1; day >= 0; day--) {
+                if (random.nextInt(5) == 0) continue;
+                int mood = (int) Math.round(base + drift * (days - day) + random.nextGaussian() * 0.7);
+                profile.getMoodEntries().add(new MoodEntry(today.minusDays(day), Math.max(1, Math.min(5, mood)), null));
+            }
+            if (random.nextInt(3) == 0) {
+                profile.getJournalEntries().add(new JournalEntry(today, "Journée calme et reposante"));
+            }
+            profile.setTotalEntriesCount(profile.getMoodEntries().size());
+            return profile;
+        }, budget);
+
+        System.out.printf("%,d users analyzed, %,d without mood data, %,d skipped%n",
+                result.getAnalyzedUsers(), result.getUsersWithoutMoodData(), result.getSkippedUsers());
+        System.out.println();
+        System.out.println("STAGES");
+        System.out.println("======");
+        System.out.printf("Load (generation)  %,10.1f ms  (summed over workers)%n", result.getLoadNanos() / 1_000_000.0);
+        System.out.printf("Analysis           %,10.1f ms  (summed over workers)%n", result.getAnalysisNanos() / 1_000_000.0);
+        System.out.printf("Merge              %,10.1f ms  (summed over workers)%n", result.getMergeNanos() / 1_000_000.0);
+        System.out.printf("Wall clock         %,10.1f ms  -> %,.0f users/s%s%n", result.getElapsedNanos() / 1_000_000.0,
+                result.getUsersPerSecond(), result.isComplete() ? "" : "  (budget exceeded)");
+        System.out.println();
+
+        System.out.println("POPULATION");
+        System.out.println("==========");
+        System.out.printf("Average wellness score: %.1f/100 (median <= %.0f, 90th percentile <= %.0f)%n",
+                result.getAverageWellnessScore(), result.getWellnessScorePercentile(0.5), result.getWellnessScorePercentile(0.9));
+        long[] histogram = result.getWellnessHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            int width = result.getAnalyzedUsers() == 0 ? 0 : (int) (50 * histogram[i] / result.getAnalyzedUsers());
+            System.out.printf("  %3d-%3d %,10d %s%n", i * 10, i * 10 + 10, histogram[i], "#".repeat(width));
+        }
+        System.out.printf("Declining trends: %.1f%% of users%n", result.getDecliningTrendShare() * 100);
+        System.out.printf("High-priority recommendations: %,d for %,d users %s%n",
+                result.getHighPriorityRecommendationCount(), result.getUsersWithHighPriority(), result.getHighPriorityRecommendations());
+    }
+}
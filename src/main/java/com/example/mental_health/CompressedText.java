@@ -0,0 +1,76 @@
+package com.example.mental_health;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Handle to a text kept compressed on the heap.
+ *
+ * The text is decompressed on first access and the result is kept through a
+ * soft reference, so that repeated reads are free until memory runs low.
+ * Handles are immutable and may be shared between entries.
+ */
+public final class CompressedText {
+
+    private final CompressedTextStore store; // null when the bytes are plain UTF-8
+    private final byte[] data;
+    private final int length;
+    private SoftReference<String> text;
+
+    CompressedText(CompressedTextStore store, byte[] data, int length) {
+        this.store = store;
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * Compresses a text with the default store
+     *
+     * @return the handle, or null for a null text
+     */
+    public static CompressedText of(String text) {
+        return text == null ? null : CompressedTextStore.getDefault().compress(text);
+    }
+
+    /**
+     * Returns the text, decompressing it if it is not cached
+     */
+    public String get() {
+        SoftReference<String> cached = text;
+        String value = cached != null ? cached.get() : null;
+        if (value == null) {
+            value = CompressedTextStore.decompress(store, data, length);
+            text = new SoftReference<>(value);
+        }
+        return value;
+    }
+
+    /**
+     * Length of the text in characters, without decompressing it
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Number of bytes kept for the text
+     */
+    public int storedBytes() {
+        return data.length;
+    }
+
+    /**
+     * Store whose dictionary compressed the text, or null for plain UTF-8
+     */
+    CompressedTextStore store() {
+        return store;
+    }
+
+    byte[] data() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return get();
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses journal texts and mood notes with raw Deflate and a shared dictionary.
+ *
+ * The dictionary holds phrases that are frequent in the texts (French wellness
+ * vocabulary by default, or phrases trained from existing entries), so that even
+ * short notes compress well. Identical short texts, like repeated notes, share a
+ * single handle. Handles keep a reference to the store that compressed them, so
+ * a new default store can be installed at any time. Stores are identified by a
+ * checksum of their dictionary, which encoded profiles use to refer to them; a
+ * UserDataManager with durable storage saves every dictionary it compresses with,
+ * the default one included, so that its texts can be read by later builds.
+ */
+public class CompressedTextStore {
+
+    public static final int DEFAULT_DICTIONARY_BYTES = 8 * 1024;
+
+    private static final String DEFAULT_SAMPLES = "/text/french-samples.txt";
+    private static final int MIN_COMPRESSED_BYTES = 16;   // below this, texts are kept as plain UTF-8
+    private static final int SHARED_TEXT_CHARS = 64;      // texts up to this length are shared
+    private static final int MAX_SHARED_TEXTS = 8192;
+    private static final int MAX_TRAINING_CHARS = 4 * 1024 * 1024;
+    private static final int MAX_PHRASE_WORDS = 3;
+
+    private static volatile CompressedTextStore defaultStore;
+    private static final Map<Integer, CompressedTextStore> STORES_BY_ID = new ConcurrentHashMap<>();
+
+    // Deflater and Inflater hold native buffers, so each thread reuses its own
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    private final byte[] dictionary;
+    private final int id;
+    private final Map<String, CompressedText> sharedTexts = new ConcurrentHashMap<>();
+
+    private final LongAdder textCount = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+
+    private CompressedTextStore(byte[] dictionary) {
+        this.dictionary = dictionary.clone();
+        CRC32 crc = new CRC32();
+        crc.update(dictionary);
+        this.id = (int) crc.getValue();
+    }
+
+    /**
+     * Returns the store of a dictionary, registering it so that {@link #forId} finds it.
+     * A dictionary registered before (same checksum) gives the same store.
+     */
+    public static CompressedTextStore of(byte[] dictionary) {
+        CompressedTextStore store = new CompressedTextStore(dictionary);
+        CompressedTextStore registered = STORES_BY_ID.putIfAbsent(store.id, store);
+        return registered != null ? registered : store;
+    }
+
+    /**
+     * Returns the store used for new texts, built from the bundled French samples on first use
+     */
+    public static CompressedTextStore getDefault() {
+        CompressedTextStore store = defaultStore;
+        if (store == null) {
+            synchronized (CompressedTextStore.class) {
+                if (defaultStore == null) {
+                    defaultStore = of(loadDefaultDictionary());
+                }
+                store = defaultStore;
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Returns the store with the given id among the stores created so far (including the default one)
+     *
+     * @return the store, or null if its dictionary is not loaded
+     */
+    public static CompressedTextStore forId(int id) {
+        getDefault();
+        return STORES_BY_ID.get(id);
+    }
+
+    /**
+     * Returns the registered store whose dictionary holds exactly these bytes
+     *
+     * @return the store, or null if the dictionary is not loaded
+     */
+    static CompressedTextStore forDictionary(byte[] dictionary) {
+        CRC32 crc = new CRC32();
+        crc.update(dictionary);
+        CompressedTextStore store = forId((int) crc.getValue());
+        return store != null && Arrays.equals(store.dictionary, dictionary) ? store : null;
+    }
+
+    /**
+     * Returns a store for a dictionary without registering it, to read texts compressed
+     * elsewhere without making new profiles depend on their dictionary
+     */
+    static CompressedTextStore unregistered(byte[] dictionary) {
+        return new CompressedTextStore(dictionary);
+    }
+
+    /**
+     * Replaces the store used for new texts; texts compressed before keep their store
+     */
+    public static void setDefault(CompressedTextStore store) {
+        defaultStore = store;
+    }
+
+    /**
+     * Builds a store whose dictionary holds the phrases (repeated short texts and runs of up to
+     * three words) that would save the most bytes in the given samples
+     */
+    public static CompressedTextStore train(Iterable<String> samples, int dictionaryBytes) {
+        Map<String, Integer> counts = new HashMap<>();
+        long chars = 0;
+        for (String sample : samples) {
+            if (sample == null || sample.isBlank()) continue;
+            if (sample.length() <= SHARED_TEXT_CHARS) {
+                counts.merge(sample, 1, Integer::sum);
+            }
+            String[] words = sample.trim().split("\\s+");
+            for (int i = 0; i < words.length; i++) {
+                StringBuilder phrase = new StringBuilder();
+                for (int n = 0; n < MAX_PHRASE_WORDS && i + n < words.length; n++) {
+                    phrase.append(words[i + n]).append(' ');
+                    counts.merge(phrase.toString(), 1, Integer::sum);
+                }
+            }
+            chars += sample.length();
+            if (chars > MAX_TRAINING_CHARS) break;
+        }
+
+        // A phrase saves about its length for every occurrence after the first
+        List<Map.Entry<String, Integer>> phrases = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) phrases.add(entry);
+        }
+        phrases.sort((a, b) -> Long.compare(score(b), score(a)));
+
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> phrase : phrases) {
+            byte[] bytes = phrase.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > dictionaryBytes) continue;
+            selected.add(bytes);
+            size += bytes.length;
+        }
+
+        // Deflate reaches the end of the dictionary with the shortest distances: best phrases last
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for (byte[] bytes : selected) {
+            position -= bytes.length;
+            System.arraycopy(bytes, 0, dictionary, position, bytes.length);
+        }
+        return of(dictionary);
+    }
+
+    /**
+     * Compresses a text, or returns the shared handle of an identical short text
+     */
+    public CompressedText compress(String text) {
+        if (text.length() <= SHARED_TEXT_CHARS) {
+            CompressedText shared = sharedTexts.get(text);
+            if (shared != null) return shared;
+        }
+
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        CompressedText compressed = null;
+        if (raw.length >= MIN_COMPRESSED_BYTES) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < raw.length) {
+                compressed = new CompressedText(this, deflated, text.length());
+            }
+        }
+        if (compressed == null) {
+            compressed = new CompressedText(null, raw, text.length());
+        }
+
+        textCount.increment();
+        rawBytes.add(raw.length);
+        storedBytes.add(compressed.storedBytes());
+
+        if (text.length() <= SHARED_TEXT_CHARS) {
+            if (sharedTexts.size() >= MAX_SHARED_TEXTS) {
+                sharedTexts.clear();
+            }
+            sharedTexts.put(text, compressed);
+        }
+        return compressed;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public byte[] getDictionary() {
+        return dictionary.clone();
+    }
+
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * Compressed size over UTF-8 size of the texts compressed so far (shared texts count once)
+     */
+    public double getCompressionRatio() {
+        long raw = rawBytes.sum();
+        return raw == 0 ? 1.0 : (double) storedBytes.sum() / raw;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompressedTextStore{dictionary=%d bytes, texts=%d, %,d -> %,d bytes (%.0f%%)}",
+                dictionary.length, textCount.sum(), rawBytes.sum(), storedBytes.sum(), getCompressionRatio() * 100);
+    }
+
+    static String decompress(CompressedTextStore store, byte[] data, int length) {
+        if (store == null) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        if (store.dictionary.length > 0) {
+            inflater.setDictionary(store.dictionary);
+        }
+        inflater.setInput(data);
+
+        // UTF-8 needs at least one byte per character
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        int size = 0;
+        try {
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int inflated = inflater.inflate(buffer, size, buffer.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed text");
+                }
+                size += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed text", e);
+        }
+        BUFFER.set(buffer);
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        if (dictionary.length > 0) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(raw);
+        deflater.finish();
+
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < raw.length + 64) {
+            buffer = new byte[raw.length + 64];
+            BUFFER.set(buffer);
+        }
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                BUFFER.set(buffer);
+            }
+            size += deflater.deflate(buffer, size, buffer.length - size);
+        }
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private static long score(Map.Entry<String, Integer> phrase) {
+        return (long) (phrase.getValue() - 1) * phrase.getKey().length();
+    }
+
+    private static byte[] loadDefaultDictionary() {
+        try (InputStream in = CompressedTextStore.class.getResourceAsStream(DEFAULT_SAMPLES)) {
+            if (in == null) return new byte[0];
+            byte[] samples = in.readAllBytes();
+            // The most common vocabulary is at the end of the file, where Deflate favors it
+            return samples.length <= DEFAULT_DICTIONARY_BYTES ? samples
+                    : Arrays.copyOfRange(samples, samples.length - DEFAULT_DICTIONARY_BYTES, samples.length);
+        } catch (IOException e) {
+            System.err.println("Could not load the text compression samples: " + e.getMessage());
+            return new byte[0];
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-threaded benchmark of ConcurrentUserDataManager under a mixed workload
+ * (80% range reads, 10% profile reads, 10% mood saves) on random users.
+ * Runs with 1, 2, 4... threads up to the number of cores and reports the speedup.
+ *
+ * Usage: ConcurrencyBenchmark [users] [seconds per run]   (defaults: 10000 users, 5 s)
+ */
+public class ConcurrencyBenchmark {
+
+    private static final int HISTORY_DAYS = 365;
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== Concurrency Benchmark ===");
+        System.out.printf("%d users, %d days of history each, %d cores%n%n", users, HISTORY_DAYS, cores);
+
+        ConcurrentUserDataManager manager = new ConcurrentUserDataManager();
+        LocalDate today = LocalDate.now();
+        List<MoodEntry> history = new ArrayList<>(HISTORY_DAYS);
+        for (int user = 0; user < users; user++) {
+            history.clear();
+            for (int day = 0; day < HISTORY_DAYS; day++) {
+                history.add(new MoodEntry(today.minusDays(day), 1 + (user + day) % 5, null));
+            }
+            manager.saveMoodEntries("user_" + user, history);
+        }
+
+        // Warm-up
+        run(manager, users, cores, 1);
+
+        double singleThreaded = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            double opsPerSecond = run(manager, users, threads, seconds);
+            if (threads == 1) singleThreaded = opsPerSecond;
+            System.out.printf("%3d threads: %,12.0f ops/s   speedup x%.2f%n",
+                    threads, opsPerSecond, opsPerSecond / singleThreaded);
+            if (threads == cores) break;
+        }
+    }
+
+    private static double run(ConcurrentUserDataManager manager, int users, int threads, int seconds)
+            throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        long durationNanos = seconds * 1_000_000_000L;
+        LocalDate today = LocalDate.now();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    startSignal.await();
+                    long deadline = System.nanoTime() + durationNanos;
+                    while ((count & 0xFF) != 0 || System.nanoTime() < deadline) {
+                        String userId = "user_" + random.nextInt(users);
+                        int operation = random.nextInt(10);
+                        if (operation < 8) {
+                            LocalDate end = today.minusDays(random.nextInt(HISTORY_DAYS));
+                            manager.getMoodEntriesInRange(userId, end.minusDays(30), end);
+                        } else if (operation == 8) {
+                            manager.getCompleteUserData(userId);
+                        } else {
+                            LocalDate date = today.minusDays(random.nextInt(HISTORY_DAYS));
+                            manager.saveMoodEntry(userId, new MoodEntry(date, 1 + random.nextInt(5), null));
+                        }
+                        count++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    operations.add(count);
+                    finished.countDown();
+                }
+            }, "benchmark-" + t);
+            worker.start();
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        finished.await();
+        return operations.sum() / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe UserDataManager for use outside of the JavaFX thread.
+ *
+ * Writes to a user are serialized by the write lock of the user's stripe.
+ * Reads take the stripe's shared read lock, so readers never wait for each other
+ * and only wait for a writer of a user hashed to the same stripe. Reads return
+ * copies (profile snapshots, copied ranges) that stay consistent after the lock
+ * is released. Profile snapshots share the profile's arrays copy-on-write, so a
+ * read doesn't copy the history; the next write to the profile does, once.
+ */
+public class ConcurrentUserDataManager extends UserDataManager {
+
+    private final ReentrantReadWriteLock[] stripes;
+    private final int stripeMask;
+    private ScheduledExecutorService snapshotScheduler;
+
+    public ConcurrentUserDataManager() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public ConcurrentUserDataManager(Clock clock) {
+        super(clock);
+        this.stripes = createStripes();
+        this.stripeMask = stripes.length - 1;
+    }
+
+    public ConcurrentUserDataManager(Path dataDirectory) throws IOException {
+        this(dataDirectory, Clock.systemDefaultZone());
+    }
+
+    public ConcurrentUserDataManager(Path dataDirectory, Clock clock) throws IOException {
+        super(dataDirectory, clock);
+        this.stripes = createStripes();
+        this.stripeMask = stripes.length - 1;
+    }
+
+    /**
+     * Returns a snapshot of the user's profile with up-to-date statistics
+     */
+    @Override
+    public UserProfile getCompleteUserData(String userId) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+
+        lock.readLock().lock();
+        try {
+            UserProfile profile = findProfile(userId);
+            if (profile != null && !statisticsNeedRefresh(profile)) {
+                return profile.snapshot();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Creating the profile or refreshing its statistics modifies it
+        lock.writeLock().lock();
+        try {
+            return super.getCompleteUserData(userId).snapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public UserProfile getUserSnapshot(String userId) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+
+        lock.readLock().lock();
+        try {
+            UserProfile profile = findCachedProfile(userId);
+            if (profile == null) return readUncachedProfile(userId);
+            if (!statisticsNeedRefresh(profile)) {
+                return profile.snapshot();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            return super.getUserSnapshot(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveMoodEntry(String userId, MoodEntry moodEntry) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.saveMoodEntry(userId, moodEntry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveMoodEntries(String userId, Collection<MoodEntry> moodEntries) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.saveMoodEntries(userId, moodEntries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveJournalEntry(String userId, JournalEntry journalEntry) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.saveJournalEntry(userId, journalEntry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveJournalEntries(String userId, Collection<JournalEntry> journalEntries) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.saveJournalEntries(userId, journalEntries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addGoal(String userId, String goal) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.addGoal(userId, goal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeGoal(String userId, String goal) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.removeGoal(userId, goal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addReminder(String userId, String reminder) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.writeLock().lock();
+        try {
+            super.addReminder(userId, reminder);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot every interval on a background thread, until the manager is closed
+     */
+    public synchronized void scheduleSnapshots(Duration interval) {
+        if (snapshotScheduler == null) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Snapshot failed: " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshotScheduler != null) {
+                snapshotScheduler.shutdownNow();
+                snapshotScheduler = null;
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * Returns a copy of the mood entries of a date range (most recent first)
+     */
+    @Override
+    public List<MoodEntry> getMoodEntriesInRange(String userId, LocalDate startDate, LocalDate endDate) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.readLock().lock();
+        try {
+            return List.copyOf(super.getMoodEntriesInRange(userId, startDate, endDate));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getMoodEntriesInRange(String userId, LocalDate startDate, LocalDate endDate,
+                                     MappedMoodSeries.MoodVisitor visitor) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.readLock().lock();
+        try {
+            return super.getMoodEntriesInRange(userId, startDate, endDate, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the journal entries of a date range (most recent first)
+     */
+    @Override
+    public List<JournalEntry> getJournalEntriesInRange(String userId, LocalDate startDate, LocalDate endDate) {
+        ReentrantReadWriteLock lock = stripeFor(userId);
+        lock.readLock().lock();
+        try {
+            return List.copyOf(super.getJournalEntriesInRange(userId, startDate, endDate));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Holds every stripe's write lock while the log is rolled, so that no change is half applied
+     */
+    @Override
+    protected long beginSnapshot() throws IOException {
+        for (ReentrantReadWriteLock stripe : stripes) {
+            stripe.writeLock().lock();
+        }
+        try {
+            return super.beginSnapshot();
+        } finally {
+            for (ReentrantReadWriteLock stripe : stripes) {
+                stripe.writeLock().unlock();
+            }
+        }
+    }
+
+    // Helper methods
+
+    private ReentrantReadWriteLock stripeFor(String userId) {
+        int hash = userId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+    }
+
+    /**
+     * Enough stripes that two active users rarely share one
+     */
+    private static ReentrantReadWriteLock[] createStripes() {
+        int count = Integer.highestOneBit(Math.max(64, Runtime.getRuntime().availableProcessors() * 64) * 2 - 1);
+        ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * List of dated entries with at most one entry per day, always ordered by date
+ * (most recent first, like the rest of the application expects).
+ *
+ * Dates are indexed in a primitive ascending epoch-day array, so lookups by date
+ * and range queries are binary searches, and range queries return views
+ * instead of copies. {@link #add(Object)} is an upsert: an entry replaces the
+ * existing entry of the same day. Entries must not change date once added.
+ */
+public class DateIndexedList<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * Notified of every change to the list. Positions are counted from the oldest entry
+     * and are those of a sequential application of the changes; listeners must keep
+     * their own state rather than read the list while being notified.
+     */
+    public interface ChangeListener<E> {
+        void entryAdded(int position, E entry);
+        void entryReplaced(int position, E previous, E entry);
+        void entryRemoved(int position, E entry);
+
+        /**
+         * Notified once, after the merge, of a batch that {@link #addAll} merged into the list
+         * with insertions before its last entry (batches that only append or only replace entries
+         * are notified entry by entry). By default the changes are passed on one by one; listeners
+         * keeping a positional copy of the list can rebuild it in one pass instead of shifting
+         * it at each insertion.
+         *
+         * @param list the list after the merge
+         */
+        default void entriesMerged(DateIndexedList<? extends E> list, Merge<? extends E> merge) {
+            merge.replayTo(this);
+        }
+    }
+
+    /**
+     * Changes made by merging a batch, in the order of a sequential application:
+     * entries added, or replacing the entry of the same day, at their positions
+     */
+    public static final class Merge<E> {
+        private final int[] positions;
+        private final Object[] previous;   // null where the entry was added
+        private final Object[] entries;
+        private int size;
+        private int addedCount;
+
+        Merge(int capacity) {
+            positions = new int[capacity];
+            previous = new Object[capacity];
+            entries = new Object[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Number of entries added, the others replacing an entry of the same day
+         */
+        public int getAddedCount() {
+            return addedCount;
+        }
+
+        /**
+         * Passes the changes on to a listener one by one
+         */
+        @SuppressWarnings("unchecked")
+        public void replayTo(ChangeListener<? super E> listener) {
+            for (int i = 0; i < size; i++) {
+                if (previous[i] == null) {
+                    listener.entryAdded(positions[i], (E) entries[i]);
+                } else {
+                    listener.entryReplaced(positions[i], (E) previous[i], (E) entries[i]);
+                }
+            }
+        }
+
+        private void add(int position, Object previousEntry, Object entry) {
+            if (previousEntry == null) addedCount++;
+            positions[size] = position;
+            previous[size] = previousEntry;
+            entries[size++] = entry;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<? super E, LocalDate> dateOf;
+
+    // Ascending storage: days[i] is the epoch day of entries[i]
+    private int[] days;
+    private Object[] entries;
+    private int size;
+    // Whether the arrays are shared with a copy, and must be copied before being changed
+    private boolean shared;
+    private List<ChangeListener<? super E>> listeners = Collections.emptyList();
+
+    public DateIndexedList(Function<? super E, LocalDate> dateOf) {
+        this.dateOf = dateOf;
+        this.days = new int[INITIAL_CAPACITY];
+        this.entries = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Copies the entries of another list (listeners are not copied).
+     * The copy shares the arrays of the other list until either of them changes,
+     * so copying is constant time and the first change after it copies the arrays.
+     */
+    public DateIndexedList(DateIndexedList<E> other) {
+        this.dateOf = other.dateOf;
+        this.days = other.days;
+        this.entries = other.entries;
+        this.size = other.size;
+        this.shared = true;
+        other.shared = true;
+    }
+
+    public DateIndexedList(Function<? super E, LocalDate> dateOf, Collection<? extends E> initialEntries) {
+        this(dateOf);
+        for (E entry : initialEntries) {
+            add(entry);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) entries[storageIndex(index)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts the entry at its date position, replacing the existing entry of the same day
+     */
+    @Override
+    public boolean add(E entry) {
+        int day = toDay(dateOf.apply(entry));
+        int position = lowerBound(day);
+
+        if (position < size && days[position] == day) {
+            replaceAt(position, entry);
+        } else {
+            insertAt(position, day, entry);
+        }
+        return true;
+    }
+
+    /**
+     * Merges a batch of entries in a single pass over the existing index.
+     * Within the batch, the last entry of a day wins; batch entries replace existing entries of the same day.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(Collection<? extends E> batch) {
+        if (batch.isEmpty()) return false;
+
+        // Sort the batch by day (stable, so later duplicates stay after earlier ones)
+        Object[] batchEntries = batch.toArray();
+        int[] order = new int[batchEntries.length];
+        long[] keys = new long[batchEntries.length];
+        for (int i = 0; i < batchEntries.length; i++) {
+            keys[i] = ((long) toDay(dateOf.apply((E) batchEntries[i])) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int batchSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            // Keep only the last entry of each day
+            if (i + 1 < keys.length && (keys[i + 1] >> 32) == (keys[i] >> 32)) continue;
+            order[batchSize++] = (int) keys[i];
+        }
+
+        int firstBatchDay = (int) (keys[0] >> 32);
+        if (size == 0 || firstBatchDay > days[size - 1]) {
+            // Pure append of more recent days
+            unshare();
+            ensureCapacity(size + batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                E entry = (E) batchEntries[order[i]];
+                days[size] = toDay(dateOf.apply(entry));
+                entries[size] = entry;
+                for (ChangeListener<? super E> listener : listeners) {
+                    listener.entryAdded(size, entry);
+                }
+                size++;
+            }
+            modCount++;
+            return true;
+        }
+
+        int[] mergedDays = new int[Math.max(INITIAL_CAPACITY, size + batchSize)];
+        Object[] mergedEntries = new Object[mergedDays.length];
+        Merge<E> merge = listeners.isEmpty() ? null : new Merge<>(batchSize);
+        int existing = 0;
+        int incoming = 0;
+        int merged = 0;
+        while (existing < size || incoming < batchSize) {
+            E batchEntry = incoming < batchSize ? (E) batchEntries[order[incoming]] : null;
+            int batchDay = batchEntry != null ? toDay(dateOf.apply(batchEntry)) : Integer.MAX_VALUE;
+
+            if (existing < size && (batchEntry == null || days[existing] < batchDay)) {
+                mergedDays[merged] = days[existing];
+                mergedEntries[merged++] = entries[existing++];
+            } else {
+                // Replaces the existing entry of the same day, if any
+                Object previous = existing < size && days[existing] == batchDay ? entries[existing++] : null;
+                if (merge != null) {
+                    merge.add(merged, previous, batchEntry);
+                }
+                mergedDays[merged] = batchDay;
+                mergedEntries[merged++] = batchEntry;
+                incoming++;
+            }
+        }
+
+        days = mergedDays;
+        entries = mergedEntries;
+        size = merged;
+        shared = false;
+        modCount++;
+        if (merge != null && merge.addedCount == 0) {
+            // Nothing moved: the replacements are notified as if made one by one
+            for (int i = 0; i < merge.size; i++) {
+                for (ChangeListener<? super E> listener : listeners) {
+                    listener.entryReplaced(merge.positions[i], (E) merge.previous[i], (E) merge.entries[i]);
+                }
+            }
+        } else if (merge != null) {
+            for (ChangeListener<? super E> listener : listeners) {
+                listener.entriesMerged(this, merge);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void add(int index, E entry) {
+        throw new UnsupportedOperationException("Entries are positioned by date, use add(entry)");
+    }
+
+    @Override
+    public E set(int index, E entry) {
+        int position = storageIndex(index);
+        if (toDay(dateOf.apply(entry)) != days[position]) {
+            throw new IllegalArgumentException("Replacement entry must have the same date");
+        }
+        E previous = get(index);
+        replaceAt(position, entry);
+        return previous;
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = get(index);
+        removeAt(storageIndex(index));
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        while (size > 0) {
+            removeAt(size - 1);
+        }
+    }
+
+    @Override
+    public void sort(Comparator<? super E> comparator) {
+        throw new UnsupportedOperationException("Entries are always kept sorted by date");
+    }
+
+    /**
+     * Registers a listener notified of every subsequent change
+     */
+    public void addChangeListener(ChangeListener<? super E> listener) {
+        if (listeners.isEmpty()) {
+            listeners = new ArrayList<>(2);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the entry of a day, or null
+     */
+    @SuppressWarnings("unchecked")
+    public E getByDate(LocalDate date) {
+        int position = find(date);
+        return position < 0 ? null : (E) entries[position];
+    }
+
+    /**
+     * Returns the list index (most recent first) of a day's entry, or -1
+     */
+    public int indexOfDate(LocalDate date) {
+        int position = find(date);
+        return position < 0 ? -1 : size - 1 - position;
+    }
+
+    /**
+     * Removes the entry of a day
+     *
+     * @return the removed entry, or null
+     */
+    @SuppressWarnings("unchecked")
+    public E removeByDate(LocalDate date) {
+        int position = find(date);
+        if (position < 0) return null;
+        E removed = (E) entries[position];
+        removeAt(position);
+        return removed;
+    }
+
+    /**
+     * Returns the epoch day of the entry at a list index (most recent first)
+     */
+    public int epochDayAt(int index) {
+        return days[storageIndex(index)];
+    }
+
+    /**
+     * Returns a view (most recent first) of the entries between start and end, inclusive
+     */
+    public List<E> range(LocalDate startDate, LocalDate endDate) {
+        int from = lowerBound(startDate.toEpochDay());
+        int to = upperBound(endDate.toEpochDay());
+        if (from >= to) return Collections.emptyList();
+        return subList(size - to, size - from);
+    }
+
+    /**
+     * Returns a view (most recent first) of the entries on or after the given date
+     */
+    public List<E> since(LocalDate startDate) {
+        int from = lowerBound(startDate.toEpochDay());
+        return subList(0, size - from);
+    }
+
+    // Index helpers
+
+    private int storageIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return size - 1 - index;
+    }
+
+    private int find(LocalDate date) {
+        long day = date.toEpochDay();
+        int position = lowerBound(day);
+        return position < size && days[position] == day ? position : -1;
+    }
+
+    /**
+     * First storage position whose day is >= the given day
+     */
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First storage position whose day is > the given day
+     */
+    private int upperBound(long day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] <= day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > days.length) {
+            int newCapacity = Math.max(capacity, days.length * 2);
+            days = Arrays.copyOf(days, newCapacity);
+            entries = Arrays.copyOf(entries, newCapacity);
+        }
+    }
+
+    /**
+     * Takes a private copy of arrays shared with a copy of the list, before changing them
+     */
+    private void unshare() {
+        if (!shared) return;
+        days = Arrays.copyOf(days, Math.max(INITIAL_CAPACITY, size));
+        entries = Arrays.copyOf(entries, days.length);
+        shared = false;
+    }
+
+    private void insertAt(int position, int day, E entry) {
+        unshare();
+        ensureCapacity(size + 1);
+        // Appending the most recent day (the common case) doesn't move anything
+        System.arraycopy(days, position, days, position + 1, size - position);
+        System.arraycopy(entries, position, entries, position + 1, size - position);
+        days[position] = day;
+        entries[position] = entry;
+        size++;
+        modCount++;
+        for (ChangeListener<? super E> listener : listeners) {
+            listener.entryAdded(position, entry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replaceAt(int position, E entry) {
+        unshare();
+        E previous = (E) entries[position];
+        entries[position] = entry;
+        for (ChangeListener<? super E> listener : listeners) {
+            listener.entryReplaced(position, previous, entry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeAt(int position) {
+        unshare();
+        E removed = (E) entries[position];
+        System.arraycopy(days, position + 1, days, position, size - position - 1);
+        System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+        entries[--size] = null;
+        modCount++;
+        for (ChangeListener<? super E> listener : listeners) {
+            listener.entryRemoved(position, removed);
+        }
+    }
+
+    private static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+}
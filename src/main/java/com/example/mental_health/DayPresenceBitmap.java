@@ -0,0 +1,613 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Days on which a profile has a mood entry, as a compressed bitmap over epoch days.
+ *
+ * Days are split into chunks of 4096 days (about eleven years). A chunk is stored as
+ * the list of its runs of consecutive logged days while that is smaller, and as 64
+ * words of bits once it has more than 128 runs; chunks without any logged day are
+ * absent. Regular logging makes a few long runs, so years of history take a few bytes
+ * and the most scattered history at most 512 bytes per chunk. Streaks, missed days and
+ * gaps in a window come from the runs or from bit operations on whole words, without
+ * going through the entries.
+ */
+public class DayPresenceBitmap implements DateIndexedList.ChangeListener<MoodEntry> {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_DAYS = 1 << CHUNK_BITS;
+    private static final int LAST_OFFSET = CHUNK_DAYS - 1;
+    private static final int WORDS = CHUNK_DAYS / 64;
+    // A run takes 4 bytes, so beyond 128 runs the 512-byte bitmap is smaller
+    private static final int MAX_RUNS = 128;
+
+    private int[] keys = new int[2];   // epoch day >> CHUNK_BITS of each chunk, ascending
+    private Chunk[] chunks = new Chunk[2];
+    private int chunkCount;
+    private int dayCount;
+
+    public DayPresenceBitmap() {
+    }
+
+    /**
+     * Copies the bitmap of another profile
+     */
+    public DayPresenceBitmap(DayPresenceBitmap other) {
+        keys = Arrays.copyOf(other.keys, Math.max(2, other.chunkCount));
+        chunks = new Chunk[keys.length];
+        for (int i = 0; i < other.chunkCount; i++) {
+            chunks[i] = other.chunks[i].copy();
+        }
+        chunkCount = other.chunkCount;
+        dayCount = other.dayCount;
+    }
+
+    /**
+     * Empties the bitmap
+     */
+    public void clear() {
+        keys = new int[2];
+        chunks = new Chunk[2];
+        chunkCount = 0;
+        dayCount = 0;
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        add(entry.getDate().toEpochDay());
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        // Same day
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        remove(entry.getDate().toEpochDay());
+    }
+
+    /**
+     * Whether a day is logged
+     */
+    public boolean contains(long epochDay) {
+        int index = indexOf(keyOf(epochDay));
+        return index >= 0 && chunks[index].contains(offsetOf(epochDay));
+    }
+
+    /**
+     * Number of logged days
+     */
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    /**
+     * Number of logged days from one day to another, inclusive
+     */
+    public int countDays(long fromDay, long toDay) {
+        if (fromDay > toDay) return 0;
+        int fromKey = keyOf(fromDay);
+        int toKey = keyOf(toDay);
+        int total = 0;
+        for (int i = firstIndexFrom(fromKey); i < chunkCount && keys[i] <= toKey; i++) {
+            int from = keys[i] == fromKey ? offsetOf(fromDay) : 0;
+            int to = keys[i] == toKey ? offsetOf(toDay) : LAST_OFFSET;
+            total += chunks[i].count(from, to);
+        }
+        return total;
+    }
+
+    /**
+     * Number of days without an entry from one day to another, inclusive
+     */
+    public long missedDays(long fromDay, long toDay) {
+        if (fromDay > toDay) return 0;
+        return toDay - fromDay + 1 - countDays(fromDay, toDay);
+    }
+
+    /**
+     * Number of consecutive logged days ending on a day, 0 if that day isn't logged
+     */
+    public int streakEndingOn(long epochDay) {
+        int streak = 0;
+        long day = epochDay;
+        while (true) {
+            int index = indexOf(keyOf(day));
+            if (index < 0) return streak;
+            int offset = offsetOf(day);
+            int run = chunks[index].runEndingAt(offset);
+            streak += run;
+            // A run reaching the start of its chunk may go on in the previous one
+            if (run <= offset) return streak;
+            day -= run;
+        }
+    }
+
+    /**
+     * Length of the longest run of consecutive logged days
+     */
+    public int longestStreak() {
+        if (chunkCount == 0) return 0;
+        LongestRun longest = new LongestRun();
+        forEachRun((long) keys[0] << CHUNK_BITS, ((long) keys[chunkCount - 1] << CHUNK_BITS) + LAST_OFFSET, longest);
+        return longest.length;
+    }
+
+    /**
+     * Ranges of days without an entry from one day to another, inclusive, oldest first
+     */
+    public List<DayRange> gaps(long fromDay, long toDay) {
+        GapCollector collector = new GapCollector(fromDay);
+        if (fromDay > toDay) return collector.gaps;
+        forEachRun(fromDay, toDay, collector);
+        if (collector.next <= toDay) {
+            collector.gaps.add(new DayRange(collector.next, toDay));
+        }
+        return collector.gaps;
+    }
+
+    /**
+     * Estimated heap footprint of the chunks
+     */
+    public long estimatedSizeBytes() {
+        long size = 32 + keys.length * 8L;
+        for (int i = 0; i < chunkCount; i++) {
+            size += chunks[i].sizeBytes();
+        }
+        return size;
+    }
+
+    private void add(long epochDay) {
+        int key = keyOf(epochDay);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new RunChunk());
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunks[index] = chunk.add(offsetOf(epochDay));
+        dayCount += chunks[index].cardinality() - before;
+    }
+
+    private void remove(long epochDay) {
+        int index = indexOf(keyOf(epochDay));
+        if (index < 0) return;
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        Chunk updated = chunk.remove(offsetOf(epochDay));
+        if (updated == null) {
+            dayCount -= before;
+            System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+            chunks[--chunkCount] = null;
+            return;
+        }
+        chunks[index] = updated;
+        dayCount += updated.cardinality() - before;
+    }
+
+    private void insertChunk(int index, int key, Chunk chunk) {
+        if (chunkCount == keys.length) {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        chunkCount++;
+    }
+
+    /**
+     * Passes the runs of logged days within a window to a visitor, oldest first,
+     * joining runs that continue across chunks
+     */
+    private void forEachRun(long fromDay, long toDay, RunVisitor visitor) {
+        int fromKey = keyOf(fromDay);
+        int toKey = keyOf(toDay);
+        for (int i = firstIndexFrom(fromKey); i < chunkCount && keys[i] <= toKey; i++) {
+            int from = keys[i] == fromKey ? offsetOf(fromDay) : 0;
+            int to = keys[i] == toKey ? offsetOf(toDay) : LAST_OFFSET;
+            chunks[i].forEachRun(from, to, (long) keys[i] << CHUNK_BITS, visitor);
+        }
+        visitor.flush();
+    }
+
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, chunkCount, key);
+    }
+
+    private int firstIndexFrom(int key) {
+        int index = indexOf(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static int keyOf(long epochDay) {
+        // Clamped, so that unbounded windows can be given as Long.MIN_VALUE or Long.MAX_VALUE
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay >> CHUNK_BITS));
+    }
+
+    private static int offsetOf(long epochDay) {
+        return (int) (epochDay & LAST_OFFSET);
+    }
+
+    /**
+     * Days of a chunk, as offsets from its first day
+     */
+    private interface Chunk {
+        boolean contains(int offset);
+
+        /** Adds a day, returning the chunk to keep, which may have changed representation */
+        Chunk add(int offset);
+
+        /** Removes a day, returning the chunk to keep, or null once it is empty */
+        Chunk remove(int offset);
+
+        /** Number of days from one offset to another, inclusive */
+        int count(int from, int to);
+
+        /** Number of consecutive days of the chunk ending at an offset */
+        int runEndingAt(int offset);
+
+        void forEachRun(int from, int to, long firstDay, RunVisitor visitor);
+
+        int cardinality();
+
+        int sizeBytes();
+
+        Chunk copy();
+    }
+
+    /**
+     * Chunk stored as its runs, each as its first and last offset
+     */
+    private static final class RunChunk implements Chunk {
+        private char[] runs = new char[4];
+        private int runCount;
+        private int cardinality;
+
+        @Override
+        public boolean contains(int offset) {
+            int i = find(offset);
+            return i >= 0 && runs[2 * i + 1] >= offset;
+        }
+
+        @Override
+        public Chunk add(int offset) {
+            int i = find(offset);
+            if (i >= 0 && runs[2 * i + 1] >= offset) return this;
+            boolean joinsPrevious = i >= 0 && runs[2 * i + 1] == offset - 1;
+            boolean joinsNext = i + 1 < runCount && runs[2 * i + 2] == offset + 1;
+            cardinality++;
+            if (joinsPrevious && joinsNext) {
+                runs[2 * i + 1] = runs[2 * i + 3];
+                deleteRun(i + 1);
+            } else if (joinsPrevious) {
+                runs[2 * i + 1] = (char) offset;
+            } else if (joinsNext) {
+                runs[2 * i + 2] = (char) offset;
+            } else {
+                insertRun(i + 1, offset, offset);
+                if (runCount > MAX_RUNS) return toBitmap();
+            }
+            return this;
+        }
+
+        @Override
+        public Chunk remove(int offset) {
+            int i = find(offset);
+            if (i < 0 || runs[2 * i + 1] < offset) return this;
+            int first = runs[2 * i];
+            int last = runs[2 * i + 1];
+            if (--cardinality == 0) return null;
+            if (first == last) {
+                deleteRun(i);
+            } else if (offset == first) {
+                runs[2 * i] = (char) (offset + 1);
+            } else if (offset == last) {
+                runs[2 * i + 1] = (char) (offset - 1);
+            } else {
+                runs[2 * i + 1] = (char) (offset - 1);
+                insertRun(i + 1, offset + 1, last);
+                if (runCount > MAX_RUNS) return toBitmap();
+            }
+            return this;
+        }
+
+        @Override
+        public int count(int from, int to) {
+            int total = 0;
+            for (int i = Math.max(0, find(from)); i < runCount && runs[2 * i] <= to; i++) {
+                int first = Math.max(from, runs[2 * i]);
+                int last = Math.min(to, runs[2 * i + 1]);
+                if (first <= last) total += last - first + 1;
+            }
+            return total;
+        }
+
+        @Override
+        public int runEndingAt(int offset) {
+            int i = find(offset);
+            if (i < 0 || runs[2 * i + 1] < offset) return 0;
+            return offset - runs[2 * i] + 1;
+        }
+
+        @Override
+        public void forEachRun(int from, int to, long firstDay, RunVisitor visitor) {
+            for (int i = Math.max(0, find(from)); i < runCount && runs[2 * i] <= to; i++) {
+                int first = Math.max(from, runs[2 * i]);
+                int last = Math.min(to, runs[2 * i + 1]);
+                if (first <= last) visitor.accept(firstDay + first, firstDay + last);
+            }
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int sizeBytes() {
+            return 32 + runs.length * 2;
+        }
+
+        @Override
+        public Chunk copy() {
+            RunChunk copy = new RunChunk();
+            copy.runs = Arrays.copyOf(runs, Math.max(4, 2 * runCount));
+            copy.runCount = runCount;
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        /**
+         * Index of the last run starting at or before an offset, or -1
+         */
+        private int find(int offset) {
+            int low = 0;
+            int high = runCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (runs[2 * mid] <= offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        private void insertRun(int index, int first, int last) {
+            if (2 * runCount + 2 > runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            System.arraycopy(runs, 2 * index, runs, 2 * index + 2, 2 * (runCount - index));
+            runs[2 * index] = (char) first;
+            runs[2 * index + 1] = (char) last;
+            runCount++;
+        }
+
+        private void deleteRun(int index) {
+            System.arraycopy(runs, 2 * index + 2, runs, 2 * index, 2 * (runCount - index - 1));
+            runCount--;
+        }
+
+        private BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < runCount; i++) {
+                for (int offset = runs[2 * i]; offset <= runs[2 * i + 1]; offset++) {
+                    bitmap.words[offset >>> 6] |= 1L << offset;
+                }
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    /**
+     * Chunk stored as one bit per day
+     */
+    private static final class BitmapChunk implements Chunk {
+        private final long[] words = new long[WORDS];
+        private int cardinality;
+
+        @Override
+        public boolean contains(int offset) {
+            return (words[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        @Override
+        public Chunk add(int offset) {
+            if (contains(offset)) return this;
+            words[offset >>> 6] |= 1L << offset;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Chunk remove(int offset) {
+            if (!contains(offset)) return this;
+            words[offset >>> 6] &= ~(1L << offset);
+            if (--cardinality == 0) return null;
+            // Few enough days to be sure of fitting in half the runs, so that
+            // adding and removing one day doesn't switch back and forth
+            return cardinality <= MAX_RUNS / 2 ? toRuns() : this;
+        }
+
+        @Override
+        public int count(int from, int to) {
+            int firstWord = from >>> 6;
+            int lastWord = to >>> 6;
+            long firstMask = -1L << from;
+            long lastMask = -1L >>> (63 - (to & 63));
+            if (firstWord == lastWord) {
+                return Long.bitCount(words[firstWord] & firstMask & lastMask);
+            }
+            int total = Long.bitCount(words[firstWord] & firstMask);
+            for (int w = firstWord + 1; w < lastWord; w++) {
+                total += Long.bitCount(words[w]);
+            }
+            return total + Long.bitCount(words[lastWord] & lastMask);
+        }
+
+        @Override
+        public int runEndingAt(int offset) {
+            if (!contains(offset)) return 0;
+            int w = offset >>> 6;
+            // Days without entry at or before the offset, the nearest one ending the run
+            long missing = ~words[w] & (-1L >>> (63 - (offset & 63)));
+            while (missing == 0) {
+                if (--w < 0) return offset + 1;
+                missing = ~words[w];
+            }
+            return offset - (w * 64 + 63 - Long.numberOfLeadingZeros(missing));
+        }
+
+        @Override
+        public void forEachRun(int from, int to, long firstDay, RunVisitor visitor) {
+            int position = from;
+            while (position <= to) {
+                int first = nextSet(position);
+                if (first > to) return;
+                int last = Math.min(to, nextClear(first) - 1);
+                visitor.accept(firstDay + first, firstDay + last);
+                position = last + 2;
+            }
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int sizeBytes() {
+            return 32 + WORDS * 8;
+        }
+
+        @Override
+        public Chunk copy() {
+            BitmapChunk copy = new BitmapChunk();
+            System.arraycopy(words, 0, copy.words, 0, WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        private int nextSet(int from) {
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (word == 0) {
+                if (++w == WORDS) return CHUNK_DAYS;
+                word = words[w];
+            }
+            return w * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        private int nextClear(int from) {
+            int w = from >>> 6;
+            long word = ~words[w] & (-1L << from);
+            while (word == 0) {
+                if (++w == WORDS) return CHUNK_DAYS;
+                word = ~words[w];
+            }
+            return w * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        private RunChunk toRuns() {
+            RunChunk runs = new RunChunk();
+            RunVisitor appender = new RunVisitor() {
+                @Override
+                void visit(long first, long last) {
+                    runs.insertRun(runs.runCount, (int) first, (int) last);
+                }
+            };
+            forEachRun(0, LAST_OFFSET, 0, appender);
+            appender.flush();
+            runs.cardinality = cardinality;
+            return runs;
+        }
+    }
+
+    /**
+     * Receives runs in ascending order and visits them once joined with the runs they continue
+     */
+    private abstract static class RunVisitor {
+        private long pendingFirst;
+        private long pendingLast;
+        private boolean pending;
+
+        final void accept(long first, long last) {
+            if (pending && first == pendingLast + 1) {
+                pendingLast = last;
+                return;
+            }
+            flush();
+            pendingFirst = first;
+            pendingLast = last;
+            pending = true;
+        }
+
+        final void flush() {
+            if (pending) {
+                pending = false;
+                visit(pendingFirst, pendingLast);
+            }
+        }
+
+        abstract void visit(long first, long last);
+    }
+
+    private static final class LongestRun extends RunVisitor {
+        private int length;
+
+        @Override
+        void visit(long first, long last) {
+            length = (int) Math.max(length, last - first + 1);
+        }
+    }
+
+    private static final class GapCollector extends RunVisitor {
+        private final List<DayRange> gaps = new ArrayList<>();
+        private long next;   // first day not yet covered by a run or a gap
+
+        GapCollector(long fromDay) {
+            this.next = fromDay;
+        }
+
+        @Override
+        void visit(long first, long last) {
+            if (first > next) {
+                gaps.add(new DayRange(next, first - 1));
+            }
+            next = last + 1;
+        }
+    }
+
+    /**
+     * Range of consecutive days, inclusive
+     */
+    public static class DayRange {
+        private final long firstDay;
+        private final long lastDay;
+
+        public DayRange(long firstDay, long lastDay) {
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+        }
+
+        public LocalDate getStartDate() { return LocalDate.ofEpochDay(firstDay); }
+        public LocalDate getEndDate() { return LocalDate.ofEpochDay(lastDay); }
+        public int getLength() { return (int) (lastDay - firstDay + 1); }
+
+        @Override
+        public String toString() {
+            return getStartDate() + ".." + getEndDate();
+        }
+    }
+}
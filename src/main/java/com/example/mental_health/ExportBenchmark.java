@@ -0,0 +1,192 @@
+package com.example.mental_health;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of JsonExporter on profiles with 1 to 10 years of daily journal entries and
+ * mood notes built from the bundled French samples.
+ *
+ * Compares the previous exporter (kept below as the reference: it builds the whole
+ * document in a StringBuilder, escapes with chained String.replace calls and writes
+ * through a FileWriter) with the streaming JsonWriter, in MB/s and in bytes allocated
+ * per export. Both documents are checked to be the same first, but for their
+ * timestamps and the previous exporter closing two objects on the last line.
+ *
+ * Usage: ExportBenchmark [exports per measurement]   (default: 5)
+ */
+public class ExportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int exports = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Path directory = Files.createTempDirectory("export-benchmark");
+        Path referenceFile = directory.resolve("reference.json");
+        Path streamedFile = directory.resolve("streamed.json");
+
+        System.out.println("=== Export Benchmark ===\n");
+        System.out.printf("%-10s %10s %16s %16s %18s %18s%n", "History", "size (MB)",
+                "reference MB/s", "streamed MB/s", "reference alloc", "streamed alloc");
+
+        for (int years : new int[] {1, 3, 10}) {
+            UserProfile profile = createProfile(years);
+            referenceExport(referenceFile.toString(), profile);
+            JsonExporter.exportToJson(streamedFile.toString(), profile, null);
+            if (!normalize(referenceFile).equals(normalize(streamedFile))) {
+                throw new IllegalStateException("Exported documents differ for " + years + " years");
+            }
+            double megabytes = Files.size(streamedFile) / 1_000_000.0;
+
+            long[] reference = measure(exports, () -> referenceExport(referenceFile.toString(), profile));
+            long[] streamed = measure(exports, () -> JsonExporter.exportToJson(streamedFile.toString(), profile, null));
+            System.out.printf("%-10s %10.1f %16.1f %16.1f %15.1f MB %15.1f MB%n", years + " years", megabytes,
+                    megabytes * exports * 1e9 / reference[0], megabytes * exports * 1e9 / streamed[0],
+                    reference[1] / 1e6 / exports, streamed[1] / 1e6 / exports);
+        }
+
+        Files.deleteIfExists(referenceFile);
+        Files.deleteIfExists(streamedFile);
+        Files.deleteIfExists(directory);
+    }
+
+    private static String normalize(Path file) throws IOException {
+        return Files.readString(file)
+                .replaceFirst("\"exportTimestamp\": \"[^\"]*\"", "\"exportTimestamp\": \"\"")
+                .replace("  }}\n", "  }\n}\n");
+    }
+
+    private interface Export {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the export repeatedly after one warm-up run
+     *
+     * @return the elapsed nanoseconds and the bytes allocated by this thread
+     */
+    private static long[] measure(int exports, Export export) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        export.run();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < exports; i++) {
+            export.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new long[] {elapsed, threads.getCurrentThreadAllocatedBytes() - allocated};
+    }
+
+    static UserProfile createProfile(int years) throws IOException {
+        List<String> samples = new ArrayList<>();
+        try (InputStream in = ExportBenchmark.class.getResourceAsStream("/text/french-samples.txt")) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank()) samples.add(line.strip());
+            }
+        }
+        Random random = new Random(years);
+        UserProfile profile = new UserProfile("benchmark_user");
+        LocalDate today = LocalDate.now();
+        List<MoodEntry> moods = new ArrayList<>();
+        List<JournalEntry> journals = new ArrayList<>();
+        for (int day = years * 365 - 1; day >= 0; day--) {
+            LocalDate date = today.minusDays(day);
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 600) {
+                // Line breaks and quotes, as typed in the journal tab
+                text.append(samples.get(random.nextInt(samples.size())))
+                        .append(random.nextInt(4) == 0 ? "\n" : random.nextInt(8) == 0 ? " \"" : " ");
+            }
+            moods.add(new MoodEntry(date, 1 + random.nextInt(5), samples.get(random.nextInt(samples.size()))));
+            journals.add(new JournalEntry(date, text.toString()));
+        }
+        profile.setMoodEntries(moods);
+        profile.setJournalEntries(journals);
+        profile.getGoals().add("Méditer 10 minutes par jour");
+        profile.getReminders().add("Boire de l'eau\tà 10h");
+        return profile;
+    }
+
+    // Reference: the exporter as it was before JsonWriter
+
+    private static void referenceExport(String filePath, UserProfile userProfile) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"metadata\": {\n");
+        json.append("    \"exportTimestamp\": \"").append(LocalDateTime.now().toString()).append("\",\n");
+        json.append("    \"version\": \"1.0\",\n");
+        json.append("    \"source\": \"Mental Health Assistant\",\n");
+        json.append("    \"userId\": \"").append(escapeJson(userProfile.getUserId())).append("\"\n");
+        json.append("  },\n");
+        json.append("  \"userProfile\": {\n");
+        json.append("    \"userId\": \"").append(escapeJson(userProfile.getUserId())).append("\",\n");
+        json.append("    \"averageMoodLast7Days\": ").append(userProfile.getAverageMoodLast7Days()).append(",\n");
+        json.append("    \"averageMoodLast30Days\": ").append(userProfile.getAverageMoodLast30Days()).append(",\n");
+        json.append("    \"totalEntriesCount\": ").append(userProfile.getTotalEntriesCount()).append(",\n");
+        json.append("    \"streakDays\": ").append(userProfile.getStreakDays()).append(",\n");
+        json.append("    \"moodEntries\": [\n");
+        List<MoodEntry> moodEntries = userProfile.getMoodEntries();
+        for (int i = 0; i < moodEntries.size(); i++) {
+            MoodEntry entry = moodEntries.get(i);
+            json.append("      {\n");
+            json.append("        \"date\": \"").append(entry.getDate().toString()).append("\",\n");
+            json.append("        \"moodLevel\": ").append(entry.getMoodLevel()).append(",\n");
+            json.append("        \"note\": \"").append(escapeJson(entry.getNote())).append("\"\n");
+            json.append("      }");
+            if (i < moodEntries.size() - 1) json.append(",");
+            json.append("\n");
+        }
+        json.append("    ],\n");
+        json.append("    \"journalEntries\": [\n");
+        List<JournalEntry> journalEntries = userProfile.getJournalEntries();
+        for (int i = 0; i < journalEntries.size(); i++) {
+            JournalEntry entry = journalEntries.get(i);
+            json.append("      {\n");
+            json.append("        \"date\": \"").append(entry.getDate().toString()).append("\",\n");
+            json.append("        \"content\": \"").append(escapeJson(entry.getContent())).append("\",\n");
+            json.append("        \"sentimentScore\": ").append(entry.getSentimentScore()).append("\n");
+            json.append("      }");
+            if (i < journalEntries.size() - 1) json.append(",");
+            json.append("\n");
+        }
+        json.append("    ],\n");
+        json.append("    \"goals\": [\n");
+        List<String> goals = userProfile.getGoals();
+        for (int i = 0; i < goals.size(); i++) {
+            json.append("      \"").append(escapeJson(goals.get(i))).append("\"");
+            if (i < goals.size() - 1) json.append(",");
+            json.append("\n");
+        }
+        json.append("    ],\n");
+        json.append("    \"reminders\": [\n");
+        List<String> reminders = userProfile.getReminders();
+        for (int i = 0; i < reminders.size(); i++) {
+            json.append("      \"").append(escapeJson(reminders.get(i))).append("\"");
+            if (i < reminders.size() - 1) json.append(",");
+            json.append("\n");
+        }
+        json.append("    ]\n");
+        json.append("  }");
+        json.append("}\n");
+        try (FileWriter writer = new FileWriter(filePath)) {
+            writer.write(json.toString());
+        }
+    }
+
+    private static String escapeJson(String input) {
+        if (input == null) return "";
+        return input.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t");
+    }
+}
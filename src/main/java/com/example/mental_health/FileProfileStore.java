@@ -0,0 +1,172 @@
+package com.example.mental_health;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Stores each profile in its own file, encoded with ProfileCodec, on top of an
+ * optional ProfileSnapshot holding the profiles that were not stored since.
+ *
+ * Files are grouped in generations, one per snapshot: a new generation starts
+ * when a snapshot starts, and the older generations are dropped once the snapshot
+ * is complete, since the snapshot covers them. A profile is written to a temporary
+ * file, forced to disk, that then atomically replaces the previous version (the rename
+ * being forced as well), so even an OS crash never leaves a half-written profile.
+ */
+public class FileProfileStore implements ProfileStore {
+
+    private static final String GENERATION_PREFIX = "gen-";
+    private static final String SUFFIX = ".profile";
+
+    private final Path directory;
+
+    // Newest generation first
+    private final List<Path> generations = new CopyOnWriteArrayList<>();
+
+    // File names of the stored profiles, to skip file lookups for users only in the snapshot
+    private final Set<String> storedNames = ConcurrentHashMap.newKeySet();
+
+    private volatile ProfileSnapshot snapshot;
+
+    public FileProfileStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        List<Path> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().startsWith(GENERATION_PREFIX)).forEach(existing::add);
+        }
+        existing.sort(Comparator.comparing(Path::getFileName).reversed());
+        generations.addAll(existing);
+        if (generations.isEmpty()) {
+            startGeneration(0);
+        }
+
+        for (Path generation : generations) {
+            try (Stream<Path> files = Files.list(generation)) {
+                files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(SUFFIX))
+                        .forEach(storedNames::add);
+            }
+        }
+    }
+
+    @Override
+    public UserProfile load(String userId) throws IOException {
+        String name = fileNameFor(userId);
+        if (storedNames.contains(name)) {
+            for (Path generation : generations) {
+                try {
+                    return ProfileCodec.read(ByteBuffer.wrap(Files.readAllBytes(generation.resolve(name))));
+                } catch (NoSuchFileException e) {
+                    // Stored in an older generation, or dropped since it is in the snapshot
+                }
+            }
+        }
+        ProfileSnapshot current = snapshot;
+        return current == null ? null : current.load(userId);
+    }
+
+    @Override
+    public void store(UserProfile profile) throws IOException {
+        String name = fileNameFor(profile.getUserId());
+        Path file = generations.get(0).resolve(name);
+        Path temporary = file.resolveSibling(name + ".tmp");
+
+        try (OutputStream stream = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            ProfileCodec.write(out, profile);
+        }
+        DurableFiles.force(temporary);
+        synchronized (storedNames) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            storedNames.add(name);
+        }
+        DurableFiles.forceDirectory(file.getParent());
+    }
+
+    /**
+     * Whether a user's profile was stored since the snapshot, making the snapshot copy outdated
+     */
+    public boolean isStoredSinceSnapshot(String userId) {
+        return storedNames.contains(fileNameFor(userId));
+    }
+
+    /**
+     * Returns the ids of the users stored since the snapshot (read from the stored files)
+     */
+    public List<String> storedUserIds() throws IOException {
+        List<String> userIds = new ArrayList<>();
+        for (Path generation : generations) {
+            try (Stream<Path> files = Files.list(generation)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(SUFFIX)) {
+                        userIds.add(ProfileCodec.readUserId(ByteBuffer.wrap(Files.readAllBytes(file))));
+                    }
+                }
+            }
+        }
+        return userIds;
+    }
+
+    public ProfileSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(ProfileSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Sends the profiles stored from now on to a new generation, e.g. when a snapshot starts
+     */
+    public void startGeneration(long id) throws IOException {
+        Path generation = directory.resolve(String.format("%s%08d", GENERATION_PREFIX, id));
+        Files.createDirectories(generation);
+        DurableFiles.forceDirectory(directory);
+        if (generations.isEmpty() || !generations.get(0).equals(generation)) {
+            generations.add(0, generation);
+        }
+    }
+
+    /**
+     * Deletes the generations older than the given one, once a snapshot covers them
+     */
+    public void dropGenerationsBefore(long id) throws IOException {
+        String newest = String.format("%s%08d", GENERATION_PREFIX, id);
+        for (Path generation : generations) {
+            if (generation.getFileName().toString().compareTo(newest) >= 0) continue;
+            generations.remove(generation);
+            try (Stream<Path> files = Files.list(generation)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    synchronized (storedNames) {
+                        Files.delete(file);
+                        if (generations.stream().noneMatch(newer -> Files.exists(newer.resolve(name)))) {
+                            storedNames.remove(name);
+                        }
+                    }
+                }
+            }
+            Files.delete(generation);
+        }
+    }
+
+    private static String fileNameFor(String userId) {
+        return MappedMoodSeries.fileNameFor(userId) + SUFFIX;
+    }
+}
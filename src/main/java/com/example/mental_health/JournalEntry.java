@@ -7,32 +7,80 @@ import java.time.LocalDate;
  */
 public class JournalEntry {
     private LocalDate date;
-    private String content;
-    private double sentimentScore; // -1.0 to 1.0
+    private CompressedText content; // decompressed on first access
+    private volatile Sentiment sentiment = Sentiment.NEUTRAL; // replaced as a whole by the background scorer
     
     public JournalEntry() {}
     
     public JournalEntry(LocalDate date, String content) {
         this.date = date;
-        this.content = content;
-        this.sentimentScore = 0.0; // Neutral by default
+        this.content = CompressedText.of(content);
     }
     
     // Getters and setters
     public LocalDate getDate() { return date; }
     public void setDate(LocalDate date) { this.date = date; }
     
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
+    public String getContent() { return content != null ? content.get() : null; }
+    public void setContent(String content) { this.content = CompressedText.of(content); }
     
-    public double getSentimentScore() { return sentimentScore; }
+    public CompressedText getCompressedContent() { return content; }
+    public void setCompressedContent(CompressedText content) { this.content = content; }
+    
+    public double getSentimentScore() { return sentiment.score; }
     public void setSentimentScore(double sentimentScore) { 
-        this.sentimentScore = Math.max(-1.0, Math.min(1.0, sentimentScore)); 
+        this.sentiment = new Sentiment(sentimentScore, null, 0);
+    }
+    
+    /**
+     * Stores a computed score with what it was computed from. Changing the content
+     * afterwards, even while the score is being computed, leaves the score outdated.
+     *
+     * @param scoredContent the content that was scored, as returned by {@link #getCompressedContent()}
+     * @param lexiconVersion {@link SentimentLexicon#getVersion()} of the lexicon used
+     */
+    public void setSentiment(double sentimentScore, CompressedText scoredContent, int lexiconVersion) {
+        this.sentiment = new Sentiment(sentimentScore, scoredContent, lexiconVersion);
+    }
+    
+    /**
+     * Version of the lexicon the score was computed with from the current content, 0 if none
+     */
+    public int getSentimentLexiconVersion() {
+        Sentiment current = sentiment;
+        return current.content == content ? current.lexiconVersion : 0;
+    }
+    
+    /**
+     * Whether the score was computed from the current content with the given lexicon
+     */
+    public boolean hasSentimentFor(int lexiconVersion) {
+        Sentiment current = sentiment;
+        return current.lexiconVersion != 0 && current.lexiconVersion == lexiconVersion && current.content == content;
     }
     
     @Override
     public String toString() {
         return String.format("JournalEntry{date=%s, length=%d, sentiment=%.2f}", 
-                           date, content != null ? content.length() : 0, sentimentScore);
+                           date, content != null ? content.length() : 0, sentiment.score);
+    }
+    
+    /**
+     * Score with the content and lexicon it was computed from, published as one immutable object
+     * so that a reader never sees the score of one computation with the version of another.
+     * Contents are compared by identity: each change of the content creates a new CompressedText.
+     */
+    private static final class Sentiment {
+        static final Sentiment NEUTRAL = new Sentiment(0.0, null, 0);
+        
+        final double score; // -1.0 to 1.0
+        final CompressedText content;
+        final int lexiconVersion; // 0 if none
+        
+        Sentiment(double score, CompressedText content, int lexiconVersion) {
+            this.score = Math.max(-1.0, Math.min(1.0, score));
+            this.content = content;
+            this.lexiconVersion = lexiconVersion;
+        }
     }
 }
\ No newline at end of file
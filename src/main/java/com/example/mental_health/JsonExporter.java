@@ -1,13 +1,14 @@
 package com.example.mental_health;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.LocalDate;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.util.List;
 
 /**
- * Simple JSON exporter for user data (without external dependencies)
+ * Simple JSON exporter for user data (without external dependencies).
+ *
+ * The document is streamed to the file with a JsonWriter, one entry at a time,
+ * so memory use doesn't depend on the size of the profile.
  */
 public class JsonExporter {
     
@@ -15,145 +16,131 @@ public class JsonExporter {
      * Exports user profile and AI analysis to JSON format
      */
     public static void exportToJson(String filePath, UserProfile userProfile, AIAnalysisResult aiAnalysis) throws IOException {
-        StringBuilder json = new StringBuilder();
-        json.append("{\n");
+        try (JsonWriter json = JsonWriter.open(Path.of(filePath))) {
+            writeDocument(json, userProfile, aiAnalysis);
+        }
+    }
+    
+    /**
+     * Writes the export document of a profile
+     */
+    static void writeDocument(JsonWriter json, UserProfile userProfile, AIAnalysisResult aiAnalysis) throws IOException {
+        json.beginObject();
         
         // Metadata
-        json.append("  \"metadata\": {\n");
-        json.append("    \"exportTimestamp\": \"").append(LocalDateTime.now().toString()).append("\",\n");
-        json.append("    \"version\": \"1.0\",\n");
-        json.append("    \"source\": \"Mental Health Assistant\",\n");
-        json.append("    \"userId\": \"").append(escapeJson(userProfile.getUserId())).append("\"\n");
-        json.append("  },\n");
+        json.name("metadata").beginObject();
+        json.name("exportTimestamp").value(LocalDateTime.now().toString());
+        json.name("version").value("1.0");
+        json.name("source").value("Mental Health Assistant");
+        json.name("userId").value(text(userProfile.getUserId()));
+        json.endObject();
         
         // User profile
-        json.append("  \"userProfile\": {\n");
-        json.append("    \"userId\": \"").append(escapeJson(userProfile.getUserId())).append("\",\n");
-        json.append("    \"averageMoodLast7Days\": ").append(userProfile.getAverageMoodLast7Days()).append(",\n");
-        json.append("    \"averageMoodLast30Days\": ").append(userProfile.getAverageMoodLast30Days()).append(",\n");
-        json.append("    \"totalEntriesCount\": ").append(userProfile.getTotalEntriesCount()).append(",\n");
-        json.append("    \"streakDays\": ").append(userProfile.getStreakDays()).append(",\n");
-        
-        // Mood entries
-        json.append("    \"moodEntries\": [\n");
-        List<MoodEntry> moodEntries = userProfile.getMoodEntries();
-        for (int i = 0; i < moodEntries.size(); i++) {
-            MoodEntry entry = moodEntries.get(i);
-            json.append("      {\n");
-            json.append("        \"date\": \"").append(entry.getDate().toString()).append("\",\n");
-            json.append("        \"moodLevel\": ").append(entry.getMoodLevel()).append(",\n");
-            json.append("        \"note\": \"").append(escapeJson(entry.getNote())).append("\"\n");
-            json.append("      }");
-            if (i < moodEntries.size() - 1) json.append(",");
-            json.append("\n");
-        }
-        json.append("    ],\n");
-        
-        // Journal entries
-        json.append("    \"journalEntries\": [\n");
-        List<JournalEntry> journalEntries = userProfile.getJournalEntries();
-        for (int i = 0; i < journalEntries.size(); i++) {
-            JournalEntry entry = journalEntries.get(i);
-            json.append("      {\n");
-            json.append("        \"date\": \"").append(entry.getDate().toString()).append("\",\n");
-            json.append("        \"content\": \"").append(escapeJson(entry.getContent())).append("\",\n");
-            json.append("        \"sentimentScore\": ").append(entry.getSentimentScore()).append("\n");
-            json.append("      }");
-            if (i < journalEntries.size() - 1) json.append(",");
-            json.append("\n");
-        }
-        json.append("    ],\n");
-        
-        // Goals
-        json.append("    \"goals\": [\n");
-        List<String> goals = userProfile.getGoals();
-        for (int i = 0; i < goals.size(); i++) {
-            json.append("      \"").append(escapeJson(goals.get(i))).append("\"");
-            if (i < goals.size() - 1) json.append(",");
-            json.append("\n");
-        }
-        json.append("    ],\n");
-        
-        // Reminders
-        json.append("    \"reminders\": [\n");
-        List<String> reminders = userProfile.getReminders();
-        for (int i = 0; i < reminders.size(); i++) {
-            json.append("      \"").append(escapeJson(reminders.get(i))).append("\"");
-            if (i < reminders.size() - 1) json.append(",");
-            json.append("\n");
-        }
-        json.append("    ]\n");
-        json.append("  }");
+        json.name("userProfile");
+        writeProfile(json, userProfile);
         
         // AI Analysis (if available)
         if (aiAnalysis != null) {
-            json.append(",\n");
-            json.append("  \"aiAnalysis\": {\n");
-            json.append("    \"analysisTimestamp\": \"").append(aiAnalysis.getAnalysisTimestamp().toString()).append("\",\n");
-            json.append("    \"overallWellnessScore\": ").append(aiAnalysis.getOverallWellnessScore()).append(",\n");
-            json.append("    \"summary\": \"").append(escapeJson(aiAnalysis.getSummary())).append("\",\n");
+            json.name("aiAnalysis").beginObject();
+            json.name("analysisTimestamp").value(aiAnalysis.getAnalysisTimestamp().toString());
+            json.name("overallWellnessScore").value(aiAnalysis.getOverallWellnessScore());
+            json.name("summary").value(text(aiAnalysis.getSummary()));
             
             // Mood analysis
             if (aiAnalysis.getMoodAnalysis() != null) {
                 MoodAnalysisResult moodAnalysis = aiAnalysis.getMoodAnalysis();
-                json.append("    \"moodAnalysis\": {\n");
-                json.append("      \"averageMood\": ").append(moodAnalysis.getAverageMood()).append(",\n");
-                json.append("      \"trendSlope\": ").append(moodAnalysis.getTrendSlope()).append(",\n");
-                json.append("      \"volatilityScore\": ").append(moodAnalysis.getVolatilityScore()).append(",\n");
-                json.append("      \"moodVariance\": ").append(moodAnalysis.getMoodVariance()).append("\n");
-                json.append("    },\n");
+                json.name("moodAnalysis").beginObject();
+                json.name("averageMood").value(moodAnalysis.getAverageMood());
+                json.name("trendSlope").value(moodAnalysis.getTrendSlope());
+                json.name("volatilityScore").value(moodAnalysis.getVolatilityScore());
+                json.name("moodVariance").value(moodAnalysis.getMoodVariance());
+                json.endObject();
             }
             
             // Recommendations
-            json.append("    \"recommendations\": [\n");
+            json.name("recommendations").beginArray();
             if (aiAnalysis.getRecommendations() != null) {
-                List<Recommendation> recommendations = aiAnalysis.getRecommendations();
-                for (int i = 0; i < recommendations.size(); i++) {
-                    Recommendation rec = recommendations.get(i);
-                    json.append("      {\n");
-                    json.append("        \"type\": \"").append(escapeJson(rec.getType())).append("\",\n");
-                    json.append("        \"title\": \"").append(escapeJson(rec.getTitle())).append("\",\n");
-                    json.append("        \"description\": \"").append(escapeJson(rec.getDescription())).append("\",\n");
-                    json.append("        \"priority\": \"").append(escapeJson(rec.getPriority())).append("\"\n");
-                    json.append("      }");
-                    if (i < recommendations.size() - 1) json.append(",");
-                    json.append("\n");
+                for (Recommendation rec : aiAnalysis.getRecommendations()) {
+                    json.beginObject();
+                    json.name("type").value(text(rec.getType()));
+                    json.name("title").value(text(rec.getTitle()));
+                    json.name("description").value(text(rec.getDescription()));
+                    json.name("priority").value(text(rec.getPriority()));
+                    json.endObject();
                 }
             }
-            json.append("    ],\n");
+            json.endArray();
             
             // Prediction
             if (aiAnalysis.getPrediction() != null) {
                 MoodPrediction prediction = aiAnalysis.getPrediction();
-                json.append("    \"prediction\": {\n");
-                json.append("      \"predictedMood\": ").append(prediction.getPredictedMood()).append(",\n");
-                json.append("      \"confidence\": ").append(prediction.getConfidence()).append(",\n");
-                json.append("      \"timeframe\": \"").append(escapeJson(prediction.getTimeframe())).append("\",\n");
-                json.append("      \"trend\": \"").append(escapeJson(prediction.getTrend())).append("\"\n");
-                json.append("    }\n");
+                json.name("prediction").beginObject();
+                json.name("predictedMood").value(prediction.getPredictedMood());
+                json.name("confidence").value(prediction.getConfidence());
+                json.name("timeframe").value(text(prediction.getTimeframe()));
+                json.name("trend").value(text(prediction.getTrend()));
+                json.endObject();
             }
             
-            json.append("  }\n");
+            json.endObject();
+        }
+        
+        json.endObject();
+    }
+    
+    /**
+     * Writes the data of a profile as an object
+     */
+    static void writeProfile(JsonWriter json, UserProfile userProfile) throws IOException {
+        json.beginObject();
+        json.name("userId").value(text(userProfile.getUserId()));
+        json.name("averageMoodLast7Days").value(userProfile.getAverageMoodLast7Days());
+        json.name("averageMoodLast30Days").value(userProfile.getAverageMoodLast30Days());
+        json.name("totalEntriesCount").value(userProfile.getTotalEntriesCount());
+        json.name("streakDays").value(userProfile.getStreakDays());
+        
+        // Mood entries
+        json.name("moodEntries").beginArray();
+        for (MoodEntry entry : userProfile.getMoodEntries()) {
+            json.beginObject();
+            json.name("date").value(entry.getDate().toString());
+            json.name("moodLevel").value(entry.getMoodLevel());
+            json.name("note").value(text(entry.getNote()));
+            json.endObject();
+        }
+        json.endArray();
+        
+        // Journal entries
+        json.name("journalEntries").beginArray();
+        for (JournalEntry entry : userProfile.getJournalEntries()) {
+            json.beginObject();
+            json.name("date").value(entry.getDate().toString());
+            json.name("content").value(text(entry.getContent()));
+            json.name("sentimentScore").value(entry.getSentimentScore());
+            json.endObject();
         }
+        json.endArray();
         
-        json.append("}\n");
+        // Goals
+        json.name("goals").beginArray();
+        for (String goal : userProfile.getGoals()) {
+            json.value(text(goal));
+        }
+        json.endArray();
         
-        // Write to file
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(json.toString());
+        // Reminders
+        json.name("reminders").beginArray();
+        for (String reminder : userProfile.getReminders()) {
+            json.value(text(reminder));
         }
+        json.endArray();
+        json.endObject();
     }
     
     /**
-     * Escapes special characters for JSON
+     * Missing texts are exported as empty strings
      */
-    private static String escapeJson(String input) {
-        if (input == null) return "";
-        
-        return input.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
+    private static String text(String input) {
+        return input == null ? "" : input;
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports the documents written by JsonExporter into a UserDataManager.
+ *
+ * The document is streamed with a JsonReader and entries are handed to the manager
+ * in batches as they are parsed, so memory use doesn't depend on the size of the file.
+ * Values the manager derives itself (averages, streak, AI analysis) are skipped.
+ * The exporter writes missing notes and contents as empty strings, which are
+ * imported as missing again.
+ */
+public class JsonImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final UserDataManager dataManager;
+    private final int batchSize;
+
+    private String userId;
+    private final List<MoodEntry> moodBatch = new ArrayList<>();
+    private final List<JournalEntry> journalBatch = new ArrayList<>();
+    private ImportResult result;
+
+    private JsonImporter(UserDataManager dataManager, int batchSize) {
+        this.dataManager = dataManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports an exported file under the user id it was exported with
+     */
+    public static ImportResult importFromJson(String filePath, UserDataManager dataManager) throws IOException {
+        return importFromJson(Path.of(filePath), dataManager, null);
+    }
+
+    /**
+     * Imports an exported file
+     *
+     * @param userId user to import the data for, or null for the user id of the export
+     */
+    public static ImportResult importFromJson(Path file, UserDataManager dataManager, String userId) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFromJson(reader, dataManager, userId, DEFAULT_BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Imports an exported document, saving entries by batches of the given size
+     *
+     * @param userId user to import the data for, or null for the user id of the export
+     */
+    public static ImportResult importFromJson(Reader reader, UserDataManager dataManager, String userId, int batchSize) throws IOException {
+        JsonImporter importer = new JsonImporter(dataManager, batchSize);
+        importer.userId = userId;
+        long start = System.nanoTime();
+        importer.readDocument(new JsonReader(reader));
+        importer.result.elapsedNanos = System.nanoTime() - start;
+        return importer.result;
+    }
+
+    private void readDocument(JsonReader json) throws IOException {
+        result = new ImportResult();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "metadata" -> readMetadata(json);
+                case "userProfile" -> readUserProfile(json);
+                default -> json.skipValue(); // aiAnalysis is recomputed from the entries
+            }
+        }
+        json.endObject();
+        if (json.peek() != JsonReader.Token.END_DOCUMENT) {
+            throw new IOException("Unexpected content after the export");
+        }
+        result.userId = userId;
+    }
+
+    private void readMetadata(JsonReader json) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("userId") && userId == null) {
+                userId = json.nextString();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private void readUserProfile(JsonReader json) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "userId" -> {
+                    String exportedUserId = json.nextString();
+                    if (userId == null) userId = exportedUserId;
+                }
+                case "moodEntries" -> readMoodEntries(json);
+                case "journalEntries" -> readJournalEntries(json);
+                case "goals" -> {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        dataManager.addGoal(requireUserId(), json.nextString());
+                        result.goals++;
+                    }
+                    json.endArray();
+                }
+                case "reminders" -> {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        dataManager.addReminder(requireUserId(), json.nextString());
+                        result.reminders++;
+                    }
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private void readMoodEntries(JsonReader json) throws IOException {
+        String targetUserId = requireUserId();
+        json.beginArray();
+        while (json.hasNext()) {
+            MoodEntry entry = new MoodEntry();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "date" -> entry.setDate(parseDate(json));
+                    case "moodLevel" -> entry.setMoodLevel(json.nextInt());
+                    case "note" -> entry.setNote(nonEmpty(json.nextString()));
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            if (entry.getDate() == null) {
+                throw new IOException("Mood entry without a date before character " + json.getCharacterOffset());
+            }
+
+            moodBatch.add(entry);
+            if (moodBatch.size() == batchSize) {
+                dataManager.saveMoodEntries(targetUserId, moodBatch);
+                moodBatch.clear();
+            }
+            result.moodEntries++;
+        }
+        json.endArray();
+        dataManager.saveMoodEntries(targetUserId, moodBatch);
+        moodBatch.clear();
+    }
+
+    private void readJournalEntries(JsonReader json) throws IOException {
+        String targetUserId = requireUserId();
+        json.beginArray();
+        while (json.hasNext()) {
+            JournalEntry entry = new JournalEntry();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "date" -> entry.setDate(parseDate(json));
+                    case "content" -> entry.setContent(nonEmpty(json.nextString()));
+                    case "sentimentScore" -> entry.setSentimentScore(json.nextDouble());
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            if (entry.getDate() == null) {
+                throw new IOException("Journal entry without a date before character " + json.getCharacterOffset());
+            }
+
+            journalBatch.add(entry);
+            if (journalBatch.size() == batchSize) {
+                dataManager.saveJournalEntries(targetUserId, journalBatch);
+                journalBatch.clear();
+            }
+            result.journalEntries++;
+        }
+        json.endArray();
+        dataManager.saveJournalEntries(targetUserId, journalBatch);
+        journalBatch.clear();
+    }
+
+    /**
+     * The exporter writes the user id before the entries; it can't be guessed afterwards
+     * without holding the entries in memory
+     */
+    private String requireUserId() throws IOException {
+        if (userId == null) {
+            throw new IOException("The export has no user id before its entries");
+        }
+        return userId;
+    }
+
+    private static LocalDate parseDate(JsonReader json) throws IOException {
+        String text = json.nextString();
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IOException("Invalid date " + text + " before character " + json.getCharacterOffset(), e);
+        }
+    }
+
+    private static String nonEmpty(String text) {
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Counts of an import and its duration
+     */
+    public static class ImportResult {
+        private String userId;
+        private int moodEntries;
+        private int journalEntries;
+        private int goals;
+        private int reminders;
+        private long elapsedNanos;
+
+        public String getUserId() { return userId; }
+        public int getMoodEntries() { return moodEntries; }
+        public int getJournalEntries() { return journalEntries; }
+        public int getGoals() { return goals; }
+        public int getReminders() { return reminders; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getEntriesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : (moodEntries + journalEntries) * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ImportResult{userId=%s, moodEntries=%d, journalEntries=%d, goals=%d, reminders=%d, %.1f ms, %.0f entries/s}",
+                    userId, moodEntries, journalEntries, goals, reminders, elapsedNanos / 1_000_000.0, getEntriesPerSecond());
+        }
+    }
+}
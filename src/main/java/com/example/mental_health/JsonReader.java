@@ -0,0 +1,377 @@
+package com.example.mental_health;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON reader (without external dependencies).
+ *
+ * Values are pulled one token at a time from a fixed-size buffer, so a document of
+ * any size is read in constant memory; only the string or number being read is held.
+ * Skipped values are never materialized. The reader is lenient about what
+ * JsonExporter may write outside of strict JSON: NaN and infinite numbers, and raw
+ * control characters inside strings.
+ */
+public class JsonReader implements Closeable {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    // What the innermost scope expects next
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;   // a name was read, its value comes next
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int position;
+    private int limit;
+    private long bufferOffset; // characters consumed before the buffer's start
+
+    private int[] scopes = new int[32];
+    private int depth = 1;
+
+    private Token peeked;
+    private final StringBuilder literal = new StringBuilder(); // number or keyword of the peeked token
+
+    public JsonReader(Reader in) {
+        this.in = in;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the type of the next token without consuming it
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) return peeked;
+
+        int c;
+        switch (scopes[depth - 1]) {
+            case EMPTY_DOCUMENT -> {
+                scopes[depth - 1] = NONEMPTY_DOCUMENT;
+                if (fill(1) && buffer[position] == '\uFEFF') position++;
+            }
+            case NONEMPTY_DOCUMENT -> {
+                if (nextNonWhitespace() == -1) return peeked = Token.END_DOCUMENT;
+                throw syntaxError("Unexpected content after the document");
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                boolean empty = scopes[depth - 1] == EMPTY_OBJECT;
+                scopes[depth - 1] = DANGLING_NAME;
+                c = nextNonWhitespace();
+                if (c == '}') return peeked = Token.END_OBJECT;
+                if (!empty) {
+                    if (c != ',') throw syntaxError("Expected ',' or '}'");
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') throw syntaxError("Expected a name");
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                scopes[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') throw syntaxError("Expected ':'");
+            }
+            case EMPTY_ARRAY -> {
+                scopes[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                position--;
+            }
+            case NONEMPTY_ARRAY -> {
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                if (c != ',') throw syntaxError("Expected ',' or ']'");
+            }
+            default -> throw new IllegalStateException("Corrupted scope stack");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{': return peeked = Token.BEGIN_OBJECT;
+            case '[': return peeked = Token.BEGIN_ARRAY;
+            case '"': return peeked = Token.STRING;
+            case -1: throw syntaxError("Unexpected end of document");
+            default:
+                position--;
+                return peeked = readLiteral();
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString(new StringBuilder()).toString();
+    }
+
+    /**
+     * Returns the next string, or the text of the next number or boolean
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        peeked = null;
+        switch (token) {
+            case STRING: return readString(new StringBuilder()).toString();
+            case NUMBER, BOOLEAN: return literal.toString();
+            default: throw syntaxError("Expected a string but was " + token);
+        }
+    }
+
+    /**
+     * Returns the next number (NaN and infinities included), also accepted as a string
+     */
+    public double nextDouble() throws IOException {
+        Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        String text = nextString();
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + text);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        if (peek() == Token.NUMBER) {
+            // Plain integers, the usual case, are parsed without creating a string
+            int length = literal.length();
+            int start = length > 0 && literal.charAt(0) == '-' ? 1 : 0;
+            if (length > start && length - start <= 9) {
+                int value = 0;
+                int i = start;
+                while (i < length && literal.charAt(i) >= '0' && literal.charAt(i) <= '9') {
+                    value = value * 10 + (literal.charAt(i++) - '0');
+                }
+                if (i == length) {
+                    peeked = null;
+                    return start == 1 ? -value : value;
+                }
+            }
+        }
+        double value = nextDouble();
+        if (value != (int) value) {
+            throw syntaxError("Expected an integer but was " + value);
+        }
+        return (int) value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return literal.charAt(0) == 't';
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Skips the next value, or the next name and its value, without keeping their content
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        while (true) {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT -> { push(EMPTY_OBJECT); nesting++; }
+                case BEGIN_ARRAY -> { push(EMPTY_ARRAY); nesting++; }
+                case END_OBJECT, END_ARRAY -> {
+                    if (nesting == 0) throw syntaxError("Expected a value but was " + token);
+                    depth--;
+                    nesting--;
+                }
+                case NAME -> {
+                    // The value follows
+                    skipString();
+                    continue;
+                }
+                case STRING -> skipString();
+                case END_DOCUMENT -> throw syntaxError("Unexpected end of document");
+                default -> { }
+            }
+            if (nesting == 0) return;
+        }
+    }
+
+    /**
+     * Number of characters consumed so far, for progress reporting and error messages
+     */
+    public long getCharacterOffset() {
+        return bufferOffset + position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    /**
+     * Reads a number, true, false or null (and the NaN or Infinity of Java's Double.toString)
+     */
+    private Token readLiteral() throws IOException {
+        literal.setLength(0);
+        while (fill(1)) {
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '+' || c == '.') {
+                literal.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (literal.isEmpty()) {
+            throw syntaxError("Unexpected character '" + buffer[position] + "'");
+        }
+        String keyword = literal.length() <= 5 ? literal.toString() : "";
+        switch (keyword) {
+            case "true", "false": return Token.BOOLEAN;
+            case "null": return Token.NULL;
+            default: return Token.NUMBER;
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed
+     */
+    private StringBuilder readString(StringBuilder out) throws IOException {
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"') {
+                    out.append(buffer, start, position - start);
+                    position++;
+                    return out;
+                }
+                if (c == '\\') {
+                    out.append(buffer, start, position - start);
+                    position++;
+                    out.append(readEscape());
+                    start = position;
+                    continue;
+                }
+                position++;
+            }
+            out.append(buffer, start, position - start);
+            if (!fill(1)) throw syntaxError("Unterminated string");
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            while (position < limit) {
+                char c = buffer[position++];
+                if (c == '"') return;
+                if (c == '\\') readEscape();
+            }
+            if (!fill(1)) throw syntaxError("Unterminated string");
+        }
+    }
+
+    private char readEscape() throws IOException {
+        if (!fill(1)) throw syntaxError("Unterminated escape sequence");
+        char c = buffer[position++];
+        switch (c) {
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case '"', '\\', '/': return c;
+            case 'u':
+                if (!fill(4)) throw syntaxError("Unterminated escape sequence");
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(buffer[position++], 16);
+                    if (digit < 0) throw syntaxError("Invalid unicode escape");
+                    value = value << 4 | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape sequence \\" + c);
+        }
+    }
+
+    /**
+     * Returns the next character that is not whitespace and consumes it, or -1 at the end of input
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (position < limit || fill(1)) {
+            char c = buffer[position++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+        }
+        return -1;
+    }
+
+    /**
+     * Makes at least the given number of characters available from the position
+     *
+     * @return false if the input ends before
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (limit - position >= minimum) return true;
+        bufferOffset += position;
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < minimum) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) return false;
+            limit += read;
+        }
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + getCharacterOffset());
+    }
+}
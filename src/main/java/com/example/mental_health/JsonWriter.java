@@ -0,0 +1,307 @@
+package com.example.mental_health;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer (without external dependencies).
+ *
+ * Values are encoded as UTF-8 straight into a fixed-size buffer, which is written to
+ * the channel whenever it fills up, so a document of any size is written in constant
+ * memory. Strings are escaped and encoded in a single pass over their characters,
+ * characters below 128 being looked up in a table of escape sequences. Documents are
+ * indented by two spaces per level, one member or element per line; in JSON Lines mode,
+ * any number of objects or arrays are written without indentation, one per line.
+ */
+public class JsonWriter implements Closeable {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // Characters of a string encoded at a time: each takes at most 6 bytes, as an escaped control character
+    private static final int CHUNK_CHARS = BUFFER_BYTES / 8;
+
+    // Escape sequence of each ASCII character, null for characters written as they are
+    private static final byte[][] ESCAPES = new byte[128][];
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c).getBytes(StandardCharsets.US_ASCII);
+        }
+        ESCAPES['"'] = "\\\"".getBytes(StandardCharsets.US_ASCII);
+        ESCAPES['\\'] = "\\\\".getBytes(StandardCharsets.US_ASCII);
+        ESCAPES['\b'] = "\\b".getBytes(StandardCharsets.US_ASCII);
+        ESCAPES['\f'] = "\\f".getBytes(StandardCharsets.US_ASCII);
+        ESCAPES['\n'] = "\\n".getBytes(StandardCharsets.US_ASCII);
+        ESCAPES['\r'] = "\\r".getBytes(StandardCharsets.US_ASCII);
+        ESCAPES['\t'] = "\\t".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // What the innermost scope holds so far
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;   // a name was written, its value comes next
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final WritableByteChannel channel;
+    private final boolean lines;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int count;
+    private long bytesWritten;   // flushed to the channel
+
+    private int[] scopes = new int[32];
+    private int depth = 1;
+
+    public JsonWriter(WritableByteChannel channel) {
+        this(channel, false);
+    }
+
+    /**
+     * @param lines whether to write JSON Lines: top-level objects or arrays on a line each, without indentation
+     */
+    public JsonWriter(WritableByteChannel channel, boolean lines) {
+        this.channel = channel;
+        this.lines = lines;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Opens a writer creating or replacing a file
+     */
+    public static JsonWriter open(Path file) throws IOException {
+        return new JsonWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        writeByte('{');
+        push(EMPTY_OBJECT);
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return end(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        writeByte('[');
+        push(EMPTY_ARRAY);
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return end(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object
+     */
+    public JsonWriter name(String name) throws IOException {
+        int scope = scopes[depth - 1];
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("Name outside of an object or after another name");
+        }
+        if (scope == NONEMPTY_OBJECT) writeByte(',');
+        newline();
+        writeString(name);
+        writeByte(':');
+        if (!lines) writeByte(' ');
+        scopes[depth - 1] = DANGLING_NAME;
+        return this;
+    }
+
+    /**
+     * Writes a string, or null
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a number; NaN and infinite values are written as Java prints them,
+     * which JsonReader reads back but strict parsers reject
+     */
+    public JsonWriter value(double value) throws IOException {
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        writeAscii("null");
+        return this;
+    }
+
+    /**
+     * Number of bytes written so far, including those still buffered
+     */
+    public long getBytesWritten() {
+        return bytesWritten + count;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel
+     */
+    public void flush() throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytesWritten += count;
+        count = 0;
+    }
+
+    /**
+     * Flushes and closes the channel
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    private JsonWriter end(int emptyScope, int nonEmptyScope, char bracket) throws IOException {
+        int scope = scopes[depth - 1];
+        if (scope != emptyScope && scope != nonEmptyScope) {
+            throw new IllegalStateException("Nesting problem: '" + bracket + "' doesn't close the current scope");
+        }
+        depth--;
+        newline();
+        writeByte(bracket);
+        if (depth == 1) {
+            // Documents, and each value of JSON Lines, end with a line break
+            writeByte('\n');
+        }
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (scopes[depth - 1]) {
+            case EMPTY_DOCUMENT -> scopes[depth - 1] = NONEMPTY_DOCUMENT;
+            case DANGLING_NAME -> scopes[depth - 1] = NONEMPTY_OBJECT;
+            case EMPTY_ARRAY -> {
+                scopes[depth - 1] = NONEMPTY_ARRAY;
+                newline();
+            }
+            case NONEMPTY_ARRAY -> {
+                writeByte(',');
+                newline();
+            }
+            case NONEMPTY_DOCUMENT -> {
+                if (!lines) throw new IllegalStateException("A document holds a single value");
+            }
+            default -> throw new IllegalStateException("Value in an object without a name");
+        }
+    }
+
+    private void newline() throws IOException {
+        if (lines) return;
+        int indent = 2 * (depth - 1);
+        ensure(1 + indent);
+        buffer[count++] = '\n';
+        for (int i = 0; i < indent; i++) {
+            buffer[count++] = ' ';
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        buffer[count++] = (byte) c;
+    }
+
+    private void writeAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[count++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a quoted string, escaping and encoding it to UTF-8 in one pass
+     */
+    private void writeString(String value) throws IOException {
+        writeByte('"');
+        int length = value.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(length, start + CHUNK_CHARS);
+            // A surrogate pair is encoded at once
+            if (end < length && Character.isHighSurrogate(value.charAt(end - 1))) end++;
+            ensure(6 * (end - start));
+            byte[] buffer = this.buffer;
+            int count = this.count;
+            for (int i = start; i < end; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    byte[] escape = ESCAPES[c];
+                    if (escape == null) {
+                        buffer[count++] = (byte) c;
+                    } else {
+                        for (byte b : escape) {
+                            buffer[count++] = b;
+                        }
+                    }
+                } else if (c < 0x800) {
+                    buffer[count++] = (byte) (0xC0 | c >> 6);
+                    buffer[count++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+                    buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    // Lone surrogates can't be encoded and become U+FFFD
+                    if (Character.isSurrogate(c)) c = '\uFFFD';
+                    buffer[count++] = (byte) (0xE0 | c >> 12);
+                    buffer[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buffer[count++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            this.count = count;
+            start = end;
+        }
+        writeByte('"');
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (count + bytes > buffer.length) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.mental_health;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton finding many keywords, each of one or more whole words,
+ * in a single pass over a text.
+ *
+ * Keywords and texts are compared after folding: lowercase, without accents, and with
+ * every run of characters other than letters and digits read as one space. Keywords are
+ * stored between spaces, so they only match whole words. The caller drives the scan,
+ * feeding folded characters to {@link #next(int, char)}; the keyword found when a state
+ * is reached is given by {@link #keywordAt(int)}, and shorter keywords ending at the same
+ * place by following {@link #outputLink(int)}.
+ *
+ * Transitions are stored as sorted edge arrays rather than per-state tables, so the
+ * automaton of tens of thousands of keywords takes a few megabytes.
+ */
+public final class KeywordMatcher {
+
+    public static final int ROOT = 0;
+
+    private static final char[] FOLDED = new char[0x250]; // Latin-1 and Latin Extended-A/B
+    private static final boolean[] WORD_CHARS = new boolean[FOLDED.length];
+    private static final int DENSE_ROOT = 128;
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLDED[c] = Character.toLowerCase(decomposed.charAt(0));
+            WORD_CHARS[c] = Character.isLetterOrDigit(FOLDED[c]);
+        }
+    }
+
+    private final int[] edgeStart;   // edges of state s are edgeStart[s] to edgeStart[s + 1], sorted by label
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+    private final int[] rootNext = new int[DENSE_ROOT];
+    private final int[] failure;
+    private final int[] keywordAt;   // keyword ending at the state, or -1
+    private final int[] outputLink;  // next state of the failure chain where a keyword ends, or -1
+    private final int keywordCount;
+
+    /**
+     * Builds the automaton of keywords, identified by their index in the list.
+     * Keywords equal once folded keep the index of the first one.
+     */
+    public KeywordMatcher(List<String> keywords) {
+        this.keywordCount = keywords.size();
+
+        // Trie, with edges keyed by source state and label
+        Map<Long, Integer> edges = new HashMap<>();
+        int[] keywordOf = new int[16];
+        int stateCount = 1;
+        keywordOf[ROOT] = -1;
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = " " + normalize(keywords.get(k)) + " ";
+            if (keyword.length() == 2) continue;
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                long key = (long) state << 16 | keyword.charAt(i);
+                Integer target = edges.get(key);
+                if (target == null) {
+                    if (stateCount == keywordOf.length) {
+                        keywordOf = Arrays.copyOf(keywordOf, stateCount * 2);
+                    }
+                    keywordOf[stateCount] = -1;
+                    target = stateCount++;
+                    edges.put(key, target);
+                }
+                state = target;
+            }
+            if (keywordOf[state] < 0) {
+                keywordOf[state] = k;
+            }
+        }
+
+        // Compacts the edges of each state into sorted ranges
+        edgeStart = new int[stateCount + 1];
+        edgeLabels = new char[edges.size()];
+        edgeTargets = new int[edges.size()];
+        for (long key : edges.keySet()) {
+            edgeStart[(int) (key >>> 16) + 1]++;
+        }
+        for (int s = 0; s < stateCount; s++) {
+            edgeStart[s + 1] += edgeStart[s];
+        }
+        int[] fill = Arrays.copyOf(edgeStart, stateCount);
+        for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+            int source = (int) (edge.getKey() >>> 16);
+            char label = (char) (edge.getKey() & 0xFFFF);
+            // Insertion into the sorted range
+            int i = fill[source]++;
+            while (i > edgeStart[source] && edgeLabels[i - 1] > label) {
+                edgeLabels[i] = edgeLabels[i - 1];
+                edgeTargets[i] = edgeTargets[i - 1];
+                i--;
+            }
+            edgeLabels[i] = label;
+            edgeTargets[i] = edge.getValue();
+        }
+        for (char c = 0; c < DENSE_ROOT; c++) {
+            rootNext[c] = Math.max(ROOT, transition(ROOT, c));
+        }
+
+        // Failure and output links, breadth first so shallower states are done first
+        keywordAt = Arrays.copyOf(keywordOf, stateCount);
+        failure = new int[stateCount];
+        outputLink = new int[stateCount];
+        outputLink[ROOT] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            failure[edgeTargets[e]] = ROOT;
+            outputLink[edgeTargets[e]] = -1;
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int target = edgeTargets[e];
+                int fallback = next(failure[state], edgeLabels[e]);
+                failure[target] = fallback;
+                outputLink[target] = keywordAt[fallback] >= 0 ? fallback : outputLink[fallback];
+                queue.add(target);
+            }
+        }
+    }
+
+    /**
+     * The state reached from a state by a folded character
+     */
+    public int next(int state, char c) {
+        while (true) {
+            if (state == ROOT) {
+                return c < DENSE_ROOT ? rootNext[c] : Math.max(ROOT, transition(ROOT, c));
+            }
+            int target = transition(state, c);
+            if (target >= 0) return target;
+            state = failure[state];
+        }
+    }
+
+    /**
+     * The longest keyword ending at a state, or -1
+     */
+    public int keywordAt(int state) {
+        return keywordAt[state];
+    }
+
+    /**
+     * The next state with a shorter keyword ending at the same place, or -1
+     */
+    public int outputLink(int state) {
+        return outputLink[state];
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    public int getStateCount() {
+        return failure.length;
+    }
+
+    private int transition(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char label = edgeLabels[middle];
+            if (label < c) {
+                low = middle + 1;
+            } else if (label > c) {
+                high = middle - 1;
+            } else {
+                return edgeTargets[middle];
+            }
+        }
+        return -1;
+    }
+
+    // Folding
+
+    /**
+     * Lowercase character without accent; characters other than letters and digits
+     * are returned as they are and count as separators
+     */
+    public static char fold(char c) {
+        return c < FOLDED.length ? FOLDED[c] : Character.toLowerCase(c);
+    }
+
+    public static boolean isWordChar(char folded) {
+        return folded < WORD_CHARS.length ? WORD_CHARS[folded] : Character.isLetterOrDigit(folded);
+    }
+
+    /**
+     * Folds a keyword, its words separated by single spaces
+     */
+    public static String normalize(String keyword) {
+        StringBuilder normalized = new StringBuilder(keyword.length());
+        boolean separator = false;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = fold(keyword.charAt(i));
+            if (isWordChar(c)) {
+                if (separator && normalized.length() > 0) normalized.append(' ');
+                normalized.append(c);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+}
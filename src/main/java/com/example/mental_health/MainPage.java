@@ -52,6 +52,10 @@ public class MainPage extends Application {
     private Button saveJournalButton;
     private ComboBox<String> journalDatePicker;
     private Button loadJournalButton;
+    private TextField journalSearchField;
+    private Button searchJournalButton;
+    private ListView<String> journalSearchResults;
+    private List<TextSearchHit> journalSearchHits = new ArrayList<>();
 
     // Onglet Objectifs
     private ListView<String> goalsList;
@@ -266,6 +270,27 @@ public class MainPage extends Application {
 
         dateSelection.getChildren().addAll(dateSelectionLabel, journalDatePicker, loadJournalButton);
 
+        // Recherche dans le journal et les notes d'humeur
+        HBox searchBox = new HBox(10);
+        searchBox.setAlignment(Pos.CENTER_LEFT);
+        searchBox.getStyleClass().add("info-box");
+
+        Label searchLabel = new Label("Rechercher");
+        searchLabel.getStyleClass().add("text-bold");
+
+        journalSearchField = new TextField();
+        journalSearchField.setPromptText("Mots ou \"expression exacte\"...");
+        journalSearchField.setPrefWidth(300);
+
+        searchJournalButton = new Button("Rechercher");
+        searchJournalButton.getStyleClass().addAll("button", "button-secondary");
+
+        searchBox.getChildren().addAll(searchLabel, journalSearchField, searchJournalButton);
+
+        journalSearchResults = new ListView<>();
+        journalSearchResults.setPrefHeight(120);
+        journalSearchResults.setPlaceholder(new Label("Aucun résultat"));
+
         // Zone de texte principale
         Label textLabel = new Label("Écriture libre - " + LocalDate.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
         textLabel.getStyleClass().addAll("title-secondary", "margin-top-20");
@@ -282,8 +307,12 @@ public class MainPage extends Application {
         // Listeners
         loadJournalButton.setOnAction(e -> loadJournalEntry());
         saveJournalButton.setOnAction(e -> saveJournalEntry());
+        searchJournalButton.setOnAction(e -> searchJournal());
+        journalSearchField.setOnAction(e -> searchJournal());
+        journalSearchResults.setOnMouseClicked(e -> openJournalSearchResult());
 
-        content.getChildren().addAll(titleLabel, dateSelection, textLabel, journalTextArea, saveJournalButton);
+        content.getChildren().addAll(titleLabel, dateSelection, searchBox, journalSearchResults,
+                textLabel, journalTextArea, saveJournalButton);
 
         tab.setContent(content);
         return tab;
@@ -790,15 +819,15 @@ public class MainPage extends Application {
             updateTrendStyle(lastAnalysisResult.getMoodAnalysis().getTrendSlope());
 
             // Update sentiment analysis
-            String sentimentAnalysis = aiService.analyzeJournalSentiment(userProfile.getJournalEntries());
+            String sentimentAnalysis = aiService.analyzeJournalSentiment(userProfile);
             sentimentAnalysisLabel.setText(sentimentAnalysis);
 
             // Update temporal patterns
-            String temporalAnalysis = aiService.analyzeTemporalPatterns(userProfile.getMoodEntries());
+            String temporalAnalysis = aiService.analyzeTemporalPatterns(userProfile);
             temporalPatternsLabel.setText(temporalAnalysis);
 
             // Update weekly patterns chart
-            updateWeeklyPatternsChart(lastAnalysisResult.getMoodAnalysis());
+            updateWeeklyPatternsChart(userProfile.getWeekdayMoods());
 
             // Update recommendations
             StringBuilder recommendationsText = new StringBuilder();
@@ -992,7 +1021,52 @@ public class MainPage extends Application {
     private void loadJournalEntry() {
         String selectedDate = journalDatePicker.getValue();
         if (selectedDate != null) {
-            journalTextArea.setText("Contenu du journal pour le " + selectedDate);
+            loadJournalEntry(LocalDate.parse(selectedDate, DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+        }
+    }
+
+    private void loadJournalEntry(LocalDate date) {
+        if (dataManager == null) {
+            showAlert("Attention", "Les données ne sont pas disponibles.", Alert.AlertType.WARNING);
+            return;
+        }
+        List<JournalEntry> entries = dataManager.getJournalEntriesInRange(currentUserId, date, date);
+        if (entries.isEmpty()) {
+            showAlert("Information", "Aucune entrée de journal pour le "
+                    + date.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")), Alert.AlertType.INFORMATION);
+            return;
+        }
+        journalTextArea.setText(entries.get(0).getContent());
+    }
+
+    private void searchJournal() {
+        String query = journalSearchField.getText().trim();
+        journalSearchResults.getItems().clear();
+        journalSearchHits.clear();
+        if (query.isEmpty() || dataManager == null) {
+            return;
+        }
+
+        journalSearchHits.addAll(dataManager.searchText(currentUserId, new TextQuery(query), 50));
+        for (TextSearchHit hit : journalSearchHits) {
+            journalSearchResults.getItems().add(hit.getDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))
+                    + " - " + hit.getSource().getLabel() + " : " + hit.getSnippet());
+        }
+    }
+
+    private void openJournalSearchResult() {
+        int selected = journalSearchResults.getSelectionModel().getSelectedIndex();
+        if (selected < 0 || selected >= journalSearchHits.size()) {
+            return;
+        }
+        TextSearchHit hit = journalSearchHits.get(selected);
+        if (hit.getSource() == TextSearchHit.Source.JOURNAL) {
+            loadJournalEntry(hit.getDate());
+        } else {
+            List<MoodEntry> moods = dataManager.getMoodEntriesInRange(currentUserId, hit.getDate(), hit.getDate());
+            String note = moods.isEmpty() ? hit.getSnippet() : moods.get(0).getNote();
+            showAlert(hit.getSource().getLabel() + " du " + hit.getDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")),
+                    note, Alert.AlertType.INFORMATION);
         }
     }
 
@@ -1018,11 +1092,38 @@ public class MainPage extends Application {
 
     private void refreshStatistics() {
         String period = periodComboBox.getValue();
+        int periodDays = switch (period) {
+            case "14 derniers jours" -> 14;
+            case "30 derniers jours" -> 30;
+            case "3 derniers mois" -> 90;
+            default -> 7;
+        };
+
+        String averageMood = "-";
+        String frequentMood = "-";
+        String missedDays = "-";
+        if (dataManager != null) {
+            LocalDate today = LocalDate.now();
+            LocalDate startDate = today.minusDays(periodDays - 1);
+            MoodRangeIndex.Aggregate range = dataManager.getMoodStatisticsInRange(currentUserId, startDate, today);
+            if (range.getCount() > 0) {
+                averageMood = String.format("%.1f", range.getMean(3.0));
+            }
+            missedDays = String.valueOf(dataManager.getMissedDays(currentUserId, startDate, today));
 
-        // Données fictives pour l'exemple
-        String averageMood = "4.3";
-        String frequentMood = "Très heureux";
-        String missedDays = "1";
+            int[] levelCounts = new int[6];
+            for (MoodEntry entry : dataManager.getMoodEntriesInRange(currentUserId, startDate, today)) {
+                levelCounts[entry.getMoodLevel()]++;
+            }
+            String[] moodTexts = {"Très triste", "Triste", "Neutre", "Heureux", "Très heureux"};
+            int mostFrequent = 0;
+            for (int level = 1; level <= 5; level++) {
+                if (levelCounts[level] > levelCounts[mostFrequent]) mostFrequent = level;
+            }
+            if (mostFrequent > 0) {
+                frequentMood = moodTexts[mostFrequent - 1];
+            }
+        }
 
         // Mise à jour du contenu des cercles
         metricsBox.getChildren().clear();
@@ -1101,24 +1202,19 @@ public class MainPage extends Application {
         }
     }
 
-    private void updateWeeklyPatternsChart(MoodAnalysisResult moodAnalysis) {
+    private void updateWeeklyPatternsChart(WeekdayMoodAggregates weekdayMoods) {
         weeklyPatternsChart.getData().clear();
 
-        if (moodAnalysis.getWeeklyPatterns() != null) {
-            XYChart.Series<String, Number> series = new XYChart.Series<>();
-            series.setName("Humeur moyenne");
-
-            String[] daysOrder = {"Lundi", "Mardi", "Mercredi", "Jeudi", "Vendredi", "Samedi", "Dimanche"};
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        series.setName("Humeur moyenne");
 
-            for (String day : daysOrder) {
-                Double avgMood = moodAnalysis.getWeeklyPatterns().get(day);
-                if (avgMood != null) {
-                    series.getData().add(new XYChart.Data<>(day, avgMood));
-                }
+        for (int day = 0; day < 7; day++) {
+            if (weekdayMoods.getCount(day) > 0) {
+                series.getData().add(new XYChart.Data<>(WeekdayMoodAggregates.getDayName(day), weekdayMoods.getMean(day, 3.0)));
             }
-
-            weeklyPatternsChart.getData().add(series);
         }
+
+        weeklyPatternsChart.getData().add(series);
     }
 
     private void updateWeeklyPatternsChartSimplified() {
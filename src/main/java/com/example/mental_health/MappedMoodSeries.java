@@ -0,0 +1,351 @@
+package com.example.mental_health;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * Per-user mood time series stored in memory-mapped files.
+ *
+ * The slot file holds one 8-byte slot per epoch day starting at a base day:
+ * the mood level (0 when the day has no entry) followed by an offset into the
+ * notes file, where notes are appended as length-prefixed UTF-8. Readers walk
+ * the mapped slots directly, so long histories live in the OS page cache
+ * instead of the Java heap. Instances are not meant to be shared between threads
+ * without external locking; the public methods are synchronized for safety.
+ */
+public class MappedMoodSeries implements Closeable {
+
+    /**
+     * Receives the entries of a range scan in ascending date order
+     */
+    @FunctionalInterface
+    public interface MoodVisitor {
+        void visit(long epochDay, int moodLevel);
+    }
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MAGIC = 0x4D4F4F44; // "MOOD"
+    private static final int VERSION = 1;
+
+    // Slot file header
+    private static final long MAGIC_OFFSET = 0;
+    private static final long VERSION_OFFSET = 4;
+    private static final long BASE_DAY_OFFSET = 8;
+    private static final long CAPACITY_OFFSET = 16;
+    private static final long COUNT_OFFSET = 20;
+    private static final long MIN_INDEX_OFFSET = 24;
+    private static final long MAX_INDEX_OFFSET = 28;
+    private static final long SLOTS_OFFSET = 32;
+
+    // Slot layout: [mood byte][3 bytes padding][note offset int]
+    private static final int SLOT_BYTES = 8;
+    private static final int NOTE_OFFSET_IN_SLOT = 4;
+
+    // Notes file header: bytes used so far (offset 0 is never a valid note)
+    private static final long NOTES_USED_OFFSET = 0;
+    private static final long NOTES_DATA_OFFSET = 8;
+
+    private static final int INITIAL_SLOTS = 512;
+    private static final int BACKFILL_MARGIN_DAYS = 365;
+    private static final long INITIAL_NOTES_BYTES = 16 * 1024;
+    // Leaves room for the suffixes of the files named after a user within the usual 255 bytes
+    private static final int MAX_FILE_NAME_LENGTH = 200;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final FileChannel slotChannel;
+    private final FileChannel notesChannel;
+    private Arena arena;
+    private MemorySegment slots;
+    private MemorySegment notes;
+    private boolean closed;
+
+    private MappedMoodSeries(FileChannel slotChannel, FileChannel notesChannel) {
+        this.slotChannel = slotChannel;
+        this.notesChannel = notesChannel;
+    }
+
+    /**
+     * Opens (or creates) the series of a user inside the given directory
+     */
+    public static MappedMoodSeries open(Path directory, String userId) throws IOException {
+        Files.createDirectories(directory);
+        String baseName = fileNameFor(userId);
+        FileChannel slotChannel = FileChannel.open(directory.resolve(baseName + ".moods"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel notesChannel = FileChannel.open(directory.resolve(baseName + ".notes"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        MappedMoodSeries series = new MappedMoodSeries(slotChannel, notesChannel);
+        try {
+            series.mapExisting();
+        } catch (IOException | RuntimeException e) {
+            series.close();
+            throw e;
+        }
+        return series;
+    }
+
+    /**
+     * Stores (or replaces) the mood of the entry's day
+     */
+    public synchronized void put(MoodEntry entry) throws IOException {
+        long day = entry.getDate().toEpochDay();
+        int index = ensureSlot(day);
+        long slot = SLOTS_OFFSET + (long) index * SLOT_BYTES;
+        byte previousMood = slots.get(ValueLayout.JAVA_BYTE, slot);
+
+        if (previousMood == 0) {
+            slots.set(INT, COUNT_OFFSET, size() + 1);
+        } else if (previousMood == entry.getMoodLevel()
+                && Objects.equals(readNote(slots.get(INT, slot + NOTE_OFFSET_IN_SLOT)), entry.getNote())) {
+            return; // Unchanged (e.g. replayed from the write-ahead log), don't grow the notes file
+        }
+        slots.set(ValueLayout.JAVA_BYTE, slot, (byte) entry.getMoodLevel());
+        slots.set(INT, slot + NOTE_OFFSET_IN_SLOT, appendNote(entry.getNote()));
+
+        if (index < slots.get(INT, MIN_INDEX_OFFSET)) slots.set(INT, MIN_INDEX_OFFSET, index);
+        if (index > slots.get(INT, MAX_INDEX_OFFSET)) slots.set(INT, MAX_INDEX_OFFSET, index);
+    }
+
+    /**
+     * Returns the mood level stored for a day, or 0 when the day has no entry
+     */
+    public synchronized int getMoodLevel(LocalDate date) {
+        if (size() == 0) return 0;
+        long index = date.toEpochDay() - baseDay();
+        if (index < 0 || index >= capacity()) return 0;
+        return slots.get(ValueLayout.JAVA_BYTE, SLOTS_OFFSET + index * SLOT_BYTES);
+    }
+
+    /**
+     * Returns the note stored for a day, or null
+     */
+    public synchronized String getNote(LocalDate date) {
+        if (size() == 0) return null;
+        long index = date.toEpochDay() - baseDay();
+        if (index < 0 || index >= capacity()) return null;
+        long slot = SLOTS_OFFSET + index * SLOT_BYTES;
+        if (slots.get(ValueLayout.JAVA_BYTE, slot) == 0) return null;
+        return readNote(slots.get(INT, slot + NOTE_OFFSET_IN_SLOT));
+    }
+
+    /**
+     * Visits every entry between start and end (inclusive) in ascending date order
+     *
+     * @return the number of entries visited
+     */
+    public synchronized int forEachInRange(LocalDate start, LocalDate end, MoodVisitor visitor) {
+        if (size() == 0) return 0;
+        long base = baseDay();
+        long from = Math.max(slots.get(INT, MIN_INDEX_OFFSET), start.toEpochDay() - base);
+        long to = Math.min(slots.get(INT, MAX_INDEX_OFFSET), end.toEpochDay() - base);
+
+        int visited = 0;
+        for (long index = from; index <= to; index++) {
+            byte mood = slots.get(ValueLayout.JAVA_BYTE, SLOTS_OFFSET + index * SLOT_BYTES);
+            if (mood != 0) {
+                visitor.visit(base + index, mood);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Visits every entry of the series in ascending date order
+     */
+    public int forEach(MoodVisitor visitor) {
+        return forEachInRange(LocalDate.MIN, LocalDate.MAX, visitor);
+    }
+
+    /**
+     * Number of days that have an entry
+     */
+    public synchronized int size() {
+        return slots.get(INT, COUNT_OFFSET);
+    }
+
+    /**
+     * Forces the moods and notes written so far to disk
+     */
+    public synchronized void force() {
+        slots.force();
+        notes.force();
+    }
+
+    /**
+     * Forces the files of a user's series, written and closed earlier, to disk
+     */
+    static void force(Path directory, String userId) throws IOException {
+        String baseName = fileNameFor(userId);
+        DurableFiles.force(directory.resolve(baseName + ".moods"));
+        DurableFiles.force(directory.resolve(baseName + ".notes"));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (arena != null) {
+            arena.close();
+            arena = null;
+        }
+        slotChannel.close();
+        notesChannel.close();
+    }
+
+    /**
+     * Whether the series was closed, after which it can no longer be read or written
+     */
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Mapping helpers
+
+    private void mapExisting() throws IOException {
+        boolean created = slotChannel.size() == 0;
+        long slotBytes = created ? SLOTS_OFFSET + (long) INITIAL_SLOTS * SLOT_BYTES : slotChannel.size();
+        long notesBytes = notesChannel.size() == 0 ? INITIAL_NOTES_BYTES : notesChannel.size();
+        remap(slotBytes, notesBytes);
+
+        if (created) {
+            slots.set(INT, MAGIC_OFFSET, MAGIC);
+            slots.set(INT, VERSION_OFFSET, VERSION);
+            slots.set(LONG, BASE_DAY_OFFSET, Long.MIN_VALUE);
+            slots.set(INT, CAPACITY_OFFSET, INITIAL_SLOTS);
+            slots.set(INT, COUNT_OFFSET, 0);
+            slots.set(INT, MIN_INDEX_OFFSET, Integer.MAX_VALUE);
+            slots.set(INT, MAX_INDEX_OFFSET, -1);
+            notes.set(LONG, NOTES_USED_OFFSET, NOTES_DATA_OFFSET);
+        } else if (slots.get(INT, MAGIC_OFFSET) != MAGIC || slots.get(INT, VERSION_OFFSET) != VERSION) {
+            throw new IOException("Not a mood series file (bad magic or version)");
+        }
+    }
+
+    private void remap(long slotBytes, long notesBytes) throws IOException {
+        if (arena != null) {
+            arena.close();
+        }
+        arena = Arena.ofShared();
+        slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, slotBytes, arena);
+        notes = notesChannel.map(FileChannel.MapMode.READ_WRITE, 0, notesBytes, arena);
+    }
+
+    private long baseDay() {
+        return slots.get(LONG, BASE_DAY_OFFSET);
+    }
+
+    private int capacity() {
+        return slots.get(INT, CAPACITY_OFFSET);
+    }
+
+    /**
+     * Returns the slot index of a day, growing or re-basing the slot file as needed
+     */
+    private int ensureSlot(long day) throws IOException {
+        if (baseDay() == Long.MIN_VALUE) {
+            slots.set(LONG, BASE_DAY_OFFSET, day - BACKFILL_MARGIN_DAYS);
+        }
+
+        long base = baseDay();
+        int capacity = capacity();
+
+        if (day < base) {
+            // Back-filled day before the first slot: shift every slot to the right
+            long newBase = day - BACKFILL_MARGIN_DAYS;
+            int shift = Math.toIntExact(base - newBase);
+            int newCapacity = Math.toIntExact((long) capacity + shift);
+            remap(SLOTS_OFFSET + (long) newCapacity * SLOT_BYTES, notes.byteSize());
+            MemorySegment.copy(slots, SLOTS_OFFSET, slots, SLOTS_OFFSET + (long) shift * SLOT_BYTES,
+                    (long) capacity * SLOT_BYTES);
+            slots.asSlice(SLOTS_OFFSET, (long) shift * SLOT_BYTES).fill((byte) 0);
+
+            slots.set(LONG, BASE_DAY_OFFSET, newBase);
+            slots.set(INT, CAPACITY_OFFSET, newCapacity);
+            if (size() > 0) {
+                slots.set(INT, MIN_INDEX_OFFSET, slots.get(INT, MIN_INDEX_OFFSET) + shift);
+                slots.set(INT, MAX_INDEX_OFFSET, slots.get(INT, MAX_INDEX_OFFSET) + shift);
+            }
+            base = newBase;
+            capacity = newCapacity;
+        }
+
+        long index = day - base;
+        if (index >= capacity) {
+            int newCapacity = Math.toIntExact(Math.max(index + 1, (long) capacity * 2));
+            remap(SLOTS_OFFSET + (long) newCapacity * SLOT_BYTES, notes.byteSize());
+            slots.set(INT, CAPACITY_OFFSET, newCapacity);
+        }
+        return (int) index;
+    }
+
+    private int appendNote(String note) throws IOException {
+        if (note == null) return 0;
+
+        byte[] bytes = note.getBytes(StandardCharsets.UTF_8);
+        long used = notes.get(LONG, NOTES_USED_OFFSET);
+        long needed = used + 4 + bytes.length;
+        if (needed > Integer.MAX_VALUE) {
+            throw new IOException("Notes region is full");
+        }
+        if (needed > notes.byteSize()) {
+            remap(slots.byteSize(), Math.max(needed, notes.byteSize() * 2));
+        }
+
+        notes.set(INT, used, bytes.length);
+        MemorySegment.copy(bytes, 0, notes, ValueLayout.JAVA_BYTE, used + 4, bytes.length);
+        notes.set(LONG, NOTES_USED_OFFSET, needed);
+        return (int) used;
+    }
+
+    private String readNote(int offset) {
+        if (offset == 0) return null;
+        int length = notes.get(INT, offset);
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(notes, ValueLayout.JAVA_BYTE, offset + 4L, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a user id as a file name that no other id maps to, even on case-insensitive
+     * file systems: lowercase letters, digits and '-' are kept, and every other byte of the
+     * UTF-8 id (uppercase letters and '_' included) becomes '_' and two lowercase hex digits.
+     * Ids too long for a file name become "__" and the SHA-256 of the id, which no short id
+     * produces since an encoded '_' is always followed by a hex digit.
+     */
+    static String fileNameFor(String userId) {
+        StringBuilder name = new StringBuilder(userId.length());
+        for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '-') {
+                name.append((char) b);
+            } else {
+                name.append('_').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+            }
+        }
+        if (name.length() <= MAX_FILE_NAME_LENGTH) {
+            return name.toString();
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(userId.getBytes(StandardCharsets.UTF_8));
+            return "__" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.mental_health;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark of MoodAnalyzer on 30-day, 1-year and 10-year histories.
+ *
+ * Compares the previous list-based analysis (kept below as the reference: it sorts
+ * copies of the list and groups boxed moods by weekday) with the single-pass kernel,
+ * fed either from the entry list or directly from the profile's mood columns, and with
+ * the profile's online statistics, which only build the result.
+ * The results of all implementations are checked to be the same first.
+ *
+ * Then compares, for windows of 7 days to a year ending on random days of a 10-year
+ * history, a scan of the window's mood columns with a MoodRangeIndex query, and a
+ * scan counting the missed days of the window with the DayPresenceBitmap (whose gap
+ * lists are checked against the scan too).
+ *
+ * Usage: MoodAnalysisBenchmark [seconds per measurement]   (default: 2)
+ */
+public class MoodAnalysisBenchmark {
+
+    private static volatile double sink;
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        MoodAnalyzer analyzer = new MoodAnalyzer();
+
+        System.out.println("=== Mood Analysis Benchmark ===\n");
+        System.out.printf("%-10s %18s %18s %18s %18s%n", "History", "reference (ops/s)", "list (ops/s)", "columns (ops/s)", "online (ops/s)");
+
+        for (int days : new int[] {30, 365, 3650}) {
+            UserProfile profile = createProfile(days);
+            List<MoodEntry> entries = profile.getMoodEntries();
+            MoodColumns columns = profile.getMoodColumns();
+
+            checkSameResults(reference(entries), analyzer.analyzeMoodPatterns(entries), days);
+            checkSameResults(reference(entries), analyzer.analyzeMoodPatterns(columns.epochDays(), columns.moods(), columns.size()), days);
+            checkSameResults(reference(entries), analyzer.analyzeMoodPatterns(profile), days);
+
+            double referenceRate = measure(seconds, () -> sink = reference(entries).getAverageMood());
+            double listRate = measure(seconds, () -> sink = analyzer.analyzeMoodPatterns(entries).getAverageMood());
+            double columnsRate = measure(seconds, () ->
+                    sink = analyzer.analyzeMoodPatterns(columns.epochDays(), columns.moods(), columns.size()).getAverageMood());
+            double onlineRate = measure(seconds, () -> sink = analyzer.analyzeMoodPatterns(profile).getAverageMood());
+
+            System.out.printf("%-10s %,18.0f %,18.0f %,18.0f %,18.0f%n",
+                    days + " days", referenceRate, listRate, columnsRate, onlineRate);
+        }
+
+        System.out.printf("%n%-10s %18s %18s%n", "Window", "scan (ops/s)", "range (ops/s)");
+        UserProfile profile = createProfile(3650);
+        MoodColumns columns = profile.getMoodColumns();
+        MoodRangeIndex ranges = profile.getMoodRanges();
+        long lastDay = LocalDate.now().toEpochDay();
+        for (int windowDays : new int[] {7, 30, 90, 365}) {
+            Random random = new Random(windowDays);
+            long[] ends = new long[1024];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = lastDay - random.nextInt(3650 - windowDays);
+            }
+            for (long end : ends) {
+                checkSameRange(scanRange(columns, end - windowDays + 1, end), ranges.query(end - windowDays + 1, end), windowDays);
+            }
+            int[] next = {0};
+            double scanRate = measure(seconds, () -> {
+                long end = ends[next[0]++ & 1023];
+                sink = scanRange(columns, end - windowDays + 1, end)[1];
+            });
+            double rangeRate = measure(seconds, () -> {
+                long end = ends[next[0]++ & 1023];
+                sink = ranges.query(end - windowDays + 1, end).getTrendSlope();
+            });
+            System.out.printf("%-10s %,18.0f %,18.0f%n", windowDays + " days", scanRate, rangeRate);
+        }
+
+        System.out.printf("%n%-10s %18s %18s%n", "Window", "scan (ops/s)", "bitmap (ops/s)");
+        DayPresenceBitmap loggedDays = profile.getLoggedDays();
+        for (int windowDays : new int[] {7, 30, 90, 365}) {
+            Random random = new Random(windowDays);
+            long[] ends = new long[1024];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = lastDay - random.nextInt(3650 - windowDays);
+            }
+            for (long end : ends) {
+                long[] expected = scanGaps(columns, end - windowDays + 1, end);
+                if (expected[0] != loggedDays.missedDays(end - windowDays + 1, end)
+                        || expected[1] != loggedDays.gaps(end - windowDays + 1, end).size()) {
+                    throw new IllegalStateException("Missed days differ from the scan for " + windowDays + " days");
+                }
+            }
+            int[] next = {0};
+            double scanRate = measure(seconds, () -> {
+                long end = ends[next[0]++ & 1023];
+                sink = scanGaps(columns, end - windowDays + 1, end)[0];
+            });
+            double bitmapRate = measure(seconds, () -> {
+                long end = ends[next[0]++ & 1023];
+                sink = loggedDays.missedDays(end - windowDays + 1, end);
+            });
+            System.out.printf("%-10s %,18.0f %,18.0f%n", windowDays + " days", scanRate, bitmapRate);
+        }
+        System.out.printf("%d logged days in %d bytes%n", loggedDays.getDayCount(), loggedDays.estimatedSizeBytes());
+    }
+
+    /**
+     * Missed days and number of gaps of a window, from a binary search and a scan of the columns
+     */
+    private static long[] scanGaps(MoodColumns columns, long fromDay, long toDay) {
+        int[] epochDays = columns.epochDays();
+        int from = Arrays.binarySearch(epochDays, 0, columns.size(), (int) fromDay);
+        if (from < 0) from = -from - 1;
+        long logged = 0;
+        long gaps = 0;
+        long expected = fromDay;
+        for (int i = from; i < columns.size() && epochDays[i] <= toDay; i++) {
+            if (epochDays[i] > expected) gaps++;
+            expected = epochDays[i] + 1L;
+            logged++;
+        }
+        if (expected <= toDay) gaps++;
+        return new long[] {toDay - fromDay + 1 - logged, gaps};
+    }
+
+    /**
+     * Mean and slope per day of the moods of a window, from a binary search and a scan of the columns
+     */
+    private static double[] scanRange(MoodColumns columns, long fromDay, long toDay) {
+        int[] epochDays = columns.epochDays();
+        byte[] moods = columns.moods();
+        int from = Arrays.binarySearch(epochDays, 0, columns.size(), (int) fromDay);
+        if (from < 0) from = -from - 1;
+        double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = from; i < columns.size() && epochDays[i] <= toDay; i++) {
+            double x = epochDays[i] - fromDay;
+            n++;
+            sumX += x;
+            sumY += moods[i];
+            sumXX += x * x;
+            sumXY += x * moods[i];
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        return new double[] {n == 0 ? 3.0 : sumY / n, n < 2 || denominator == 0 ? 0.0 : (n * sumXY - sumX * sumY) / denominator};
+    }
+
+    private static void checkSameRange(double[] expected, MoodRangeIndex.Aggregate actual, int windowDays) {
+        if (Math.abs(expected[0] - actual.getMean(3.0)) > 1e-9 || Math.abs(expected[1] - actual.getTrendSlope()) > 1e-9) {
+            throw new IllegalStateException("Range results differ from the scan for " + windowDays + " days");
+        }
+    }
+
+    private static UserProfile createProfile(int days) {
+        Random random = new Random(days);
+        UserProfile profile = new UserProfile("benchmark_user");
+        LocalDate today = LocalDate.now();
+        List<MoodEntry> entries = new ArrayList<>(days);
+        int mood = 3;
+        for (int day = days - 1; day >= 0; day--) {
+            // Skips some days and drifts the mood, like real histories
+            if (random.nextInt(10) == 0) continue;
+            mood = Math.max(1, Math.min(5, mood + random.nextInt(3) - 1));
+            entries.add(new MoodEntry(today.minusDays(day), mood, null));
+        }
+        profile.getMoodEntries().addAll(entries);
+        return profile;
+    }
+
+    /**
+     * Runs the task repeatedly for about the given time (after as long a warm-up) and returns its rate per second
+     */
+    private static double measure(double seconds, Runnable task) {
+        long duration = (long) (seconds * 1_000_000_000L);
+        for (long end = System.nanoTime() + duration; System.nanoTime() < end; ) {
+            task.run();
+        }
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 100; i++) {
+                task.run();
+            }
+            operations += 100;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < duration);
+        return operations * 1_000_000_000.0 / elapsed;
+    }
+
+    private static void checkSameResults(MoodAnalysisResult expected, MoodAnalysisResult actual, int days) {
+        boolean same = Math.abs(expected.getAverageMood() - actual.getAverageMood()) < 1e-9
+                && Math.abs(expected.getTrendSlope() - actual.getTrendSlope()) < 1e-9
+                && Math.abs(expected.getVolatilityScore() - actual.getVolatilityScore()) < 1e-6
+                && expected.getMoodVariance() == actual.getMoodVariance()
+                && expected.getWeeklyPatterns().keySet().equals(actual.getWeeklyPatterns().keySet());
+        for (Map.Entry<String, Double> pattern : expected.getWeeklyPatterns().entrySet()) {
+            same &= Math.abs(pattern.getValue() - actual.getWeeklyPatterns().get(pattern.getKey())) < 1e-9;
+        }
+        StreakAnalysis expectedStreaks = expected.getStreakAnalysis();
+        StreakAnalysis actualStreaks = actual.getStreakAnalysis();
+        same &= expectedStreaks.getMaxPositiveStreak() == actualStreaks.getMaxPositiveStreak()
+                && expectedStreaks.getMaxNegativeStreak() == actualStreaks.getMaxNegativeStreak()
+                && expectedStreaks.getCurrentStreak() == actualStreaks.getCurrentStreak()
+                && expectedStreaks.getStreakType().equals(actualStreaks.getStreakType());
+        if (!same) {
+            throw new IllegalStateException("Results differ from the reference for " + days + " days");
+        }
+    }
+
+    // Reference: the list-based analysis MoodAnalyzer used before the kernel
+
+    private static MoodAnalysisResult reference(List<MoodEntry> moodEntries) {
+        double averageMood = moodEntries.stream().mapToInt(MoodEntry::getMoodLevel).average().orElse(3.0);
+
+        List<MoodEntry> sortedMoods = new ArrayList<>(moodEntries);
+        sortedMoods.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
+        int n = sortedMoods.size();
+        for (int i = 0; i < n; i++) {
+            double x = i;
+            double y = sortedMoods.get(i).getMoodLevel();
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumX2 += x * x;
+        }
+        double denominator = n * sumX2 - sumX * sumX;
+        double trendSlope = n < 2 || denominator == 0 ? 0.0 : (n * sumXY - sumX * sumY) / denominator;
+
+        double average = moodEntries.stream().mapToInt(MoodEntry::getMoodLevel).average().orElse(3.0);
+        double sumSquaredDiffs = moodEntries.stream()
+                .mapToDouble(entry -> Math.pow(entry.getMoodLevel() - average, 2))
+                .sum();
+        double volatilityScore = n < 2 ? 0.0 : Math.min(100, (Math.sqrt(sumSquaredDiffs / n) / 2.0) * 100);
+
+        List<MoodEntry> changeOrder = new ArrayList<>(moodEntries);
+        changeOrder.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        int changes = 0;
+        for (int i = 1; i < changeOrder.size(); i++) {
+            if (changeOrder.get(i).getMoodLevel() != changeOrder.get(i - 1).getMoodLevel()) {
+                changes++;
+            }
+        }
+
+        Map<DayOfWeek, List<Integer>> dayMoods = new HashMap<>();
+        for (MoodEntry entry : moodEntries) {
+            dayMoods.computeIfAbsent(entry.getDate().getDayOfWeek(), k -> new ArrayList<>()).add(entry.getMoodLevel());
+        }
+        Map<String, Double> weeklyPatterns = new HashMap<>();
+        for (Map.Entry<DayOfWeek, List<Integer>> entry : dayMoods.entrySet()) {
+            weeklyPatterns.put(WeekdayMoodAggregates.getDayName(entry.getKey()), entry.getValue().stream().mapToInt(Integer::intValue).average().orElse(3.0));
+        }
+
+        MoodAnalysisResult result = new MoodAnalysisResult(averageMood, trendSlope, volatilityScore);
+        result.setMoodVariance(n < 2 ? 0 : changes);
+        result.setWeeklyPatterns(weeklyPatterns);
+        result.setStreakAnalysis(referenceStreaks(moodEntries));
+        return result;
+    }
+
+    private static StreakAnalysis referenceStreaks(List<MoodEntry> moodEntries) {
+        List<MoodEntry> sortedMoods = new ArrayList<>(moodEntries);
+        sortedMoods.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+
+        int maxPositiveStreak = 0;
+        int maxNegativeStreak = 0;
+        int tempPositiveStreak = 0;
+        int tempNegativeStreak = 0;
+        for (MoodEntry entry : sortedMoods) {
+            int mood = entry.getMoodLevel();
+            if (mood >= 4) {
+                tempPositiveStreak++;
+                tempNegativeStreak = 0;
+                maxPositiveStreak = Math.max(maxPositiveStreak, tempPositiveStreak);
+            } else if (mood <= 2) {
+                tempNegativeStreak++;
+                tempPositiveStreak = 0;
+                maxNegativeStreak = Math.max(maxNegativeStreak, tempNegativeStreak);
+            } else {
+                tempPositiveStreak = 0;
+                tempNegativeStreak = 0;
+            }
+        }
+
+        int recentMood = sortedMoods.get(0).getMoodLevel();
+        int currentStreak = 1;
+        String currentStreakType;
+        if (recentMood >= 4) {
+            currentStreakType = "positive";
+            for (int i = 1; i < sortedMoods.size() && sortedMoods.get(i).getMoodLevel() >= 4; i++) currentStreak++;
+        } else if (recentMood <= 2) {
+            currentStreakType = "negative";
+            for (int i = 1; i < sortedMoods.size() && sortedMoods.get(i).getMoodLevel() <= 2; i++) currentStreak++;
+        } else {
+            currentStreakType = "neutral";
+            for (int i = 1; i < sortedMoods.size() && sortedMoods.get(i).getMoodLevel() == 3; i++) currentStreak++;
+        }
+        return new StreakAnalysis(maxPositiveStreak, maxNegativeStreak, currentStreak, currentStreakType);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.mental_health;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass analysis of a mood series held in primitive arrays sorted by ascending epoch day.
+ *
+ * One loop accumulates everything MoodAnalysisResult needs: mean and spread, the
+ * regression over the entry index, the number of mood changes, the weekday sums
+ * and the streaks. Mood levels are small integers, so the sums are kept in longs
+ * and are exact; the loop allocates nothing. A kernel can be reused but is not thread-safe.
+ */
+public final class MoodAnalysisKernel implements MoodStatistics {
+
+    private int count;
+    private long sum;
+    private long sumSquares;
+    private long sumIndexMood;
+    private int changeCount;
+
+    // Indexed from Monday (0) to Sunday (6)
+    private final long[] weekdaySums = new long[7];
+    private final int[] weekdayCounts = new int[7];
+
+    private int maxPositiveStreak;
+    private int maxNegativeStreak;
+    private int currentStreak;
+    private int currentStreakKind;
+
+    /**
+     * Analyzes the first count entries of the arrays, replacing the previous results
+     */
+    public void analyze(int[] epochDays, byte[] moods, int count) {
+        this.count = count;
+        sum = sumSquares = sumIndexMood = 0;
+        changeCount = 0;
+        Arrays.fill(weekdaySums, 0);
+        Arrays.fill(weekdayCounts, 0);
+        maxPositiveStreak = maxNegativeStreak = currentStreak = 0;
+        currentStreakKind = NEUTRAL;
+        if (count == 0) return;
+
+        // The weekday follows the gaps between entries
+        int weekday = WeekdayMoodAggregates.weekdayOf(epochDays[0]);
+        int previousDay = epochDays[0];
+        int previousMood = moods[0];
+        long sum = 0, sumSquares = 0, sumIndexMood = 0;
+        int changes = 0;
+        int run = 0;
+        int runKind = Integer.MIN_VALUE; // matches no kind
+        int maxPositive = 0, maxNegative = 0;
+        long[] weekdaySums = this.weekdaySums;
+        int[] weekdayCounts = this.weekdayCounts;
+
+        // Accumulates in locals so that the JIT keeps them in registers
+        for (int i = 0; i < count; i++) {
+            int day = epochDays[i];
+            int mood = moods[i];
+
+            int gap = day - previousDay;
+            if (gap >= 0 && gap < 7) {
+                weekday += gap;
+                if (weekday >= 7) weekday -= 7;
+            } else {
+                weekday = WeekdayMoodAggregates.weekdayOf(day);
+            }
+            weekdaySums[weekday] += mood;
+            weekdayCounts[weekday]++;
+
+            sum += mood;
+            sumSquares += mood * mood;
+            sumIndexMood += (long) i * mood;
+
+            // Moods of real histories change unpredictably: written so that the JIT can avoid branches
+            changes += mood != previousMood ? 1 : 0;
+            int kind = MoodStatistics.kindOf(mood);
+            run = kind == runKind ? run + 1 : 1;
+            runKind = kind;
+            maxPositive = Math.max(maxPositive, kind == POSITIVE ? run : 0);
+            maxNegative = Math.max(maxNegative, kind == NEGATIVE ? run : 0);
+
+            previousDay = day;
+            previousMood = mood;
+        }
+
+        this.sum = sum;
+        this.sumSquares = sumSquares;
+        this.sumIndexMood = sumIndexMood;
+        this.changeCount = changes;
+        this.maxPositiveStreak = maxPositive;
+        this.maxNegativeStreak = maxNegative;
+        this.currentStreak = run;
+        this.currentStreakKind = runKind;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public double getAverageMood() {
+        return count == 0 ? 3.0 : (double) sum / count;
+    }
+
+    @Override
+    public double getTrendSlope() {
+        return trendSlope(count, sum, sumIndexMood);
+    }
+
+    @Override
+    public double getVolatilityScore() {
+        if (count < 2) return 0.0;
+        double variance = (double) (count * sumSquares - sum * sum) / ((double) count * count);
+        return volatilityScore(variance);
+    }
+
+    @Override
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    @Override
+    public long getWeekdaySum(int weekdayIndex) {
+        return weekdaySums[weekdayIndex];
+    }
+
+    @Override
+    public int getWeekdayCount(int weekdayIndex) {
+        return weekdayCounts[weekdayIndex];
+    }
+
+    @Override
+    public int getMaxPositiveStreak() {
+        return maxPositiveStreak;
+    }
+
+    @Override
+    public int getMaxNegativeStreak() {
+        return maxNegativeStreak;
+    }
+
+    @Override
+    public int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    @Override
+    public int getCurrentStreakKind() {
+        return currentStreakKind;
+    }
+
+    long getSum() {
+        return sum;
+    }
+
+    long getSumSquares() {
+        return sumSquares;
+    }
+
+    long getSumIndexMood() {
+        return sumIndexMood;
+    }
+
+    /**
+     * Slope of the regression of the moods over their index, from the sum of the moods
+     * and the sum of each mood times its index (the sums of the indexes have closed forms)
+     */
+    static double trendSlope(int count, double sum, double sumIndexMood) {
+        if (count < 2) return 0.0;
+        double n = count;
+        double sumX = n * (n - 1) / 2;
+        double sumX2 = (n - 1) * n * (2 * n - 1) / 6;
+        double denominator = n * sumX2 - sumX * sumX;
+        if (denominator == 0) return 0.0;
+        return (n * sumIndexMood - sumX * sum) / denominator;
+    }
+
+    static double volatilityScore(double variance) {
+        return Math.min(100, (Math.sqrt(Math.max(0, variance)) / 2.0) * 100);
+    }
+}
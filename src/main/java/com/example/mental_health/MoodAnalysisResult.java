@@ -44,35 +44,3 @@ public class MoodAnalysisResult {
     public Map<String, Double> getCorrelationFactors() { return correlationFactors; }
     public void setCorrelationFactors(Map<String, Double> correlationFactors) { this.correlationFactors = correlationFactors; }
 }
-
-/**
- * Analysis of mood streaks
- */
-class StreakAnalysis {
-    private int maxPositiveStreak;
-    private int maxNegativeStreak;
-    private int currentStreak;
-    private String streakType; // "positive", "negative", "neutral"
-    
-    public StreakAnalysis() {}
-    
-    public StreakAnalysis(int maxPositiveStreak, int maxNegativeStreak, int currentStreak, String streakType) {
-        this.maxPositiveStreak = maxPositiveStreak;
-        this.maxNegativeStreak = maxNegativeStreak;
-        this.currentStreak = currentStreak;
-        this.streakType = streakType;
-    }
-    
-    // Getters and setters
-    public int getMaxPositiveStreak() { return maxPositiveStreak; }
-    public void setMaxPositiveStreak(int maxPositiveStreak) { this.maxPositiveStreak = maxPositiveStreak; }
-    
-    public int getMaxNegativeStreak() { return maxNegativeStreak; }
-    public void setMaxNegativeStreak(int maxNegativeStreak) { this.maxNegativeStreak = maxNegativeStreak; }
-    
-    public int getCurrentStreak() { return currentStreak; }
-    public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
-    
-    public String getStreakType() { return streakType; }
-    public void setStreakType(String streakType) { this.streakType = streakType; }
-}
\ No newline at end of file
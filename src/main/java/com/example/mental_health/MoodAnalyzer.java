@@ -1,7 +1,7 @@
 package com.example.mental_health;
 
 import java.util.*;
-import java.time.DayOfWeek;
+import java.time.LocalDate;
 
 /**
  * Analyzes mood patterns and trends
@@ -16,186 +16,141 @@ public class MoodAnalyzer {
             return new MoodAnalysisResult(3.0, 0.0, 0.0); // Default neutral result
         }
         
-        // Calculate basic statistics
-        double averageMood = calculateAverageMood(moodEntries);
-        double trendSlope = calculateTrendSlope(moodEntries);
-        double volatilityScore = calculateVolatilityScore(moodEntries);
-        int moodVariance = calculateMoodVariance(moodEntries);
-        
-        // Analyze weekly patterns
-        Map<String, Double> weeklyPatterns = analyzeWeeklyPatterns(moodEntries);
-        
-        // Analyze streaks
-        StreakAnalysis streakAnalysis = analyzeStreaks(moodEntries);
-        
-        // Create result
-        MoodAnalysisResult result = new MoodAnalysisResult(averageMood, trendSlope, volatilityScore);
-        result.setMoodVariance(moodVariance);
-        result.setWeeklyPatterns(weeklyPatterns);
-        result.setStreakAnalysis(streakAnalysis);
-        
-        return result;
-    }
-    
-    private double calculateAverageMood(List<MoodEntry> moodEntries) {
-        return moodEntries.stream()
-                .mapToInt(MoodEntry::getMoodLevel)
-                .average()
-                .orElse(3.0);
+        int count = moodEntries.size();
+        int[] epochDays = new int[count];
+        byte[] moods = new byte[count];
+        if (moodEntries instanceof DateIndexedList<MoodEntry> indexed) {
+            // Already sorted, most recent first
+            for (int i = 0; i < count; i++) {
+                epochDays[i] = indexed.epochDayAt(count - 1 - i);
+                moods[i] = (byte) indexed.get(count - 1 - i).getMoodLevel();
+            }
+        } else {
+            // Sorted by day, keeping the list order for entries of the same day
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = moodEntries.get(i).getDate().toEpochDay() << 32 | i;
+            }
+            Arrays.sort(keys);
+            boolean sameDayEntries = false;
+            for (int i = 0; i < count; i++) {
+                epochDays[i] = (int) (keys[i] >> 32);
+                moods[i] = (byte) moodEntries.get((int) keys[i]).getMoodLevel();
+                sameDayEntries |= i > 0 && epochDays[i] == epochDays[i - 1];
+            }
+            if (sameDayEntries) {
+                MoodAnalysisResult result = analyzeMoodPatterns(epochDays, moods, count);
+                result.setStreakAnalysis(sameDayStreaks(epochDays, moods, count));
+                return result;
+            }
+        }
+        return analyzeMoodPatterns(epochDays, moods, count);
     }
     
-    private double calculateTrendSlope(List<MoodEntry> moodEntries) {
-        if (moodEntries.size() < 2) return 0.0;
-        
-        // Sort by date
-        List<MoodEntry> sortedMoods = new ArrayList<>(moodEntries);
-        sortedMoods.sort((a, b) -> a.getDate().compareTo(b.getDate()));
-        
-        // Linear regression to find trend
-        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
-        int n = sortedMoods.size();
-        
-        for (int i = 0; i < n; i++) {
-            double x = i; // Day index
-            double y = sortedMoods.get(i).getMoodLevel();
-            sumX += x;
-            sumY += y;
-            sumXY += x * y;
-            sumX2 += x * x;
+    /**
+     * Streaks of a list with several entries on a day. They are counted from the most recent
+     * entry back, with the entries of a day in list order, while the other statistics go
+     * forward in list order: the kernel walks the days forward with the entries of each day
+     * reversed, which gives the same streaks.
+     */
+    private StreakAnalysis sameDayStreaks(int[] epochDays, byte[] moods, int count) {
+        byte[] streakMoods = new byte[count];
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || epochDays[i] != epochDays[start]) {
+                for (int j = start; j < i; j++) {
+                    streakMoods[j] = moods[start + i - 1 - j];
+                }
+                start = i;
+            }
         }
-        
-        // Calculate slope: (n*sumXY - sumX*sumY) / (n*sumX2 - sumX*sumX)
-        double denominator = n * sumX2 - sumX * sumX;
-        if (denominator == 0) return 0.0;
-        
-        return (n * sumXY - sumX * sumY) / denominator;
+        MoodAnalysisKernel kernel = new MoodAnalysisKernel();
+        kernel.analyze(epochDays, streakMoods, count);
+        return streakAnalysis(kernel);
     }
     
-    private double calculateVolatilityScore(List<MoodEntry> moodEntries) {
-        if (moodEntries.size() < 2) return 0.0;
-        
-        double averageMood = calculateAverageMood(moodEntries);
-        
-        // Calculate standard deviation
-        double sumSquaredDiffs = moodEntries.stream()
-                .mapToDouble(entry -> Math.pow(entry.getMoodLevel() - averageMood, 2))
-                .sum();
-        
-        double standardDeviation = Math.sqrt(sumSquaredDiffs / moodEntries.size());
-        
-        // Convert to 0-100 scale (max possible std dev for 1-5 scale is 2)
-        return Math.min(100, (standardDeviation / 2.0) * 100);
+    /**
+     * Analyzes the mood entries of a profile from the statistics it keeps up to date,
+     * without reading its entries
+     */
+    public MoodAnalysisResult analyzeMoodPatterns(UserProfile userProfile) {
+        return analyzeMoodPatterns(userProfile.getMoodStatistics());
     }
     
-    private int calculateMoodVariance(List<MoodEntry> moodEntries) {
-        if (moodEntries.size() < 2) return 0;
-        
-        // Count number of mood changes
-        List<MoodEntry> sortedMoods = new ArrayList<>(moodEntries);
-        sortedMoods.sort((a, b) -> a.getDate().compareTo(b.getDate()));
-        
-        int changes = 0;
-        for (int i = 1; i < sortedMoods.size(); i++) {
-            if (sortedMoods.get(i).getMoodLevel() != sortedMoods.get(i-1).getMoodLevel()) {
-                changes++;
-            }
+    /**
+     * Analyzes the moods of a profile between two dates, inclusive, from its range index
+     * without reading its entries. Only the average, the trend (per day) and the volatility
+     * are computed; weekday patterns and streaks are left out.
+     */
+    public MoodAnalysisResult analyzeMoodPatterns(UserProfile userProfile, LocalDate startDate, LocalDate endDate) {
+        MoodRangeIndex.Aggregate range = userProfile.getMoodRanges().query(startDate.toEpochDay(), endDate.toEpochDay());
+        if (range.getCount() == 0) {
+            return new MoodAnalysisResult(3.0, 0.0, 0.0);
         }
-        
-        return changes;
+        return new MoodAnalysisResult(range.getMean(3.0), range.getTrendSlope(),
+                MoodAnalysisKernel.volatilityScore(range.getVariance()));
     }
     
-    private Map<String, Double> analyzeWeeklyPatterns(List<MoodEntry> moodEntries) {
-        Map<DayOfWeek, List<Integer>> dayMoods = new HashMap<>();
-        
-        // Group moods by day of week
-        for (MoodEntry entry : moodEntries) {
-            DayOfWeek dayOfWeek = entry.getDate().getDayOfWeek();
-            dayMoods.computeIfAbsent(dayOfWeek, k -> new ArrayList<>()).add(entry.getMoodLevel());
-        }
-        
-        // Calculate averages for each day
-        Map<String, Double> weeklyPatterns = new HashMap<>();
-        for (Map.Entry<DayOfWeek, List<Integer>> entry : dayMoods.entrySet()) {
-            double average = entry.getValue().stream()
-                    .mapToInt(Integer::intValue)
-                    .average()
-                    .orElse(3.0);
-            weeklyPatterns.put(getDayName(entry.getKey()), average);
-        }
-        
-        return weeklyPatterns;
+    /**
+     * Analyzes a memory-mapped mood series without materializing MoodEntry objects
+     */
+    public MoodAnalysisResult analyzeMoodPatterns(MappedMoodSeries series) {
+        int size = series.size();
+        int[] epochDays = new int[size];
+        byte[] moods = new byte[size];
+        int[] count = {0};
+        
+        series.forEach((epochDay, moodLevel) -> {
+            epochDays[count[0]] = (int) epochDay;
+            moods[count[0]++] = (byte) moodLevel;
+        });
+        
+        return analyzeMoodPatterns(epochDays, moods, count[0]);
     }
     
-    private StreakAnalysis analyzeStreaks(List<MoodEntry> moodEntries) {
-        if (moodEntries.isEmpty()) {
-            return new StreakAnalysis(0, 0, 0, "neutral");
+    /**
+     * Analyzes a primitive mood series sorted by ascending epoch day
+     */
+    public MoodAnalysisResult analyzeMoodPatterns(int[] epochDays, byte[] moods, int count) {
+        if (count == 0) {
+            return new MoodAnalysisResult(3.0, 0.0, 0.0);
         }
         
-        // Sort by date (most recent first)
-        List<MoodEntry> sortedMoods = new ArrayList<>(moodEntries);
-        sortedMoods.sort((a, b) -> b.getDate().compareTo(a.getDate()));
-        
-        int maxPositiveStreak = 0;
-        int maxNegativeStreak = 0;
-        int currentStreak = 0;
-        String currentStreakType = "neutral";
-        
-        int tempPositiveStreak = 0;
-        int tempNegativeStreak = 0;
-        
-        for (MoodEntry entry : sortedMoods) {
-            int mood = entry.getMoodLevel();
-            
-            if (mood >= 4) { // Positive mood
-                tempPositiveStreak++;
-                tempNegativeStreak = 0;
-                maxPositiveStreak = Math.max(maxPositiveStreak, tempPositiveStreak);
-            } else if (mood <= 2) { // Negative mood
-                tempNegativeStreak++;
-                tempPositiveStreak = 0;
-                maxNegativeStreak = Math.max(maxNegativeStreak, tempNegativeStreak);
-            } else { // Neutral mood
-                tempPositiveStreak = 0;
-                tempNegativeStreak = 0;
-            }
+        MoodAnalysisKernel kernel = new MoodAnalysisKernel();
+        kernel.analyze(epochDays, moods, count);
+        return analyzeMoodPatterns(kernel);
+    }
+    
+    /**
+     * Builds the analysis result of precomputed statistics
+     */
+    public MoodAnalysisResult analyzeMoodPatterns(MoodStatistics statistics) {
+        if (statistics.getCount() == 0) {
+            return new MoodAnalysisResult(3.0, 0.0, 0.0);
         }
         
-        // Determine current streak (from most recent entries)
-        if (!sortedMoods.isEmpty()) {
-            int recentMood = sortedMoods.get(0).getMoodLevel();
-            currentStreak = 1;
-            
-            if (recentMood >= 4) {
-                currentStreakType = "positive";
-                for (int i = 1; i < sortedMoods.size() && sortedMoods.get(i).getMoodLevel() >= 4; i++) {
-                    currentStreak++;
-                }
-            } else if (recentMood <= 2) {
-                currentStreakType = "negative";
-                for (int i = 1; i < sortedMoods.size() && sortedMoods.get(i).getMoodLevel() <= 2; i++) {
-                    currentStreak++;
-                }
-            } else {
-                currentStreakType = "neutral";
-                for (int i = 1; i < sortedMoods.size() && sortedMoods.get(i).getMoodLevel() == 3; i++) {
-                    currentStreak++;
-                }
+        Map<String, Double> weeklyPatterns = new HashMap<>();
+        for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+            if (statistics.getWeekdayCount(dayIndex) > 0) {
+                weeklyPatterns.put(WeekdayMoodAggregates.getDayName(dayIndex),
+                        (double) statistics.getWeekdaySum(dayIndex) / statistics.getWeekdayCount(dayIndex));
             }
         }
         
-        return new StreakAnalysis(maxPositiveStreak, maxNegativeStreak, currentStreak, currentStreakType);
+        MoodAnalysisResult result = new MoodAnalysisResult(statistics.getAverageMood(), statistics.getTrendSlope(), statistics.getVolatilityScore());
+        result.setMoodVariance(statistics.getChangeCount());
+        result.setWeeklyPatterns(weeklyPatterns);
+        result.setStreakAnalysis(streakAnalysis(statistics));
+        return result;
     }
     
-    private String getDayName(DayOfWeek day) {
-        switch (day) {
-            case MONDAY: return "Lundi";
-            case TUESDAY: return "Mardi";
-            case WEDNESDAY: return "Mercredi";
-            case THURSDAY: return "Jeudi";
-            case FRIDAY: return "Vendredi";
-            case SATURDAY: return "Samedi";
-            case SUNDAY: return "Dimanche";
-            default: return day.toString();
-        }
+    private static StreakAnalysis streakAnalysis(MoodStatistics statistics) {
+        String currentStreakType = switch (statistics.getCurrentStreakKind()) {
+            case MoodStatistics.POSITIVE -> "positive";
+            case MoodStatistics.NEGATIVE -> "negative";
+            default -> "neutral";
+        };
+        return new StreakAnalysis(statistics.getMaxPositiveStreak(), statistics.getMaxNegativeStreak(),
+                statistics.getCurrentStreak(), currentStreakType);
     }
 }
\ No newline at end of file
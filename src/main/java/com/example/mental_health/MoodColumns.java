@@ -0,0 +1,118 @@
+package com.example.mental_health;
+
+import java.util.Arrays;
+
+/**
+ * Primitive copy of a mood list: epoch days and mood levels in parallel arrays,
+ * oldest first, kept in step with the list it listens to.
+ *
+ * Analyses read these arrays directly instead of walking MoodEntry objects.
+ */
+public class MoodColumns implements DateIndexedList.ChangeListener<MoodEntry> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] epochDays;
+    private byte[] moods;
+    private int size;
+    // Whether the arrays are shared with a copy, and must be copied before being changed
+    private boolean shared;
+
+    public MoodColumns() {
+        this.epochDays = new int[INITIAL_CAPACITY];
+        this.moods = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Copies the columns of another list, sharing the arrays until either of them changes
+     */
+    public MoodColumns(MoodColumns other) {
+        this.epochDays = other.epochDays;
+        this.moods = other.moods;
+        this.size = other.size;
+        this.shared = true;
+        other.shared = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Epoch days in ascending order; only the first {@link #size()} values are used.
+     * This is the internal array, which must not be modified.
+     */
+    public int[] epochDays() {
+        return epochDays;
+    }
+
+    /**
+     * Mood levels matching {@link #epochDays()}; this is the internal array, which must not be modified
+     */
+    public byte[] moods() {
+        return moods;
+    }
+
+    public void clear() {
+        if (shared) {
+            epochDays = new int[INITIAL_CAPACITY];
+            moods = new byte[INITIAL_CAPACITY];
+            shared = false;
+        }
+        size = 0;
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        unshare();
+        if (size == epochDays.length) {
+            epochDays = Arrays.copyOf(epochDays, size * 2);
+            moods = Arrays.copyOf(moods, size * 2);
+        }
+        System.arraycopy(epochDays, position, epochDays, position + 1, size - position);
+        System.arraycopy(moods, position, moods, position + 1, size - position);
+        epochDays[position] = (int) entry.getDate().toEpochDay();
+        moods[position] = (byte) entry.getMoodLevel();
+        size++;
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        unshare();
+        moods[position] = (byte) entry.getMoodLevel();
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        unshare();
+        System.arraycopy(epochDays, position + 1, epochDays, position, size - position - 1);
+        System.arraycopy(moods, position + 1, moods, position, size - position - 1);
+        size--;
+    }
+
+    /**
+     * Rebuilds the columns in one pass: each insertion of the batch would shift the entries after it
+     */
+    @Override
+    public void entriesMerged(DateIndexedList<? extends MoodEntry> list, DateIndexedList.Merge<? extends MoodEntry> merge) {
+        int count = list.size();
+        if (shared || count > epochDays.length) {
+            epochDays = new int[Math.max(INITIAL_CAPACITY, count + count / 2)];
+            moods = new byte[epochDays.length];
+            shared = false;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = count - 1 - i;
+            epochDays[i] = list.epochDayAt(index);
+            moods[i] = (byte) list.get(index).getMoodLevel();
+        }
+        size = count;
+    }
+
+    private void unshare() {
+        if (!shared) return;
+        epochDays = Arrays.copyOf(epochDays, Math.max(INITIAL_CAPACITY, size));
+        moods = Arrays.copyOf(moods, epochDays.length);
+        shared = false;
+    }
+}
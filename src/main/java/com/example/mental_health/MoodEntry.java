@@ -8,14 +8,14 @@ import java.time.LocalDate;
 public class MoodEntry {
     private LocalDate date;
     private int moodLevel; // 1-5 scale
-    private String note;
+    private CompressedText note; // decompressed on first access
     
     public MoodEntry() {}
     
     public MoodEntry(LocalDate date, int moodLevel, String note) {
         this.date = date;
         this.moodLevel = Math.max(1, Math.min(5, moodLevel)); // Clamp to 1-5
-        this.note = note;
+        this.note = CompressedText.of(note);
     }
     
     // Getters and setters
@@ -27,12 +27,15 @@ public class MoodEntry {
         this.moodLevel = Math.max(1, Math.min(5, moodLevel)); 
     }
     
-    public String getNote() { return note; }
-    public void setNote(String note) { this.note = note; }
+    public String getNote() { return note != null ? note.get() : null; }
+    public void setNote(String note) { this.note = CompressedText.of(note); }
+    
+    public CompressedText getCompressedNote() { return note; }
+    public void setCompressedNote(CompressedText note) { this.note = note; }
     
     @Override
     public String toString() {
         return String.format("MoodEntry{date=%s, mood=%d, note='%s'}", 
-                           date, moodLevel, note != null ? note.substring(0, Math.min(20, note.length())) + "..." : "");
+                           date, moodLevel, note != null ? getNote().substring(0, Math.min(20, note.length())) + "..." : "");
     }
 }
\ No newline at end of file
@@ -0,0 +1,289 @@
+package com.example.mental_health;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mood forecasting model of a profile: Holt-Winters exponential smoothing with a damped
+ * trend and a weekly seasonality, updated as mood entries are added instead of being
+ * fitted to the whole history for every prediction.
+ *
+ * Each new mood updates the level, the trend and the component of its weekday in
+ * constant time; days without an entry only let the trend carry the level forward.
+ * The variance of the one-step forecast errors gives the width of the prediction
+ * intervals. Saving today's mood again undoes the last update before applying the new
+ * mood; other changes to past days mark the model stale, and it is fitted again in a
+ * single pass over the mood columns when next read. The model state is persisted with
+ * the profile, so loading a profile doesn't replay its history either.
+ */
+public class MoodForecaster implements DateIndexedList.ChangeListener<MoodEntry> {
+
+    // Smoothing of the level, trend and weekday components, and damping of the trend
+    static final double ALPHA = 0.3;
+    static final double BETA = 0.05;
+    static final double GAMMA = 0.15;
+    static final double PHI = 0.9;
+    private static final int VARIANCE_WINDOW = 30;   // forecast errors averaged over about a month
+    private static final int MAX_HORIZON = 366;
+
+    private final MoodColumns columns;
+
+    private boolean stale;
+    private int count;
+    private int lastDay;        // epoch day of the last mood
+    private double level;
+    private double trend;       // per day
+    private final double[] seasonal = new double[7];   // by weekday, Monday first
+    private double errorVariance;
+
+    // State before the last mood, so that today's mood can be replaced in constant time
+    private boolean undoable;
+    private int previousDay;
+    private double previousLevel;
+    private double previousTrend;
+    private double previousSeasonal;
+    private double previousErrorVariance;
+
+    // Entries already accounted for by a restored state, skipped as the list is filled
+    private int restoredEntries;
+
+    public MoodForecaster(MoodColumns columns) {
+        this.columns = columns;
+        this.stale = columns.size() > 0;
+    }
+
+    /**
+     * Copies the model of another profile whose columns were copied too
+     */
+    public MoodForecaster(MoodForecaster other, MoodColumns columns) {
+        this.columns = columns;
+        this.stale = other.stale || other.restoredEntries > 0;
+        this.count = other.count;
+        this.lastDay = other.lastDay;
+        this.level = other.level;
+        this.trend = other.trend;
+        System.arraycopy(other.seasonal, 0, seasonal, 0, 7);
+        this.errorVariance = other.errorVariance;
+        this.undoable = other.undoable;
+        this.previousDay = other.previousDay;
+        this.previousLevel = other.previousLevel;
+        this.previousTrend = other.previousTrend;
+        this.previousSeasonal = other.previousSeasonal;
+        this.previousErrorVariance = other.previousErrorVariance;
+    }
+
+    /**
+     * Resets to the model of an empty history
+     */
+    public void clear() {
+        stale = false;
+        count = 0;
+        lastDay = 0;
+        level = trend = errorVariance = 0;
+        Arrays.fill(seasonal, 0);
+        undoable = false;
+        restoredEntries = 0;
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        if (stale) return;
+        int day = (int) entry.getDate().toEpochDay();
+        if (restoredEntries > 0) {
+            restoredEntries--;
+            if (day > lastDay) stale = true;
+            return;
+        }
+        if (count > 0 && day <= lastDay) {
+            // A past day: later updates depend on it
+            stale = true;
+            return;
+        }
+        update(day, entry.getMoodLevel());
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        if (stale) return;
+        int day = (int) entry.getDate().toEpochDay();
+        if (restoredEntries > 0 || day != lastDay || !undoable) {
+            stale = true;
+            return;
+        }
+        undo();
+        update(day, entry.getMoodLevel());
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        stale = true;
+    }
+
+    /**
+     * Whether the next read will fit the model again from the columns
+     */
+    public boolean isStale() {
+        return stale || restoredEntries > 0;
+    }
+
+    /**
+     * Fits a stale model now rather than on the next read
+     */
+    public void refresh() {
+        if (!isStale()) return;
+        clear();
+        int[] epochDays = columns.epochDays();
+        byte[] moods = columns.moods();
+        for (int i = 0; i < columns.size(); i++) {
+            update(epochDays[i], moods[i]);
+        }
+    }
+
+    /**
+     * Number of moods the model was fitted to
+     */
+    public int getCount() {
+        refresh();
+        return count;
+    }
+
+    /**
+     * Smoothed trend, in mood points per day
+     */
+    public double getTrend() {
+        refresh();
+        return trend;
+    }
+
+    /**
+     * Expected mood on a day after the last mood (unbounded; 3 without any mood)
+     */
+    public double forecast(long epochDay) {
+        refresh();
+        if (count == 0) return 3.0;
+        int horizon = horizon(epochDay);
+        return level + trend * dampedSum(horizon) + seasonal[WeekdayMoodAggregates.weekdayOf(epochDay)];
+    }
+
+    /**
+     * Standard deviation of the error of the forecast of a day, growing with the
+     * distance from the last mood as the level, trend and weekday errors accumulate
+     */
+    public double forecastStandardDeviation(long epochDay) {
+        refresh();
+        int horizon = horizon(epochDay);
+        double factor = 1;
+        for (int j = 1; j < horizon; j++) {
+            double c = ALPHA * (1 + BETA * dampedSum(j)) + (j % 7 == 0 ? GAMMA : 0);
+            factor += c * c;
+        }
+        return Math.sqrt(errorVariance * factor);
+    }
+
+    private int horizon(long epochDay) {
+        return (int) Math.max(1, Math.min(MAX_HORIZON, epochDay - lastDay));
+    }
+
+    private void update(int day, int mood) {
+        int weekday = WeekdayMoodAggregates.weekdayOf(day);
+        undoable = count > 0;
+        previousDay = lastDay;
+        previousLevel = level;
+        previousTrend = trend;
+        previousSeasonal = seasonal[weekday];
+        previousErrorVariance = errorVariance;
+
+        if (count == 0) {
+            level = mood;
+        } else {
+            // Days without a mood only carry the level forward with the damped trend
+            int missedDays = day - lastDay - 1;
+            if (missedDays > 0) {
+                level += trend * dampedSum(missedDays);
+                trend *= Math.pow(PHI, missedDays);
+            }
+            double season = seasonal[weekday];
+            double error = mood - (level + PHI * trend + season);
+            double newLevel = ALPHA * (mood - season) + (1 - ALPHA) * (level + PHI * trend);
+            trend = BETA * (newLevel - level) + (1 - BETA) * PHI * trend;
+            level = newLevel;
+            seasonal[weekday] = GAMMA * (mood - level) + (1 - GAMMA) * season;
+            errorVariance += (error * error - errorVariance) / Math.min(count, VARIANCE_WINDOW);
+        }
+        lastDay = day;
+        count++;
+    }
+
+    private void undo() {
+        seasonal[WeekdayMoodAggregates.weekdayOf(lastDay)] = previousSeasonal;
+        lastDay = previousDay;
+        level = previousLevel;
+        trend = previousTrend;
+        errorVariance = previousErrorVariance;
+        count--;
+        undoable = false;
+    }
+
+    /**
+     * phi + phi^2 + ... + phi^n: how far the trend carries the level in n days
+     */
+    private static double dampedSum(int days) {
+        return PHI * (1 - Math.pow(PHI, days)) / (1 - PHI);
+    }
+
+    // Persistence
+
+    /**
+     * Writes the model state, which must have been fitted (see {@link #refresh()})
+     */
+    void write(DataOutput out) throws IOException {
+        if (isStale()) {
+            throw new IllegalStateException("The model must be fitted before it is written");
+        }
+        VarInts.writeUnsigned(out, count);
+        if (count == 0) return;
+        VarInts.writeSigned(out, lastDay);
+        out.writeDouble(level);
+        out.writeDouble(trend);
+        for (double component : seasonal) {
+            out.writeDouble(component);
+        }
+        out.writeDouble(errorVariance);
+        out.writeBoolean(undoable);
+        if (undoable) {
+            VarInts.writeSigned(out, lastDay - previousDay);
+            out.writeDouble(previousLevel);
+            out.writeDouble(previousTrend);
+            out.writeDouble(previousSeasonal);
+            out.writeDouble(previousErrorVariance);
+        }
+    }
+
+    /**
+     * Restores a state written by {@link #write(DataOutput)}, before the mood entries it
+     * was fitted to are added to the (empty) list
+     */
+    void read(ByteBuffer in) throws IOException {
+        clear();
+        count = VarInts.readUnsigned(in);
+        if (count == 0) return;
+        lastDay = VarInts.readSigned(in);
+        level = in.getDouble();
+        trend = in.getDouble();
+        for (int i = 0; i < 7; i++) {
+            seasonal[i] = in.getDouble();
+        }
+        errorVariance = in.getDouble();
+        undoable = in.get() != 0;
+        if (undoable) {
+            previousDay = lastDay - VarInts.readSigned(in);
+            previousLevel = in.getDouble();
+            previousTrend = in.getDouble();
+            previousSeasonal = in.getDouble();
+            previousErrorVariance = in.getDouble();
+        }
+        restoredEntries = count;
+    }
+}
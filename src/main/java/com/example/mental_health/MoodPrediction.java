@@ -8,6 +8,8 @@ import java.util.List;
 public class MoodPrediction {
     private double predictedMood;
     private double confidence; // 0.0 to 1.0
+    private double lowerBound; // 95% prediction interval
+    private double upperBound;
     private String timeframe;
     private List<String> factors;
     private String trend; // "improving", "stable", "declining"
@@ -30,6 +32,14 @@ public class MoodPrediction {
         this.confidence = Math.max(0.0, Math.min(1.0, confidence)); 
     }
     
+    public double getLowerBound() { return lowerBound; }
+    public double getUpperBound() { return upperBound; }
+    
+    public void setPredictionInterval(double lowerBound, double upperBound) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+    
     public String getTimeframe() { return timeframe; }
     public void setTimeframe(String timeframe) { this.timeframe = timeframe; }
     
@@ -41,7 +51,7 @@ public class MoodPrediction {
     
     @Override
     public String toString() {
-        return String.format("MoodPrediction{mood=%.1f, confidence=%.0f%%, trend=%s}", 
-                           predictedMood, confidence * 100, trend);
+        return String.format("MoodPrediction{mood=%.1f, interval=[%.1f, %.1f], confidence=%.0f%%, trend=%s}", 
+                           predictedMood, lowerBound, upperBound, confidence * 100, trend);
     }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.example.mental_health;
+
+/**
+ * Mood aggregates over any range of days, from Fenwick trees keyed by epoch day.
+ *
+ * The trees hold, for each day, the entry count, the sum and sum of squares of the
+ * moods, and the sums of x, x² and x·mood with x the day relative to the first day
+ * covered. Any range then gives its mean, variance and regression slope (per day)
+ * in O(log n), and a changed entry updates the trees in O(log n), n being the number
+ * of days covered. Days outside the covered span are made room for by rebuilding the
+ * trees in linear time, with spare capacity, so extending the history is amortized.
+ */
+public class MoodRangeIndex implements DateIndexedList.ChangeListener<MoodEntry> {
+
+    private static final int MIN_CAPACITY = 64;
+
+    private int baseDay;
+    private int capacity;
+    private byte[] moods = new byte[0];   // mood of each day, 0 without entry
+    // Fenwick trees, 1-based
+    private int[] counts;
+    private int[] sums;
+    private int[] sumSquares;
+    private long[] sumDays;
+    private long[] sumDaySquares;
+    private long[] sumDayMoods;
+    // Whether the arrays are shared with a copy, and must be copied before being changed
+    private boolean shared;
+
+    public MoodRangeIndex() {
+        allocate(0, 0);
+    }
+
+    /**
+     * Indexes the moods of columns
+     */
+    public MoodRangeIndex(MoodColumns columns) {
+        int size = columns.size();
+        int[] epochDays = columns.epochDays();
+        if (size == 0) {
+            allocate(0, 0);
+            return;
+        }
+        int first = epochDays[0];
+        int last = epochDays[size - 1];
+        baseDay = first;
+        capacity = Math.max(MIN_CAPACITY, (last - first + 1) + (last - first + 1) / 4);
+        moods = new byte[capacity];
+        for (int i = 0; i < size; i++) {
+            moods[epochDays[i] - first] = columns.moods()[i];
+        }
+        build();
+    }
+
+    /**
+     * Copies the index of another profile, sharing the trees until either index changes
+     */
+    public MoodRangeIndex(MoodRangeIndex other) {
+        baseDay = other.baseDay;
+        capacity = other.capacity;
+        moods = other.moods;
+        counts = other.counts;
+        sums = other.sums;
+        sumSquares = other.sumSquares;
+        sumDays = other.sumDays;
+        sumDaySquares = other.sumDaySquares;
+        sumDayMoods = other.sumDayMoods;
+        shared = true;
+        other.shared = true;
+    }
+
+    /**
+     * Aggregates of the entries dated from one day to another, inclusive
+     */
+    public Aggregate query(long fromDay, long toDay) {
+        Aggregate aggregate = new Aggregate();
+        long from = Math.max(fromDay, baseDay) - baseDay;
+        long to = Math.min(toDay, baseDay + capacity - 1L) - baseDay;
+        if (from > to) return aggregate;
+        accumulate(aggregate, (int) to + 1, 1);
+        accumulate(aggregate, (int) from, -1);
+        return aggregate;
+    }
+
+    /**
+     * Mood of a day, or 0 if it has no entry
+     */
+    public int moodAt(long epochDay) {
+        long position = epochDay - baseDay;
+        return position < 0 || position >= capacity ? 0 : moods[(int) position];
+    }
+
+    /**
+     * Estimated heap footprint of the trees
+     */
+    public long estimatedSizeBytes() {
+        return (long) capacity * (1 + 3 * 4 + 3 * 8);
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        set(entry.getDate().toEpochDay(), entry.getMoodLevel());
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        set(entry.getDate().toEpochDay(), entry.getMoodLevel());
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        set(entry.getDate().toEpochDay(), 0);
+    }
+
+    private void set(long epochDay, int mood) {
+        if (capacity == 0 || epochDay < baseDay || epochDay >= baseDay + (long) capacity) {
+            if (mood == 0) return;
+            extendTo(epochDay);
+        }
+        int position = (int) (epochDay - baseDay);
+        int previous = moods[position];
+        if (previous == mood) return;
+        unshare();
+        moods[position] = (byte) mood;
+
+        int count = (mood != 0 ? 1 : 0) - (previous != 0 ? 1 : 0);
+        int sum = mood - previous;
+        int sumSquare = mood * mood - previous * previous;
+        long x = position;
+        for (int i = position + 1; i <= capacity; i += i & -i) {
+            counts[i] += count;
+            sums[i] += sum;
+            sumSquares[i] += sumSquare;
+            sumDays[i] += count * x;
+            sumDaySquares[i] += count * x * x;
+            sumDayMoods[i] += sum * x;
+        }
+    }
+
+    private void accumulate(Aggregate aggregate, int end, int sign) {
+        for (int i = end; i > 0; i -= i & -i) {
+            aggregate.count += sign * counts[i];
+            aggregate.sum += sign * sums[i];
+            aggregate.sumSquares += sign * sumSquares[i];
+            aggregate.sumDays += sign * sumDays[i];
+            aggregate.sumDaySquares += sign * sumDaySquares[i];
+            aggregate.sumDayMoods += sign * sumDayMoods[i];
+        }
+    }
+
+    private void unshare() {
+        if (!shared) return;
+        moods = moods.clone();
+        counts = counts.clone();
+        sums = sums.clone();
+        sumSquares = sumSquares.clone();
+        sumDays = sumDays.clone();
+        sumDaySquares = sumDaySquares.clone();
+        sumDayMoods = sumDayMoods.clone();
+        shared = false;
+    }
+
+    /**
+     * Rebuilds the trees over a span including a day, keeping room to grow on both sides
+     */
+    private void extendTo(long epochDay) {
+        if (capacity == 0) {
+            allocate((int) epochDay, MIN_CAPACITY);
+            return;
+        }
+        long first = Math.min(baseDay, epochDay);
+        long last = Math.max(baseDay + (long) capacity - 1, epochDay);
+        long span = last - first + 1;
+        int newCapacity = (int) Math.max(span + span / 2, capacity * 2L);
+        // Spare room goes to the side that grew
+        int newBase = (int) (epochDay < baseDay ? last - newCapacity + 1 : first);
+        byte[] newMoods = new byte[newCapacity];
+        System.arraycopy(moods, 0, newMoods, baseDay - newBase, capacity);
+        baseDay = newBase;
+        capacity = newCapacity;
+        moods = newMoods;
+        build();
+    }
+
+    private void allocate(int base, int newCapacity) {
+        baseDay = base;
+        capacity = newCapacity;
+        moods = new byte[newCapacity];
+        build();
+    }
+
+    /**
+     * Builds the trees from the moods in linear time, each node passing its total to its parent.
+     * The x of a day is its position, so sums stay small however far the dates are from 1970.
+     */
+    private void build() {
+        // Every array is new, including the moods
+        shared = false;
+        counts = new int[capacity + 1];
+        sums = new int[capacity + 1];
+        sumSquares = new int[capacity + 1];
+        sumDays = new long[capacity + 1];
+        sumDaySquares = new long[capacity + 1];
+        sumDayMoods = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            int mood = moods[i - 1];
+            if (mood != 0) {
+                long x = i - 1;
+                counts[i] += 1;
+                sums[i] += mood;
+                sumSquares[i] += mood * mood;
+                sumDays[i] += x;
+                sumDaySquares[i] += x * x;
+                sumDayMoods[i] += mood * x;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                counts[parent] += counts[i];
+                sums[parent] += sums[i];
+                sumSquares[parent] += sumSquares[i];
+                sumDays[parent] += sumDays[i];
+                sumDaySquares[parent] += sumDaySquares[i];
+                sumDayMoods[parent] += sumDayMoods[i];
+            }
+        }
+    }
+
+    /**
+     * Aggregates of a range of days
+     */
+    public static class Aggregate {
+        private int count;
+        private long sum;
+        private long sumSquares;
+        private long sumDays;
+        private long sumDaySquares;
+        private long sumDayMoods;
+
+        public int getCount() { return count; }
+        public long getSum() { return sum; }
+        public long getSumSquares() { return sumSquares; }
+
+        /**
+         * Mean mood, or the given default for an empty range
+         */
+        public double getMean(double defaultMood) {
+            return count == 0 ? defaultMood : (double) sum / count;
+        }
+
+        /**
+         * Population variance of the moods
+         */
+        public double getVariance() {
+            if (count == 0) return 0.0;
+            double mean = (double) sum / count;
+            return Math.max(0, (double) sumSquares / count - mean * mean);
+        }
+
+        /**
+         * Least-squares slope of the mood against the date, in mood points per day
+         */
+        public double getTrendSlope() {
+            if (count < 2) return 0.0;
+            double denominator = (double) count * sumDaySquares - (double) sumDays * sumDays;
+            if (denominator == 0) return 0.0;
+            return ((double) count * sumDayMoods - (double) sumDays * sum) / denominator;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Aggregate{count=%d, mean=%.2f, variance=%.2f, slope=%.3f}",
+                    count, getMean(Double.NaN), getVariance(), getTrendSlope());
+        }
+    }
+}
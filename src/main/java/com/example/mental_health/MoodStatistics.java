@@ -0,0 +1,54 @@
+package com.example.mental_health;
+
+/**
+ * Statistics of a mood history, from which MoodAnalyzer builds a MoodAnalysisResult.
+ *
+ * Entries are indexed from the oldest one (index 0) and weekdays from Monday (0) to Sunday (6).
+ */
+public interface MoodStatistics {
+
+    int POSITIVE = 1;   // mood 4 and up
+    int NEUTRAL = 0;
+    int NEGATIVE = -1;  // mood 2 and below
+
+    int getCount();
+
+    double getAverageMood();
+
+    /**
+     * Least-squares slope of the mood over the entry index
+     */
+    double getTrendSlope();
+
+    /**
+     * Population standard deviation scaled to 0-100 (2 being the largest possible on a 1-5 scale)
+     */
+    double getVolatilityScore();
+
+    /**
+     * Number of entries whose mood differs from the previous entry's
+     */
+    int getChangeCount();
+
+    long getWeekdaySum(int weekdayIndex);
+
+    int getWeekdayCount(int weekdayIndex);
+
+    int getMaxPositiveStreak();
+
+    int getMaxNegativeStreak();
+
+    /**
+     * Length of the run of same-kind moods ending with the most recent entry
+     */
+    int getCurrentStreak();
+
+    /**
+     * Kind of the current streak: {@link #POSITIVE}, {@link #NEGATIVE} or {@link #NEUTRAL}
+     */
+    int getCurrentStreakKind();
+
+    static int kindOf(int mood) {
+        return mood >= 4 ? POSITIVE : mood <= 2 ? NEGATIVE : NEUTRAL;
+    }
+}
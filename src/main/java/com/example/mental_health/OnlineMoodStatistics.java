@@ -0,0 +1,224 @@
+package com.example.mental_health;
+
+/**
+ * Mood statistics of a profile, updated as its mood entries change instead of being
+ * recomputed from the whole history for every analysis.
+ *
+ * The mean and variance follow Welford's method, which also lets a value be retracted
+ * when the entry of an existing date is overwritten. The regression sums, change count
+ * and streaks are updated in constant time when an entry is added after the others
+ * (the usual case: today's mood) or replaced by one of the same kind.
+ * A change that shifts the index of later entries (backfilling a past day, removing
+ * an entry) instead marks the statistics stale, and they are recomputed in a single
+ * pass over the mood columns when next read.
+ *
+ * Neighbouring moods are read from the MoodColumns, so this listener must be
+ * registered after them on the same list. Weekday sums are read from the profile's
+ * WeekdayMoodAggregates, which never need recomputing.
+ */
+public class OnlineMoodStatistics implements DateIndexedList.ChangeListener<MoodEntry>, MoodStatistics {
+
+    private final MoodColumns columns;
+    private final WeekdayMoodAggregates weekdays;
+
+    private boolean stale;
+    private int count;
+    private double mean;
+    private double m2;           // sum of squared deviations from the mean
+    private long sumIndexMood;   // sum of mood times entry index, for the regression
+    private int changeCount;
+    private int maxPositiveStreak;
+    private int maxNegativeStreak;
+    private int currentStreak;
+    private int currentStreakKind = NEUTRAL;
+
+    public OnlineMoodStatistics(MoodColumns columns, WeekdayMoodAggregates weekdays) {
+        this.columns = columns;
+        this.weekdays = weekdays;
+        this.stale = columns.size() > 0;
+    }
+
+    /**
+     * Copies the statistics of another profile whose columns and weekday aggregates were copied too
+     */
+    public OnlineMoodStatistics(OnlineMoodStatistics other, MoodColumns columns, WeekdayMoodAggregates weekdays) {
+        this.columns = columns;
+        this.weekdays = weekdays;
+        this.stale = other.stale;
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+        this.sumIndexMood = other.sumIndexMood;
+        this.changeCount = other.changeCount;
+        this.maxPositiveStreak = other.maxPositiveStreak;
+        this.maxNegativeStreak = other.maxNegativeStreak;
+        this.currentStreak = other.currentStreak;
+        this.currentStreakKind = other.currentStreakKind;
+    }
+
+    /**
+     * Resets to the statistics of an empty history
+     */
+    public void clear() {
+        stale = false;
+        count = 0;
+        mean = m2 = 0;
+        sumIndexMood = 0;
+        changeCount = 0;
+        maxPositiveStreak = maxNegativeStreak = currentStreak = 0;
+        currentStreakKind = NEUTRAL;
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        if (stale) return;
+        if (position < columns.size() - 1) {
+            // Later entries move up by one index
+            stale = true;
+            return;
+        }
+
+        int mood = entry.getMoodLevel();
+        count++;
+        double delta = mood - mean;
+        mean += delta / count;
+        m2 += delta * (mood - mean);
+        sumIndexMood += (long) position * mood;
+
+        int kind = MoodStatistics.kindOf(mood);
+        if (position > 0 && columns.moods()[position - 1] != mood) changeCount++;
+        currentStreak = position > 0 && kind == currentStreakKind ? currentStreak + 1 : 1;
+        currentStreakKind = kind;
+        if (kind == POSITIVE) maxPositiveStreak = Math.max(maxPositiveStreak, currentStreak);
+        if (kind == NEGATIVE) maxNegativeStreak = Math.max(maxNegativeStreak, currentStreak);
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        if (stale) return;
+        int oldMood = previous.getMoodLevel();
+        int mood = entry.getMoodLevel();
+        if (oldMood == mood) return;
+        if (MoodStatistics.kindOf(oldMood) != MoodStatistics.kindOf(mood)) {
+            // Runs may merge or split anywhere in the history
+            stale = true;
+            return;
+        }
+
+        // Retracts the old value and adds the new one, the count being unchanged
+        double previousMean = mean;
+        mean += (double) (mood - oldMood) / count;
+        m2 += (mood - oldMood) * (mood - mean + oldMood - previousMean);
+        sumIndexMood += (long) position * (mood - oldMood);
+
+        byte[] moods = columns.moods();
+        if (position > 0) {
+            changeCount += (moods[position - 1] != mood ? 1 : 0) - (moods[position - 1] != oldMood ? 1 : 0);
+        }
+        if (position + 1 < columns.size()) {
+            changeCount += (moods[position + 1] != mood ? 1 : 0) - (moods[position + 1] != oldMood ? 1 : 0);
+        }
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        stale = true;
+    }
+
+    @Override
+    public void entriesMerged(DateIndexedList<? extends MoodEntry> list, DateIndexedList.Merge<? extends MoodEntry> merge) {
+        // The columns are rebuilt at once, so the intermediate states single changes are checked against are gone
+        stale = true;
+    }
+
+    /**
+     * Whether the next read will recompute the statistics from the columns
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    @Override
+    public int getCount() {
+        refresh();
+        return count;
+    }
+
+    @Override
+    public double getAverageMood() {
+        refresh();
+        return count == 0 ? 3.0 : mean;
+    }
+
+    @Override
+    public double getTrendSlope() {
+        refresh();
+        return MoodAnalysisKernel.trendSlope(count, mean * count, sumIndexMood);
+    }
+
+    @Override
+    public double getVolatilityScore() {
+        refresh();
+        return count < 2 ? 0.0 : MoodAnalysisKernel.volatilityScore(m2 / count);
+    }
+
+    @Override
+    public int getChangeCount() {
+        refresh();
+        return changeCount;
+    }
+
+    @Override
+    public long getWeekdaySum(int weekdayIndex) {
+        return weekdays.getSum(weekdayIndex);
+    }
+
+    @Override
+    public int getWeekdayCount(int weekdayIndex) {
+        return weekdays.getCount(weekdayIndex);
+    }
+
+    @Override
+    public int getMaxPositiveStreak() {
+        refresh();
+        return maxPositiveStreak;
+    }
+
+    @Override
+    public int getMaxNegativeStreak() {
+        refresh();
+        return maxNegativeStreak;
+    }
+
+    @Override
+    public int getCurrentStreak() {
+        refresh();
+        return currentStreak;
+    }
+
+    @Override
+    public int getCurrentStreakKind() {
+        refresh();
+        return currentStreakKind;
+    }
+
+    /**
+     * Recomputes stale statistics now rather than on the next read
+     */
+    public void refresh() {
+        if (!stale) return;
+        MoodAnalysisKernel kernel = new MoodAnalysisKernel();
+        kernel.analyze(columns.epochDays(), columns.moods(), columns.size());
+
+        count = kernel.getCount();
+        mean = count == 0 ? 0 : (double) kernel.getSum() / count;
+        m2 = count == 0 ? 0 : kernel.getSumSquares() - (double) kernel.getSum() * kernel.getSum() / count;
+        sumIndexMood = kernel.getSumIndexMood();
+        changeCount = kernel.getChangeCount();
+        maxPositiveStreak = kernel.getMaxPositiveStreak();
+        maxNegativeStreak = kernel.getMaxNegativeStreak();
+        currentStreak = kernel.getCurrentStreak();
+        currentStreakKind = kernel.getCurrentStreakKind();
+        stale = false;
+    }
+}
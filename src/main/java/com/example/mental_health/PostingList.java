@@ -0,0 +1,176 @@
+package com.example.mental_health;
+
+import java.util.Arrays;
+
+/**
+ * Days on which a term occurs, with its frequency and the length of the text of each day,
+ * compressed as variable-length integers. Days are stored in ascending order as deltas
+ * from the previous day, so a term used every few days takes about three bytes per day.
+ *
+ * Entries are mostly saved for the current day, so adding a day after the last one
+ * appends to the encoded bytes and replacing the last day cuts it off first; other
+ * changes decode and encode the list again.
+ */
+final class PostingList {
+
+    private byte[] data = new byte[8];
+    private int length;   // bytes used in data
+    private int size;     // number of days
+    private int lastDay;
+    private int lastOffset = -1;   // start of the last posting, or -1 once it is unknown
+    private int previousDay;       // day of the posting before the last one
+
+    /**
+     * Adds a day, or replaces it if the term already occurs on that day
+     */
+    void add(int day, int frequency, int textLength) {
+        if (size > 0 && day == lastDay && lastOffset >= 0) {
+            truncateLast();
+        }
+        if (size == 0 || day > lastDay) {
+            append(day, frequency, textLength);
+            return;
+        }
+        int[] days = new int[size + 1];
+        int[] frequencies = new int[size + 1];
+        int[] textLengths = new int[size + 1];
+        int count = decode(days, frequencies, textLengths);
+        int position = Arrays.binarySearch(days, 0, count, day);
+        if (position >= 0) {
+            frequencies[position] = frequency;
+            textLengths[position] = textLength;
+        } else {
+            position = -position - 1;
+            System.arraycopy(days, position, days, position + 1, count - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, count - position);
+            System.arraycopy(textLengths, position, textLengths, position + 1, count - position);
+            days[position] = day;
+            frequencies[position] = frequency;
+            textLengths[position] = textLength;
+            count++;
+        }
+        encode(days, frequencies, textLengths, count);
+    }
+
+    /**
+     * Removes a day
+     *
+     * @return the text length stored for the day, or -1 if the term doesn't occur on that day
+     */
+    int remove(int day) {
+        if (size == 0 || day > lastDay) return -1;
+        if (day == lastDay && lastOffset >= 0) {
+            // Fast path for today's entry: the last posting is cut off
+            int[] last = new int[3];
+            readPosting(lastOffset, last);
+            truncateLast();
+            return last[2];
+        }
+        int[] days = new int[size];
+        int[] frequencies = new int[size];
+        int[] textLengths = new int[size];
+        int count = decode(days, frequencies, textLengths);
+        int position = Arrays.binarySearch(days, 0, count, day);
+        if (position < 0) return -1;
+        int removed = textLengths[position];
+        System.arraycopy(days, position + 1, days, position, count - position - 1);
+        System.arraycopy(frequencies, position + 1, frequencies, position, count - position - 1);
+        System.arraycopy(textLengths, position + 1, textLengths, position, count - position - 1);
+        encode(days, frequencies, textLengths, count - 1);
+        return removed;
+    }
+
+    /**
+     * Decodes the postings, in ascending day order, into arrays of at least size() elements
+     *
+     * @return the number of days
+     */
+    int decode(int[] days, int[] frequencies, int[] textLengths) {
+        int[] posting = new int[3];
+        int offset = 0;
+        int day = 0;
+        for (int i = 0; i < size; i++) {
+            offset = readPosting(offset, posting);
+            // The first day is zig-zag encoded, as days before 1970 are negative
+            day = i == 0 ? (posting[0] >>> 1) ^ -(posting[0] & 1) : day + posting[0];
+            days[i] = day;
+            frequencies[i] = posting[1];
+            textLengths[i] = posting[2];
+        }
+        return size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Encoded size in bytes
+     */
+    int sizeBytes() {
+        return data.length;
+    }
+
+    private void truncateLast() {
+        length = lastOffset;
+        lastDay = previousDay;
+        lastOffset = -1;
+        size--;
+    }
+
+    /**
+     * Reads the day delta, frequency and text length of a posting
+     *
+     * @return the offset of the next posting
+     */
+    private int readPosting(int offset, int[] values) {
+        for (int v = 0; v < values.length; v++) {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            values[v] = value;
+        }
+        return offset;
+    }
+
+    private void append(int day, int frequency, int textLength) {
+        ensureCapacity(15);
+        lastOffset = length;
+        previousDay = lastDay;
+        writeUnsigned(size == 0 ? (day << 1) ^ (day >> 31) : day - lastDay);
+        writeUnsigned(frequency);
+        writeUnsigned(textLength);
+        lastDay = day;
+        size++;
+    }
+
+    private void encode(int[] days, int[] frequencies, int[] textLengths, int count) {
+        length = 0;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            append(days[i], frequencies[i], textLengths[i]);
+        }
+        if (data.length > 2 * length + 8) {
+            data = Arrays.copyOf(data, length + 8);
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + extra, data.length * 3 / 2));
+        }
+    }
+
+    private void writeUnsigned(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least-recently-used cache of user profiles in front of a ProfileStore,
+ * bounded by the estimated size of the profiles in bytes rather than by their number.
+ *
+ * Profiles are loaded on demand. Changed profiles must be reported with
+ * {@link #markDirty(UserProfile)}; they are written back to the store when evicted
+ * and on {@link #flush()}. The cache is split in independently locked segments,
+ * each holding a share of the budget, so users of different segments never contend.
+ * Hits don't lock at all: each segment is a concurrent map, and a hit only stamps
+ * the profile's node with the time of the access. Only loads, changes and evictions
+ * take the segment's lock; evictions sort the segment by access time and evict the
+ * least recently used profiles down to 7/8 of the budget, so the sort is amortized
+ * over the loads that follow.
+ * Without a store nothing can be evicted and the cache is unbounded.
+ */
+public class ProfileCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final ProfileStore store;
+    private final long maximumWeight;
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder totalLoadTimeNanos = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder writeBackCount = new LongAdder();
+
+    /**
+     * @param store where evicted profiles are written and missing ones loaded from (null for memory only)
+     * @param maximumWeightBytes budget in estimated bytes, see {@link UserProfile#estimatedSizeBytes()}
+     */
+    public ProfileCache(ProfileStore store, long maximumWeightBytes) {
+        this.store = store;
+        this.maximumWeight = store == null ? Long.MAX_VALUE : maximumWeightBytes;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(this.maximumWeight / SEGMENT_COUNT);
+        }
+    }
+
+    /**
+     * Returns the profile of a user, loading it from the store if needed
+     *
+     * @return the profile, or null if the user is neither cached nor stored
+     */
+    public UserProfile get(String userId) {
+        return segmentFor(userId).get(userId, false);
+    }
+
+    /**
+     * Returns the profile of a user, loading it from the store or creating an empty one if needed
+     */
+    public UserProfile getOrCreate(String userId) {
+        return segmentFor(userId).get(userId, true);
+    }
+
+    /**
+     * Returns the profile of a user if it is cached, without loading it
+     */
+    public UserProfile getIfCached(String userId) {
+        return segmentFor(userId).getIfCached(userId);
+    }
+
+    /**
+     * Reads the profile of a user from the store without caching it, so that only the caller
+     * holds the copy. Meant for scans of every user, which would otherwise evict the profiles
+     * in use for profiles read once. A cached profile is more recent than the stored one:
+     * check {@link #getIfCached} first.
+     *
+     * @return the profile, or null if the user is not stored
+     */
+    public UserProfile loadUncached(String userId) {
+        if (store == null) return null;
+        try {
+            return store.load(userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the profile of " + userId, e);
+        }
+    }
+
+    /**
+     * Records that a profile changed: its weight is recomputed and it will be written back
+     * before being evicted. Also (re)inserts the profile if it is not cached.
+     */
+    public void markDirty(UserProfile profile) {
+        segmentFor(profile.getUserId()).markDirty(profile);
+    }
+
+    /**
+     * Adds an unchanged profile read from the store, e.g. while warming up from a snapshot.
+     * A profile already cached is kept.
+     *
+     * @return false if the profile's segment has no room left for it
+     */
+    public boolean preload(UserProfile profile) {
+        return segmentFor(profile.getUserId()).preload(profile);
+    }
+
+    /**
+     * Returns the cached profiles by user id, without affecting their recency
+     */
+    public Map<String, UserProfile> cachedProfiles() {
+        Map<String, UserProfile> profiles = new HashMap<>();
+        for (Segment segment : segments) {
+            for (Node node : segment.nodes.values()) {
+                profiles.put(node.profile.getUserId(), node.profile);
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Writes every changed profile back to the store
+     */
+    public void flush() {
+        for (Segment segment : segments) {
+            segment.flush();
+        }
+    }
+
+    // Counters
+
+    public long getHitCount() { return hitCount.sum(); }
+    public long getMissCount() { return missCount.sum(); }
+    public long getLoadCount() { return loadCount.sum(); }
+    public long getTotalLoadTimeNanos() { return totalLoadTimeNanos.sum(); }
+    public long getEvictionCount() { return evictionCount.sum(); }
+    public long getWriteBackCount() { return writeBackCount.sum(); }
+
+    public double getHitRate() {
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    public double getAverageLoadTimeMillis() {
+        long loads = getLoadCount();
+        return loads == 0 ? 0.0 : getTotalLoadTimeNanos() / 1_000_000.0 / loads;
+    }
+
+    /**
+     * Estimated size in bytes of the cached profiles
+     */
+    public long getWeightedSize() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.nodes.size();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProfileCache{profiles=%d, weight=%,d/%s bytes, hitRate=%.1f%%, misses=%d, loads=%d (%.2f ms avg), evictions=%d, writeBacks=%d}",
+                size(), getWeightedSize(), maximumWeight == Long.MAX_VALUE ? "unbounded" : String.format("%,d", maximumWeight),
+                getHitRate() * 100, getMissCount(), getLoadCount(), getAverageLoadTimeMillis(),
+                getEvictionCount(), getWriteBackCount());
+    }
+
+    private Segment segmentFor(String userId) {
+        int hash = userId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+    }
+
+    private void writeBack(UserProfile profile) throws IOException {
+        // Mutations of a profile happen under its monitor
+        synchronized (profile) {
+            profile.getMoodForecaster().refresh();
+            store.store(profile);
+        }
+        writeBackCount.increment();
+    }
+
+    private static final class Node {
+        final UserProfile profile;
+        long weight;
+        boolean dirty;
+        // Segment tick of the last access, written by hits without locking: recency only has to be approximate
+        long accessed;
+        // Copy of accessed that stays put while evictions sort the nodes
+        long sortKey;
+
+        Node(UserProfile profile) {
+            this.profile = profile;
+            this.weight = profile.estimatedSizeBytes();
+        }
+    }
+
+    private final class Segment {
+        // Read without locking; changed only under the segment's lock
+        final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>(64);
+        // Advanced by every insertion: accesses between two insertions are equally recent,
+        // which is all that evictions, made by insertions, can tell apart
+        long tick;
+        final long maximumWeight;
+        long weight;
+
+        Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        UserProfile get(String userId, boolean create) {
+            Node node = nodes.get(userId);
+            if (node != null) {
+                touch(node);
+                hitCount.increment();
+                return node.profile;
+            }
+            return loadOrCreate(userId, create);
+        }
+
+        private synchronized UserProfile loadOrCreate(String userId, boolean create) {
+            // Loaded by another thread since the lookup
+            Node node = nodes.get(userId);
+            if (node != null) {
+                touch(node);
+                hitCount.increment();
+                return node.profile;
+            }
+            missCount.increment();
+
+            UserProfile profile = load(userId);
+            if (profile == null) {
+                if (!create) return null;
+                profile = new UserProfile(userId);
+            }
+            insert(new Node(profile));
+            return profile;
+        }
+
+        UserProfile getIfCached(String userId) {
+            Node node = nodes.get(userId);
+            return node == null ? null : node.profile;
+        }
+
+        synchronized boolean preload(UserProfile profile) {
+            if (nodes.containsKey(profile.getUserId())) return true;
+            Node node = new Node(profile);
+            if (weight + node.weight > maximumWeight) return false;
+            nodes.put(profile.getUserId(), node);
+            weight += node.weight;
+            return true;
+        }
+
+        synchronized void markDirty(UserProfile profile) {
+            Node node = nodes.get(profile.getUserId());
+            if (node == null || node.profile != profile) {
+                // Evicted while being modified, or never cached
+                if (node != null) remove(node);
+                node = new Node(profile);
+                node.dirty = true;
+                insert(node);
+                return;
+            }
+            node.dirty = true;
+            long newWeight = profile.estimatedSizeBytes();
+            weight += newWeight - node.weight;
+            node.weight = newWeight;
+            evictIfNeeded();
+        }
+
+        synchronized void flush() {
+            if (store == null) return;
+            for (Node node : nodes.values()) {
+                if (!node.dirty) continue;
+                try {
+                    writeBack(node.profile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not store the profile of " + node.profile.getUserId(), e);
+                }
+                node.dirty = false;
+            }
+        }
+
+        private UserProfile load(String userId) {
+            if (store == null) return null;
+            long start = System.nanoTime();
+            try {
+                return store.load(userId);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load the profile of " + userId, e);
+            } finally {
+                totalLoadTimeNanos.add(System.nanoTime() - start);
+                loadCount.increment();
+            }
+        }
+
+        private void touch(Node node) {
+            long now = tick;
+            // Skips the write when nothing was inserted since the last access, the usual case for a hot profile
+            if (node.accessed != now) {
+                node.accessed = now;
+            }
+        }
+
+        private void insert(Node node) {
+            node.accessed = ++tick;
+            nodes.put(node.profile.getUserId(), node);
+            weight += node.weight;
+            evictIfNeeded();
+        }
+
+        private void remove(Node node) {
+            nodes.remove(node.profile.getUserId());
+            weight -= node.weight;
+        }
+
+        /**
+         * Evicts least recently used profiles until the segment fits 7/8 of its budget,
+         * always keeping the most recently used one
+         */
+        private void evictIfNeeded() {
+            if (weight <= maximumWeight) return;
+
+            Node[] byAccess = nodes.values().toArray(new Node[0]);
+            for (Node node : byAccess) {
+                node.sortKey = node.accessed;
+            }
+            Arrays.sort(byAccess, (a, b) -> Long.compare(a.sortKey, b.sortKey));
+
+            List<Node> victims = new ArrayList<>();
+            long target = maximumWeight - maximumWeight / 8;
+            long remaining = weight;
+            for (int i = 0; i < byAccess.length - 1 && remaining > target; i++) {
+                victims.add(byAccess[i]);
+                remaining -= byAccess[i].weight;
+            }
+
+            // Written back while still locked, so that nobody loads a stale copy in the meantime
+            for (Node victim : victims) {
+                if (victim.dirty) {
+                    try {
+                        writeBack(victim.profile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Could not store the profile of " + victim.profile.getUserId(), e);
+                    }
+                }
+                remove(victim);
+                evictionCount.increment();
+            }
+        }
+    }
+}
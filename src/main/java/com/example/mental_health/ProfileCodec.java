@@ -0,0 +1,242 @@
+package com.example.mental_health;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a user profile.
+ *
+ * Entries are written oldest first with their date as a varint delta from the
+ * previous entry, so a daily history costs one byte per date. Mood levels are
+ * packed two per byte. Notes and journal texts are written as they are kept in
+ * memory (compressed, with a reference to their CompressedTextStore dictionary),
+ * so decoding doesn't compress them again. Derived statistics are not stored;
+ * they are recomputed when the profile is read. Journal sentiment scores are stored
+ * with the version of the lexicon they were computed with, as scoring them again would
+ * mean scanning every text, and so is the state of the mood forecasting model, which
+ * would otherwise be fitted again.
+ */
+final class ProfileCodec {
+
+    private static final int MAGIC = 0x50524F46; // "PROF"
+    private static final int VERSION = 1;
+
+    // Text tags: null, plain UTF-8, or compressed with the dictionary (tag - 2) of the profile's table
+    private static final int NULL_TEXT = 0;
+    private static final int PLAIN_TEXT = 1;
+
+    private ProfileCodec() {}
+
+    /**
+     * Encodes a profile, under its monitor and with its forecaster fitted
+     * (see {@link MoodForecaster#refresh()}), since encoding doesn't modify it
+     */
+    static void write(DataOutput out, UserProfile profile) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        VarInts.writeString(out, profile.getUserId());
+
+        DateIndexedList<MoodEntry> moodEntries = profile.getMoodEntries();
+        DateIndexedList<JournalEntry> journalEntries = profile.getJournalEntries();
+
+        // Dictionaries used by the texts of the profile (usually one)
+        List<CompressedTextStore> stores = new ArrayList<>(2);
+        for (MoodEntry entry : moodEntries) {
+            addStore(stores, entry.getCompressedNote());
+        }
+        for (JournalEntry entry : journalEntries) {
+            addStore(stores, entry.getCompressedContent());
+        }
+        VarInts.writeUnsigned(out, stores.size());
+        for (CompressedTextStore store : stores) {
+            out.writeInt(store.getId());
+        }
+
+        // Moods: all day deltas, then the mood levels as nibbles, then the notes
+        int moodCount = moodEntries.size();
+        VarInts.writeUnsigned(out, moodCount);
+        int previousDay = 0;
+        for (int i = moodCount - 1; i >= 0; i--) {
+            int day = moodEntries.epochDayAt(i);
+            VarInts.writeSigned(out, day - previousDay);
+            previousDay = day;
+        }
+        for (int i = moodCount - 1; i >= 0; i -= 2) {
+            int low = moodEntries.get(i).getMoodLevel();
+            int high = i > 0 ? moodEntries.get(i - 1).getMoodLevel() : 0;
+            out.writeByte(low | high << 4);
+        }
+        for (int i = moodCount - 1; i >= 0; i--) {
+            writeText(out, moodEntries.get(i).getCompressedNote(), stores);
+        }
+        profile.getMoodForecaster().write(out);
+
+        VarInts.writeUnsigned(out, journalEntries.size());
+        previousDay = 0;
+        for (int i = journalEntries.size() - 1; i >= 0; i--) {
+            JournalEntry entry = journalEntries.get(i);
+            int day = journalEntries.epochDayAt(i);
+            VarInts.writeSigned(out, day - previousDay);
+            writeText(out, entry.getCompressedContent(), stores);
+            out.writeDouble(entry.getSentimentScore());
+            out.writeInt(entry.getSentimentLexiconVersion());
+            previousDay = day;
+        }
+
+        writeStrings(out, profile.getGoals());
+        writeStrings(out, profile.getReminders());
+    }
+
+    /**
+     * Decodes a profile from the buffer's position, leaving the buffer after it
+     */
+    static UserProfile read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an encoded user profile");
+            }
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IOException("Unsupported profile version " + version);
+            }
+            UserProfile profile = new UserProfile(VarInts.readString(in));
+            CompressedTextStore[] stores = readStores(in);
+
+            List<MoodEntry> moodEntries = readMoodEntries(in, stores);
+            // Restored first, so that adding the entries doesn't fit the model again
+            profile.getMoodForecaster().read(in);
+            profile.getMoodEntries().addAll(moodEntries);
+
+            int journalCount = readCount(in);
+            List<JournalEntry> journalEntries = new ArrayList<>(journalCount);
+            int day = 0;
+            for (int i = 0; i < journalCount; i++) {
+                day += VarInts.readSigned(in);
+                JournalEntry entry = new JournalEntry(LocalDate.ofEpochDay(day), null);
+                entry.setCompressedContent(readText(in, stores));
+                double score = in.getDouble();
+                entry.setSentiment(score, entry.getCompressedContent(), in.getInt());
+                journalEntries.add(entry);
+            }
+            profile.getJournalEntries().addAll(journalEntries);
+
+            readStrings(in, profile.getGoals());
+            readStrings(in, profile.getReminders());
+            return profile;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated user profile", e);
+        }
+    }
+
+    /**
+     * Reads only the user id of an encoded profile
+     */
+    static String readUserId(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not an encoded user profile");
+        }
+        in.get();
+        return VarInts.readString(in);
+    }
+
+    /**
+     * Reads the moods: all day deltas, then the packed mood levels, then the notes
+     */
+    private static List<MoodEntry> readMoodEntries(ByteBuffer in, CompressedTextStore[] stores) throws IOException {
+        int moodCount = readCount(in);
+        int[] days = new int[moodCount];
+        int day = 0;
+        for (int i = 0; i < moodCount; i++) {
+            day += VarInts.readSigned(in);
+            days[i] = day;
+        }
+        byte[] moods = new byte[(moodCount + 1) / 2];
+        in.get(moods);
+
+        List<MoodEntry> moodEntries = new ArrayList<>(moodCount);
+        for (int i = 0; i < moodCount; i++) {
+            int moodLevel = (moods[i >> 1] >> ((i & 1) << 2)) & 0x0F;
+            MoodEntry entry = new MoodEntry(LocalDate.ofEpochDay(days[i]), moodLevel, null);
+            entry.setCompressedNote(readText(in, stores));
+            moodEntries.add(entry);
+        }
+        return moodEntries;
+    }
+
+    /**
+     * Reads a number of elements, each taking at least a byte, so that a corrupt count
+     * fails before anything is allocated for it
+     */
+    private static int readCount(ByteBuffer in) throws IOException {
+        int count = VarInts.readUnsigned(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Invalid element count " + count);
+        }
+        return count;
+    }
+
+    private static void addStore(List<CompressedTextStore> stores, CompressedText text) {
+        if (text != null && text.store() != null && !stores.contains(text.store())) {
+            stores.add(text.store());
+        }
+    }
+
+    private static CompressedTextStore[] readStores(ByteBuffer in) throws IOException {
+        CompressedTextStore[] stores = new CompressedTextStore[readCount(in)];
+        for (int i = 0; i < stores.length; i++) {
+            int id = in.getInt();
+            stores[i] = CompressedTextStore.forId(id);
+            if (stores[i] == null) {
+                throw new IOException(String.format("Unknown text dictionary %08x", id));
+            }
+        }
+        return stores;
+    }
+
+    private static void writeText(DataOutput out, CompressedText text, List<CompressedTextStore> stores) throws IOException {
+        if (text == null) {
+            VarInts.writeUnsigned(out, NULL_TEXT);
+            return;
+        }
+        VarInts.writeUnsigned(out, text.store() == null ? PLAIN_TEXT : 2 + stores.indexOf(text.store()));
+        VarInts.writeUnsigned(out, text.length());
+        byte[] data = text.data();
+        VarInts.writeUnsigned(out, data.length);
+        out.write(data);
+    }
+
+    private static CompressedText readText(ByteBuffer in, CompressedTextStore[] stores) throws IOException {
+        int tag = VarInts.readUnsigned(in);
+        if (tag == NULL_TEXT) return null;
+        if (tag < 0 || tag - 2 >= stores.length) {
+            throw new IOException("Invalid text dictionary reference " + tag);
+        }
+        int length = VarInts.readUnsigned(in);
+        int size = VarInts.readUnsigned(in);
+        if (length < 0 || size < 0 || size > in.remaining()) {
+            throw new IOException("Invalid text length " + size);
+        }
+        byte[] data = new byte[size];
+        in.get(data);
+        return new CompressedText(tag == PLAIN_TEXT ? null : stores[tag - 2], data, length);
+    }
+
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        VarInts.writeUnsigned(out, values.size());
+        for (String value : values) {
+            VarInts.writeString(out, value);
+        }
+    }
+
+    private static void readStrings(ByteBuffer in, List<String> values) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            values.add(VarInts.readString(in));
+        }
+    }
+}
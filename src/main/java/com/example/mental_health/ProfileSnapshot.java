@@ -0,0 +1,294 @@
+package com.example.mental_health;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Point-in-time binary snapshot of every user profile.
+ *
+ * Layout: a header (magic, version, write-ahead log segment to replay from), the
+ * ProfileCodec-encoded profiles sorted by user id, an index of (offset, length)
+ * pairs and a footer locating the index. The file is memory-mapped when opened:
+ * a single profile is found by binary search on the index, and the whole snapshot
+ * can be decoded in parallel since profiles are independent.
+ * Snapshots are written to a temporary file and renamed once complete.
+ */
+public class ProfileSnapshot {
+
+    /**
+     * Supplies the current state of the profiles being written
+     */
+    public interface ProfileSource {
+        UserProfile profile(String userId) throws IOException;
+    }
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;  // magic, version, log segment id
+    private static final int INDEX_ENTRY_BYTES = 12; // offset, length
+    private static final int FOOTER_BYTES = 16;  // index offset, user count, magic
+    private static final int DECODE_CHUNK = 1024;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path file;
+    private final MemorySegment data;
+    private final long logSegmentId;
+    private final long indexOffset;
+    private final int userCount;
+    private long writeNanos;
+    private volatile long restoreNanos;
+
+    private ProfileSnapshot(Path file, MemorySegment data) throws IOException {
+        this.file = file;
+        this.data = data;
+        if (data.byteSize() < HEADER_BYTES + FOOTER_BYTES
+                || data.get(INT, 0) != MAGIC
+                || data.get(INT, data.byteSize() - 4) != MAGIC) {
+            throw new IOException("Not a complete profile snapshot: " + file);
+        }
+        if (data.get(INT, 4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + data.get(INT, 4) + ": " + file);
+        }
+        this.logSegmentId = data.get(LONG, 8);
+        this.indexOffset = data.get(LONG, data.byteSize() - FOOTER_BYTES);
+        this.userCount = data.get(INT, data.byteSize() - 8);
+    }
+
+    /**
+     * Opens the most recent snapshot of a directory
+     *
+     * @return the snapshot, or null if the directory has none
+     */
+    public static ProfileSnapshot openLatest(Path directory) throws IOException {
+        List<Path> snapshots = listSnapshots(directory);
+        if (snapshots.isEmpty()) return null;
+
+        Path file = snapshots.get(snapshots.size() - 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Unmapped by the garbage collector once no loader uses it anymore
+            MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+            return new ProfileSnapshot(file, data);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given users, then deletes the older snapshots of the directory
+     *
+     * @param logSegmentId first write-ahead log segment whose records are not all in the snapshot
+     * @param sortedUserIds user ids in ascending order, without duplicates
+     */
+    public static ProfileSnapshot write(Path directory, long logSegmentId, Collection<String> sortedUserIds,
+                                        ProfileSource source) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%s%08d%s", PREFIX, logSegmentId, SUFFIX));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        long start = System.nanoTime();
+        long[] offsets = new long[sortedUserIds.size()];
+        int[] lengths = new int[sortedUserIds.size()];
+        int count = 0;
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(4096);
+        DataOutputStream encoder = new DataOutputStream(encoded);
+
+        try (OutputStream stream = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logSegmentId);
+            long offset = HEADER_BYTES;
+
+            for (String userId : sortedUserIds) {
+                UserProfile profile = source.profile(userId);
+                if (profile == null) continue;
+
+                encoded.reset();
+                // Mutations of a profile happen under its monitor
+                synchronized (profile) {
+                    profile.getMoodForecaster().refresh();
+                    ProfileCodec.write(encoder, profile);
+                }
+                encoded.writeTo(out);
+                offsets[count] = offset;
+                lengths[count++] = encoded.size();
+                offset += encoded.size();
+            }
+
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            out.writeLong(offset);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename must be on disk before anything the snapshot replaces is deleted
+        DurableFiles.forceDirectory(directory);
+
+        for (Path older : listSnapshots(directory)) {
+            if (!older.equals(file)) {
+                Files.delete(older);
+            }
+        }
+
+        ProfileSnapshot snapshot = openLatest(directory);
+        snapshot.writeNanos = System.nanoTime() - start;
+        return snapshot;
+    }
+
+    /**
+     * Decodes the profile of a user
+     *
+     * @return the profile, or null if the user is not in the snapshot
+     */
+    public UserProfile load(String userId) throws IOException {
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = userIdAt(middle).compareTo(userId);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return decode(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes every profile in parallel and hands them to the sink, until the sink returns false
+     *
+     * @return the number of profiles accepted by the sink
+     */
+    public long restore(Predicate<UserProfile> sink) {
+        long start = System.nanoTime();
+        AtomicBoolean stopped = new AtomicBoolean();
+        LongAdder restored = new LongAdder();
+        int chunks = (userCount + DECODE_CHUNK - 1) / DECODE_CHUNK;
+
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int end = Math.min(userCount, (chunk + 1) * DECODE_CHUNK);
+            for (int i = chunk * DECODE_CHUNK; i < end && !stopped.get(); i++) {
+                UserProfile profile;
+                try {
+                    profile = decode(i);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Corrupted profile snapshot " + file.getFileName(), e);
+                }
+                if (!sink.test(profile)) {
+                    stopped.set(true);
+                    return;
+                }
+                restored.increment();
+            }
+        });
+
+        restoreNanos = System.nanoTime() - start;
+        return restored.sum();
+    }
+
+    /**
+     * Returns the user ids of the snapshot in ascending order
+     */
+    public List<String> userIds() {
+        List<String> userIds = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            userIds.add(userIdAt(i));
+        }
+        return userIds;
+    }
+
+    /**
+     * First write-ahead log segment to replay on top of this snapshot
+     */
+    public long getLogSegmentId() {
+        return logSegmentId;
+    }
+
+    public int size() {
+        return userCount;
+    }
+
+    /**
+     * Size in bytes of the snapshot file
+     */
+    public long byteSize() {
+        return data.byteSize();
+    }
+
+    /**
+     * Time taken to write this snapshot, or 0 if it was opened rather than written
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * Time taken by the last {@link #restore}, or 0 if none ran
+     */
+    public long getRestoreNanos() {
+        return restoreNanos;
+    }
+
+    // Helper methods
+
+    private UserProfile decode(int index) throws IOException {
+        long entry = indexOffset + (long) index * INDEX_ENTRY_BYTES;
+        long offset = data.get(LONG, entry);
+        int length = data.get(INT, entry + 8);
+        return ProfileCodec.read(data.asSlice(offset, length).asByteBuffer());
+    }
+
+    private String userIdAt(int index) {
+        long entry = indexOffset + (long) index * INDEX_ENTRY_BYTES;
+        MemorySegment record = data.asSlice(data.get(LONG, entry), data.get(INT, entry + 8));
+        try {
+            return ProfileCodec.readUserId(record.asByteBuffer());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupted profile snapshot " + file.getFileName(), e);
+        }
+    }
+
+    private static List<Path> listSnapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return snapshots;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+}
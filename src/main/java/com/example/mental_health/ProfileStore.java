@@ -0,0 +1,21 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+
+/**
+ * Persistent storage of user profiles behind the ProfileCache
+ */
+public interface ProfileStore {
+
+    /**
+     * Loads a stored profile
+     *
+     * @return the profile, or null if none is stored for this user
+     */
+    UserProfile load(String userId) throws IOException;
+
+    /**
+     * Stores a profile, replacing any previous version
+     */
+    void store(UserProfile profile) throws IOException;
+}
@@ -0,0 +1,157 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark of journal sentiment scoring: the former lowercase and String.contains loop
+ * over each keyword, against the SentimentLexicon automaton with the bundled lexicon and
+ * with a large synthetic one. Entries are built from the bundled French samples.
+ *
+ * Usage: SentimentBenchmark [lexicon terms] [entries]   (defaults: 50000 terms, 20000 entries)
+ */
+public class SentimentBenchmark {
+
+    private static final String[] POSITIVE_WORDS = {"heureux", "joie", "bien", "formidable", "excellent", "réussi", "motivation"};
+    private static final String[] NEGATIVE_WORDS = {"triste", "stress", "difficile", "problème", "fatigue", "inquiet", "anxieux"};
+
+    public static void main(String[] args) throws IOException {
+        int terms = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int entryCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Random random = new Random(42);
+
+        List<String> samples = new ArrayList<>();
+        try (InputStream in = SentimentBenchmark.class.getResourceAsStream("/text/french-samples.txt")) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank()) samples.add(line.strip());
+            }
+        }
+        List<String> entries = new ArrayList<>(entryCount);
+        long chars = 0;
+        for (int i = 0; i < entryCount; i++) {
+            StringBuilder entry = new StringBuilder();
+            while (entry.length() < 300) {
+                entry.append(samples.get(random.nextInt(samples.size()))).append(". ");
+                if (random.nextInt(4) == 0) entry.append("Je ne suis pas très bien. ");
+            }
+            entries.add(entry.toString());
+            chars += entry.length();
+        }
+
+        System.out.println("=== Sentiment Scoring Benchmark ===");
+        System.out.printf("%,d entries, %,d characters%n%n", entryCount, chars);
+
+        SentimentLexicon bundled = SentimentLexicon.getDefault();
+        long start = System.nanoTime();
+        SentimentLexicon large = syntheticLexicon(terms, random);
+        long buildNanos = System.nanoTime() - start;
+        System.out.printf("Bundled lexicon: %d terms%n", bundled.size());
+        System.out.printf("Synthetic lexicon: %,d terms, built in %.1f ms%n%n", large.size(), buildNanos / 1_000_000.0);
+
+        System.out.printf("%-36s %14s %12s%n", "Method", "entries/s", "MB/s");
+        report("contains, 14 keywords", entries, chars, () -> {
+            long found = 0;
+            for (String entry : entries) found += containsCount(entry, POSITIVE_WORDS, NEGATIVE_WORDS);
+            return found;
+        });
+        // The contains loop is linear in the number of terms: measured on a sample and extrapolated
+        String[] largeTerms = new String[terms];
+        for (int i = 0; i < terms; i++) largeTerms[i] = syntheticTerm(i);
+        List<String> sample = entries.subList(0, Math.max(1, Math.min(entries.size(), 2_000_000 / Math.max(1, terms))));
+        long sampleChars = sample.stream().mapToLong(String::length).sum();
+        report(String.format("contains, %,d keywords", terms), sample, sampleChars, () -> {
+            long found = 0;
+            for (String entry : sample) found += containsCount(entry, largeTerms, new String[0]);
+            return found;
+        });
+        report("automaton, bundled lexicon", entries, chars, () -> score(bundled, entries));
+        report(String.format("automaton, %,d terms", large.size()), entries, chars, () -> score(large, entries));
+    }
+
+    private interface Run {
+        long run();
+    }
+
+    private static void report(String name, List<String> entries, long chars, Run run) {
+        // Warm up, then keeps the best of a few runs
+        long blackhole = run.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            blackhole += run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-36s %,14.0f %12.1f%s%n", name, entries.size() * 1e9 / best, chars * 1e9 / best / 1_000_000,
+                blackhole == Long.MIN_VALUE ? "!" : "");
+    }
+
+    private static long containsCount(String entry, String[] positiveWords, String[] negativeWords) {
+        String content = entry.toLowerCase();
+        long found = 0;
+        for (String word : positiveWords) {
+            if (content.contains(word)) {
+                found++;
+                break;
+            }
+        }
+        for (String word : negativeWords) {
+            if (content.contains(word)) {
+                found++;
+                break;
+            }
+        }
+        return found;
+    }
+
+    private static long score(SentimentLexicon lexicon, List<String> entries) {
+        long found = 0;
+        for (String entry : entries) {
+            SentimentLexicon.Score score = lexicon.score(entry);
+            found += score.getPositiveMatches() + score.getNegativeMatches();
+        }
+        return found;
+    }
+
+    private static SentimentLexicon syntheticLexicon(int terms, Random random) throws IOException {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (int i = 0; i < terms; i++) {
+            weights.put(syntheticTerm(i), random.nextDouble() * 2 - 1);
+        }
+        // The real terms too, so that entries have matches
+        StringBuilder file = new StringBuilder();
+        try (InputStream in = SentimentBenchmark.class.getResourceAsStream("/text/sentiment-lexicon.tsv")) {
+            file.append(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        List<String> negations = new ArrayList<>();
+        for (String line : file.toString().split("\n")) {
+            int tab = line.indexOf('\t');
+            if (line.startsWith("#") || tab < 0) continue;
+            String value = line.substring(tab + 1).strip();
+            if (value.equals(SentimentLexicon.NEGATION)) {
+                negations.add(line.substring(0, tab));
+            } else {
+                weights.put(line.substring(0, tab), Double.parseDouble(value));
+            }
+        }
+        return new SentimentLexicon(weights, negations);
+    }
+
+    /**
+     * French-looking word, different for each index
+     */
+    private static String syntheticTerm(int index) {
+        String[] syllables = {"ma", "lo", "ri", "ten", "vé", "sou", "char", "pli", "gné", "bou", "fra", "quel"};
+        StringBuilder term = new StringBuilder();
+        do {
+            term.append(syllables[index % syllables.length]);
+            index /= syllables.length;
+        } while (index > 0);
+        return term.append("ement").toString();
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.mental_health;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Weighted French sentiment lexicon, compiled into a KeywordMatcher so that a text
+ * is scored in one pass whatever the number of terms.
+ *
+ * Lexicon files have one term per line, followed by a tab and either its weight
+ * (-1 for the most negative, 1 for the most positive) or the word "negation".
+ * Terms may have several words ("pas mal"); lines starting with # are comments.
+ * A term found within a few words after a negation in the same clause ("pas bien",
+ * "jamais heureux") counts with its sign reversed and its weight halved. When terms
+ * overlap at the end of a word, only the longest one counts.
+ */
+public class SentimentLexicon {
+
+    public static final String NEGATION = "negation";
+
+    private static final String DEFAULT_LEXICON = "/text/sentiment-lexicon.tsv";
+    private static final int NEGATION_WINDOW = 3;        // words between a negation and the term it reverses
+    private static final double NEGATION_FACTOR = -0.5;
+    private static final double NORMALIZATION = 1.0;     // the larger, the more matches a score needs to approach 1
+
+    private static volatile SentimentLexicon defaultLexicon;
+
+    private final KeywordMatcher matcher;
+    private final double[] weights;
+    private final boolean[] negations;
+    private final int[] wordCounts;
+    private final int version;
+
+    /**
+     * @param weights weight of each term, from -1 to 1
+     * @param negations words or expressions reversing the terms that follow them
+     */
+    public SentimentLexicon(Map<String, Double> weights, Collection<String> negations) {
+        List<String> terms = new ArrayList<>(weights.size() + negations.size());
+        terms.addAll(weights.keySet());
+        terms.addAll(negations);
+        this.matcher = new KeywordMatcher(terms);
+        this.weights = new double[terms.size()];
+        this.negations = new boolean[terms.size()];
+        this.wordCounts = new int[terms.size()];
+
+        int i = 0;
+        for (double weight : weights.values()) {
+            this.weights[i++] = Math.max(-1.0, Math.min(1.0, weight));
+        }
+        for (; i < terms.size(); i++) {
+            this.negations[i] = true;
+        }
+        CRC32 crc = new CRC32();
+        for (i = 0; i < terms.size(); i++) {
+            String term = KeywordMatcher.normalize(terms.get(i));
+            wordCounts[i] = term.split(" ").length;
+            crc.update((term + '\t' + (this.negations[i] ? NEGATION : Double.toString(this.weights[i])) + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        this.version = crc.getValue() == 0 ? 1 : (int) crc.getValue();
+    }
+
+    /**
+     * Reads a lexicon file
+     */
+    public static SentimentLexicon load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a lexicon in the file format. Later lines override earlier ones for the same term.
+     */
+    public static SentimentLexicon read(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        Map<String, Double> weights = new LinkedHashMap<>();
+        Map<String, Boolean> negations = new LinkedHashMap<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int split = line.lastIndexOf('\t');
+            if (split < 0) split = line.lastIndexOf(' ');
+            String term = split < 0 ? "" : KeywordMatcher.normalize(line.substring(0, split));
+            if (term.isEmpty()) {
+                throw new IOException("Invalid lexicon line " + lineNumber + ": " + line);
+            }
+            String value = line.substring(split + 1).strip();
+            weights.remove(term);
+            negations.remove(term);
+            if (value.equalsIgnoreCase(NEGATION)) {
+                negations.put(term, true);
+            } else {
+                try {
+                    weights.put(term, Double.parseDouble(value));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid weight on lexicon line " + lineNumber + ": " + line);
+                }
+            }
+        }
+        return new SentimentLexicon(weights, negations.keySet());
+    }
+
+    /**
+     * The lexicon bundled with the application
+     */
+    public static SentimentLexicon getDefault() {
+        SentimentLexicon lexicon = defaultLexicon;
+        if (lexicon == null) {
+            synchronized (SentimentLexicon.class) {
+                lexicon = defaultLexicon;
+                if (lexicon == null) {
+                    lexicon = loadDefaultLexicon();
+                    defaultLexicon = lexicon;
+                }
+            }
+        }
+        return lexicon;
+    }
+
+    /**
+     * Replaces the lexicon used by analyses created afterwards
+     */
+    public static void setDefault(SentimentLexicon lexicon) {
+        defaultLexicon = lexicon;
+    }
+
+    /**
+     * Checksum of the terms and weights, identifying the lexicon scores were computed with.
+     * Never 0, so that it differs from the version of unscored entries.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Number of terms and negations
+     */
+    public int size() {
+        return matcher.getKeywordCount();
+    }
+
+    /**
+     * Scores a text in one pass over its characters
+     */
+    public Score score(CharSequence text) {
+        Score score = new Score();
+        if (text == null) return score;
+
+        int state = matcher.next(KeywordMatcher.ROOT, ' ');
+        int wordIndex = -1;
+        int negationWord = Integer.MIN_VALUE / 2;  // last word of the last negation of the clause
+        boolean inWord = false;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? KeywordMatcher.fold(text.charAt(i)) : ' ';
+            if (KeywordMatcher.isWordChar(c)) {
+                if (!inWord) {
+                    wordIndex++;
+                    inWord = true;
+                }
+                state = matcher.next(state, c);
+                continue;
+            }
+
+            if (inWord) {
+                // Terms are stored between spaces, so they can only end here
+                inWord = false;
+                state = matcher.next(state, ' ');
+                int match = matcher.keywordAt(state) >= 0 ? state : matcher.outputLink(state);
+                if (match >= 0) {
+                    int term = matcher.keywordAt(match);
+                    if (negations[term]) {
+                        negationWord = wordIndex;
+                    } else {
+                        int firstWord = wordIndex - wordCounts[term] + 1;
+                        boolean negated = firstWord > negationWord && firstWord - negationWord <= NEGATION_WINDOW;
+                        score.add(negated ? weights[term] * NEGATION_FACTOR : weights[term]);
+                    }
+                }
+            }
+            if (c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?') {
+                negationWord = Integer.MIN_VALUE / 2;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Returns the score of a journal entry, scoring it and storing the score in it
+     * unless its content was already scored with this lexicon
+     */
+    public double scoreEntry(JournalEntry entry) {
+        if (entry.hasSentimentFor(version)) {
+            return entry.getSentimentScore();
+        }
+        CompressedText content = entry.getCompressedContent();
+        double score = score(content != null ? content.get() : null).getScore();
+        entry.setSentiment(score, content, version);
+        return entry.getSentimentScore();
+    }
+
+    private static SentimentLexicon loadDefaultLexicon() {
+        try (InputStream in = SentimentLexicon.class.getResourceAsStream(DEFAULT_LEXICON)) {
+            if (in != null) {
+                return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+            System.err.println("Sentiment lexicon not found: " + DEFAULT_LEXICON);
+        } catch (IOException e) {
+            System.err.println("Could not load the sentiment lexicon: " + e.getMessage());
+        }
+        return new SentimentLexicon(Map.of(), List.of());
+    }
+
+    /**
+     * Sentiment found in a text
+     */
+    public static class Score {
+        private int positiveMatches;
+        private int negativeMatches;
+        private double total;
+
+        void add(double weight) {
+            if (weight > 0) positiveMatches++;
+            if (weight < 0) negativeMatches++;
+            total += weight;
+        }
+
+        public int getPositiveMatches() { return positiveMatches; }
+        public int getNegativeMatches() { return negativeMatches; }
+
+        /**
+         * Sum of the weights of the matched terms
+         */
+        public double getTotal() { return total; }
+
+        /**
+         * Score from -1 to 1, approaching the bounds as matches accumulate; 0 without any match
+         */
+        public double getScore() {
+            return total / Math.sqrt(total * total + NORMALIZATION);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Score{positive=%d, negative=%d, score=%.2f}", positiveMatches, negativeMatches, getScore());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.mental_health;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores saved journal entries on a background thread, so that analyses read the
+ * stored scores instead of scanning every text again.
+ *
+ * Each score is stored in its entry together with the scored content and the
+ * version of the lexicon, as one object replaced atomically, so readers of the
+ * entry on other threads (snapshots, profile writes) see either the old or the
+ * new score. An entry is scored again only when its content or the lexicon
+ * changed; analyses score inline the entries not scored yet.
+ */
+public class SentimentScorer implements Closeable {
+
+    private final SentimentLexicon lexicon;
+    private ExecutorService executor;
+
+    private final LongAdder scoredCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+
+    public SentimentScorer() {
+        this(SentimentLexicon.getDefault());
+    }
+
+    public SentimentScorer(SentimentLexicon lexicon) {
+        this.lexicon = lexicon;
+    }
+
+    /**
+     * Scores entries in the background, in submission order
+     */
+    public void submit(Collection<JournalEntry> entries) {
+        List<JournalEntry> batch = List.copyOf(entries);
+        executor().execute(() -> {
+            for (JournalEntry entry : batch) {
+                try {
+                    score(entry);
+                } catch (RuntimeException e) {
+                    System.err.println("Could not score the journal entry of " + entry.getDate() + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Scores an entry now unless it is already scored with the lexicon
+     *
+     * @return whether the entry was scored
+     */
+    public boolean score(JournalEntry entry) {
+        if (entry.hasSentimentFor(lexicon.getVersion())) {
+            skippedCount.increment();
+            return false;
+        }
+        lexicon.scoreEntry(entry);
+        scoredCount.increment();
+        return true;
+    }
+
+    /**
+     * Waits until the entries submitted so far are scored
+     */
+    public void awaitPending() throws InterruptedException {
+        try {
+            executor().submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public SentimentLexicon getLexicon() { return lexicon; }
+    public long getScoredCount() { return scoredCount.sum(); }
+    public long getSkippedCount() { return skippedCount.sum(); }
+
+    /**
+     * Stops the background thread; entries not scored yet will be scored by the analyses
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sentiment-scorer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
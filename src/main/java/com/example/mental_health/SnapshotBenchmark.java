@@ -0,0 +1,82 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark of ProfileSnapshot: writes a snapshot of many synthetic users, then measures
+ * the parallel restore and single-profile lookups. Restored profiles are only counted,
+ * so the benchmark itself needs little heap.
+ *
+ * Usage: SnapshotBenchmark [users] [days]   (defaults: 1000000 users, 30 days)
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        LocalDate today = LocalDate.now();
+
+        System.out.println("=== Snapshot Benchmark ===");
+        System.out.printf("%,d users x %d days, %d cores%n%n", users, days, Runtime.getRuntime().availableProcessors());
+
+        // Zero-padded ids are already in ascending order
+        List<String> userIds = new AbstractList<>() {
+            @Override public String get(int index) { return String.format("user_%08d", index); }
+            @Override public int size() { return users; }
+        };
+
+        System.out.println("1. WRITE");
+        System.out.println("========");
+        ProfileSnapshot snapshot = ProfileSnapshot.write(directory, 1, userIds, userId -> {
+            Random random = new Random(userId.hashCode());
+            UserProfile profile = new UserProfile(userId);
+            for (int day = days - 1; day >= 0; day--) {
+                String note = random.nextInt(4) == 0 ? "Journée calme et reposante" : null;
+                profile.getMoodEntries().add(new MoodEntry(today.minusDays(day), 1 + random.nextInt(5), note));
+            }
+            profile.getGoals().add("Méditer 10 minutes chaque matin");
+            return profile;
+        });
+        double writeSeconds = snapshot.getWriteNanos() / 1_000_000_000.0;
+        System.out.printf("%,d profiles, %,d bytes in %.1f ms (%.0f profiles/s)%n%n",
+                snapshot.size(), snapshot.byteSize(), writeSeconds * 1000, snapshot.size() / writeSeconds);
+
+        System.out.println("2. PARALLEL RESTORE");
+        System.out.println("===================");
+        LongAdder entries = new LongAdder();
+        long restored = snapshot.restore(profile -> {
+            entries.add(profile.getMoodEntries().size());
+            return true;
+        });
+        double restoreSeconds = snapshot.getRestoreNanos() / 1_000_000_000.0;
+        System.out.printf("%,d of %,d profiles in %.1f ms (%.0f profiles/s)%n",
+                restored, snapshot.size(), restoreSeconds * 1000, restored / restoreSeconds);
+        System.out.printf("%,d mood entries decoded%n%n", entries.sum());
+
+        System.out.println("3. SINGLE-PROFILE LOOKUPS");
+        System.out.println("=========================");
+        Random random = new Random(42);
+        int lookups = 100_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            snapshot.load(userIds.get(random.nextInt(users)));
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("%,d lookups in %.2f s -> %,.0f lookups/s%n", lookups, seconds, lookups / seconds);
+
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.mental_health;
+
+/**
+ * Tracks when the statistics of a profile (rolling averages, streak, model fits) must be
+ * refreshed: after a change of the mood list it listens to, or when the day rolls over.
+ * The statistics themselves are computed from the profile's mood aggregates.
+ */
+public class StatisticsFreshness implements DateIndexedList.ChangeListener<MoodEntry> {
+
+    private boolean initialized;
+    private long anchorDay;
+
+    // Set on every change and day rollover, cleared once the statistics have been refreshed
+    private boolean stale = true;
+
+    /**
+     * Moves to the given day, making the statistics stale if it is a new one
+     */
+    public void advanceTo(long today) {
+        if (initialized && today == anchorDay) return;
+        anchorDay = today;
+        initialized = true;
+        stale = true;
+    }
+
+    /**
+     * Forces the statistics to be refreshed, whatever the day of the next {@link #advanceTo}
+     */
+    public void reset() {
+        initialized = false;
+        stale = true;
+    }
+
+    /**
+     * Whether entries changed or the day rolled over since the last {@link #markRefreshed()}
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Whether the statistics would be stale once moved to the given day
+     */
+    public boolean isStale(long today) {
+        return !initialized || stale || anchorDay != today;
+    }
+
+    public void markRefreshed() {
+        stale = false;
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        stale = true;
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        stale = true;
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        stale = true;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Inverted index of the texts of an entry list: each word, folded like the sentiment
+ * lexicon, maps to the compressed list of the days whose text contains it.
+ *
+ * The index listens to the list, so it stays up to date as entries are saved. Searches
+ * intersect the posting lists of the query words, from the rarest, and rank the days by
+ * BM25; only the texts of the best days are read, to check phrases and build snippets.
+ * Like the list, the index is not thread-safe.
+ */
+public final class TextIndex<E> implements DateIndexedList.ChangeListener<E> {
+
+    // BM25 parameters: term frequency saturation and text length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int SNIPPET_CHARS = 120;
+    private static final int SNIPPET_CONTEXT = 30;   // characters kept before the first match
+    private static final int TERM_BYTES = 56;        // map entry, String and PostingList headers
+
+    private final DateIndexedList<E> entries;
+    private final Function<? super E, LocalDate> dateOf;
+    private final Function<? super E, String> textOf;
+    private final TextSearchHit.Source source;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private int documentCount;
+    private long totalLength;    // in words
+
+    /**
+     * Indexes the texts of a list and keeps the index up to date with its changes
+     */
+    public TextIndex(DateIndexedList<E> entries, Function<? super E, LocalDate> dateOf,
+                     Function<? super E, String> textOf, TextSearchHit.Source source) {
+        this.entries = entries;
+        this.dateOf = dateOf;
+        this.textOf = textOf;
+        this.source = source;
+        // Oldest first, so that days are appended to the posting lists
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            index(entries.get(i));
+        }
+        entries.addChangeListener(this);
+    }
+
+    /**
+     * Finds the best matching days of the list
+     *
+     * @return at most limit hits, best first
+     */
+    public List<TextSearchHit> search(TextQuery query, int limit) {
+        if (query.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        // Rarest words first, so that the candidates only shrink
+        List<String> terms = new ArrayList<>(query.getTerms());
+        for (String term : terms) {
+            if (!postings.containsKey(term)) return Collections.emptyList();
+        }
+        terms.sort((a, b) -> Integer.compare(postings.get(a).size(), postings.get(b).size()));
+
+        int firstDay = query.getStartDate() == null ? Integer.MIN_VALUE : (int) query.getStartDate().toEpochDay();
+        int lastDay = query.getEndDate() == null ? Integer.MAX_VALUE : (int) query.getEndDate().toEpochDay();
+        double averageLength = (double) totalLength / documentCount;
+
+        int[] candidates = null;
+        double[] scores = null;
+        int candidateCount = 0;
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            int[] days = new int[list.size()];
+            int[] frequencies = new int[list.size()];
+            int[] textLengths = new int[list.size()];
+            int count = list.decode(days, frequencies, textLengths);
+            double idf = Math.log(1 + (documentCount - count + 0.5) / (count + 0.5));
+
+            if (candidates == null) {
+                candidates = new int[count];
+                scores = new double[count];
+                for (int i = 0; i < count; i++) {
+                    if (days[i] < firstDay || days[i] > lastDay) continue;
+                    candidates[candidateCount] = days[i];
+                    scores[candidateCount++] = idf * termWeight(frequencies[i], textLengths[i], averageLength);
+                }
+            } else {
+                // Intersection of two ascending lists, in place
+                int kept = 0;
+                int j = 0;
+                for (int i = 0; i < candidateCount && j < count; i++) {
+                    while (j < count && days[j] < candidates[i]) j++;
+                    if (j < count && days[j] == candidates[i]) {
+                        candidates[kept] = candidates[i];
+                        scores[kept++] = scores[i] + idf * termWeight(frequencies[j], textLengths[j], averageLength);
+                    }
+                }
+                candidateCount = kept;
+            }
+            if (candidateCount == 0) return Collections.emptyList();
+        }
+
+        // Texts are only read for the best candidates, until enough of them match the phrases
+        Integer[] order = new Integer[candidateCount];
+        for (int i = 0; i < candidateCount; i++) order[i] = i;
+        final int[] days = candidates;
+        final double[] dayScores = scores;
+        Arrays.sort(order, (a, b) -> dayScores[a] != dayScores[b] ? Double.compare(dayScores[b], dayScores[a])
+                : Integer.compare(days[b], days[a]));
+
+        List<TextSearchHit> hits = new ArrayList<>(Math.min(limit, candidateCount));
+        for (int i = 0; i < candidateCount && hits.size() < limit; i++) {
+            LocalDate date = LocalDate.ofEpochDay(days[order[i]]);
+            E entry = entries.getByDate(date);
+            String text = entry == null ? null : textOf.apply(entry);
+            if (text == null) continue;
+
+            Tokens tokens = new Tokens(text);
+            int matchStart = tokens.findPhrases(query.getPhrases());
+            if (matchStart < 0) continue;
+            if (query.getPhrases().isEmpty()) {
+                matchStart = tokens.find(terms.get(0));
+            }
+            hits.add(new TextSearchHit(date, source, dayScores[order[i]], snippet(text, matchStart)));
+        }
+        return hits;
+    }
+
+    /**
+     * Number of indexed texts
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Number of distinct words
+     */
+    public int getTermCount() {
+        return postings.size();
+    }
+
+    /**
+     * Estimated heap footprint of the index
+     */
+    public long estimatedSizeBytes() {
+        long size = 0;
+        for (Map.Entry<String, PostingList> term : postings.entrySet()) {
+            size += TERM_BYTES + term.getKey().length() + term.getValue().sizeBytes();
+        }
+        return size;
+    }
+
+    // Updates
+
+    @Override
+    public void entryAdded(int position, E entry) {
+        index(entry);
+    }
+
+    @Override
+    public void entryReplaced(int position, E previous, E entry) {
+        if (previous == entry) {
+            // Saved again after a change: its former words are unknown
+            removeDay((int) dateOf.apply(entry).toEpochDay());
+        } else {
+            unindex(previous);
+        }
+        index(entry);
+    }
+
+    @Override
+    public void entryRemoved(int position, E entry) {
+        unindex(entry);
+    }
+
+    private void index(E entry) {
+        String text = textOf.apply(entry);
+        if (text == null) return;
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = tokenize(text, (token, start) -> frequencies.computeIfAbsent(token, t -> new int[1])[0]++);
+        if (length == 0) return;
+
+        int day = (int) dateOf.apply(entry).toEpochDay();
+        for (Map.Entry<String, int[]> term : frequencies.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new PostingList()).add(day, term.getValue()[0], length);
+        }
+        documentCount++;
+        totalLength += length;
+    }
+
+    private void unindex(E entry) {
+        String text = textOf.apply(entry);
+        if (text == null) return;
+        int day = (int) dateOf.apply(entry).toEpochDay();
+        int[] removedLength = {-1};
+        tokenize(text, (token, start) -> {
+            PostingList list = postings.get(token);
+            if (list == null) return;
+            int length = list.remove(day);
+            if (length >= 0) removedLength[0] = length;
+            if (list.size() == 0) postings.remove(token);
+        });
+        if (removedLength[0] >= 0) {
+            documentCount--;
+            totalLength -= removedLength[0];
+        }
+    }
+
+    private void removeDay(int day) {
+        int removedLength = -1;
+        for (Iterator<PostingList> lists = postings.values().iterator(); lists.hasNext(); ) {
+            PostingList list = lists.next();
+            int length = list.remove(day);
+            if (length >= 0) removedLength = length;
+            if (list.size() == 0) lists.remove();
+        }
+        if (removedLength >= 0) {
+            documentCount--;
+            totalLength -= removedLength;
+        }
+    }
+
+    private static double termWeight(int frequency, int textLength, double averageLength) {
+        return frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * textLength / averageLength));
+    }
+
+    private static String snippet(String text, int matchStart) {
+        if (text.length() <= SNIPPET_CHARS) return text;
+        int start = Math.max(0, Math.min(matchStart - SNIPPET_CONTEXT, text.length() - SNIPPET_CHARS));
+        // Starts and ends on word boundaries when there is one nearby
+        int space = text.lastIndexOf(' ', start);
+        if (start > 0 && space >= 0 && start - space < SNIPPET_CONTEXT) start = space + 1;
+        int end = Math.min(text.length(), start + SNIPPET_CHARS);
+        space = text.lastIndexOf(' ', end);
+        if (end < text.length() && space > start + SNIPPET_CHARS / 2) end = space;
+        return (start > 0 ? "…" : "") + text.substring(start, end).strip() + (end < text.length() ? "…" : "");
+    }
+
+    // Tokenization
+
+    private interface TokenConsumer {
+        void accept(String token, int start);
+    }
+
+    /**
+     * Words of a text, folded, in order
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text != null) {
+            tokenize(text, (token, start) -> tokens.add(token));
+        }
+        return tokens;
+    }
+
+    /**
+     * Feeds the folded words of a text, with their start offsets, to a consumer
+     *
+     * @return the number of words
+     */
+    private static int tokenize(String text, TokenConsumer consumer) {
+        StringBuilder token = new StringBuilder();
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? KeywordMatcher.fold(text.charAt(i)) : ' ';
+            if (KeywordMatcher.isWordChar(c)) {
+                if (token.length() == 0) start = i;
+                token.append(c);
+            } else if (token.length() > 0) {
+                consumer.accept(token.toString(), start);
+                token.setLength(0);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Words of a matched text, to check phrases and place snippets
+     */
+    private static class Tokens {
+        final List<String> words = new ArrayList<>();
+        final List<Integer> starts = new ArrayList<>();
+
+        Tokens(String text) {
+            tokenize(text, (token, start) -> {
+                words.add(token);
+                starts.add(start);
+            });
+        }
+
+        /**
+         * @return the offset of the first phrase, 0 without phrases, or -1 if one is missing
+         */
+        int findPhrases(List<List<String>> phrases) {
+            int first = -1;
+            for (List<String> phrase : phrases) {
+                int found = Collections.indexOfSubList(words, phrase);
+                if (found < 0) return -1;
+                if (first < 0) first = starts.get(found);
+            }
+            return Math.max(first, 0);
+        }
+
+        int find(String word) {
+            int found = words.indexOf(word);
+            return found < 0 ? 0 : starts.get(found);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Text search over journal entries and mood notes. Every word must occur in a matching
+ * text and words between double quotes must occur in that order ("mal dormi").
+ * Words are compared without case and accents, like the sentiment lexicon.
+ */
+public class TextQuery {
+
+    private final String text;
+    private final List<String> terms;
+    private final List<List<String>> phrases;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    public TextQuery(String text) {
+        this(text, null, null);
+    }
+
+    /**
+     * @param startDate first day searched, or null
+     * @param endDate last day searched, or null
+     */
+    public TextQuery(String text, LocalDate startDate, LocalDate endDate) {
+        this.text = text;
+        this.startDate = startDate;
+        this.endDate = endDate;
+
+        Set<String> terms = new LinkedHashSet<>();
+        List<List<String>> phrases = new ArrayList<>();
+        String[] parts = text == null ? new String[0] : text.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> words = TextIndex.tokens(parts[i]);
+            terms.addAll(words);
+            // Odd parts are between quotes (an unclosed quote runs to the end)
+            if (i % 2 == 1 && words.size() > 1) {
+                phrases.add(Collections.unmodifiableList(words));
+            }
+        }
+        this.terms = List.copyOf(terms);
+        this.phrases = Collections.unmodifiableList(phrases);
+    }
+
+    public String getText() { return text; }
+
+    /**
+     * Distinct words, folded
+     */
+    public List<String> getTerms() { return terms; }
+
+    /**
+     * Words that must occur consecutively, folded
+     */
+    public List<List<String>> getPhrases() { return phrases; }
+
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TextQuery{terms=%s, phrases=%s, from=%s, to=%s}", terms, phrases, startDate, endDate);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.mental_health;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of text search over years of journal entries and mood notes of one user:
+ * a scan folding every text against the TextIndex posting lists, returning every hit
+ * or the first 20, for single words, several words, phrases and a date-filtered search.
+ * Texts are built from the bundled French samples.
+ *
+ * Usage: TextSearchBenchmark [years] [searches]   (defaults: 10 years, 200 searches)
+ */
+public class TextSearchBenchmark {
+
+    private static final int FIRST_HITS = 20;   // what the journal tab shows
+    private static final String[] QUERIES = {"stress", "travail fatigue", "\"mal dormi\"", "famille weekend"};
+
+    public static void main(String[] args) throws IOException {
+        int years = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int searches = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random random = new Random(42);
+
+        List<String> samples = new ArrayList<>();
+        try (InputStream in = TextSearchBenchmark.class.getResourceAsStream("/text/french-samples.txt")) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank()) samples.add(line.strip());
+            }
+        }
+        String[] extras = {"Beaucoup de stress au travail.", "J'ai mal dormi cette nuit.", "Fatigue en fin de journée.",
+                "Un bon weekend en famille.", "Promenade au parc avec des amis."};
+
+        UserProfile profile = new UserProfile("benchmark_user");
+        LocalDate today = LocalDate.now();
+        int days = years * 365;
+        long chars = 0;
+        List<JournalEntry> journals = new ArrayList<>(days);
+        List<MoodEntry> moods = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            LocalDate date = today.minusDays(i);
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 400) {
+                text.append(samples.get(random.nextInt(samples.size()))).append(' ');
+                if (random.nextInt(6) == 0) text.append(extras[random.nextInt(extras.length)]).append(' ');
+            }
+            String note = extras[random.nextInt(extras.length)];
+            journals.add(new JournalEntry(date, text.toString()));
+            moods.add(new MoodEntry(date, 1 + random.nextInt(5), note));
+            chars += text.length() + note.length();
+        }
+        profile.setJournalEntries(journals);
+        profile.setMoodEntries(moods);
+
+        System.out.println("=== Text Search Benchmark ===");
+        System.out.printf("%,d days of journal entries and mood notes, %,d characters%n%n", days, chars);
+
+        long start = System.nanoTime();
+        TextIndex<JournalEntry> journalIndex = profile.getJournalIndex();
+        TextIndex<MoodEntry> noteIndex = profile.getNoteIndex();
+        long buildNanos = System.nanoTime() - start;
+        System.out.printf("Indexes built in %.1f ms: %,d words, %,d KB (texts: %,d KB)%n",
+                buildNanos / 1_000_000.0, journalIndex.getTermCount() + noteIndex.getTermCount(),
+                (journalIndex.estimatedSizeBytes() + noteIndex.estimatedSizeBytes()) / 1024, chars / 1024);
+
+        // Saving today's entries again updates the indexes
+        start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            profile.getJournalEntries().add(new JournalEntry(today, journals.get(i % journals.size()).getContent()));
+        }
+        System.out.printf("Index update on save: %.1f µs%n%n", (System.nanoTime() - start) / 1_000.0 / searches);
+
+        System.out.printf("%-28s %7s %11s %11s %11s%n", "Search", "hits", "scan (ms)", "all (ms)", "first " + FIRST_HITS);
+        for (String query : QUERIES) {
+            report(query, profile, new TextQuery(query), searches);
+        }
+        report("stress (last 90 days)", profile,
+                new TextQuery("stress", today.minusDays(89), today), searches);
+    }
+
+    private static void report(String name, UserProfile profile, TextQuery query, int searches) {
+        int scanned = scan(profile, query);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            scanned = scan(profile, query);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double scanMillis = best / 1_000_000.0;
+
+        int found = search(profile, query);
+        for (int i = 0; i < searches; i++) search(profile, query);   // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            found = search(profile, query);
+        }
+        double allMillis = (System.nanoTime() - start) / 1_000_000.0 / searches;
+        start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            searchFirst(profile, query);
+        }
+        double firstMillis = (System.nanoTime() - start) / 1_000_000.0 / searches;
+        System.out.printf("%-28s %7d %11.2f %11.3f %11.3f%s%n", name, found, scanMillis, allMillis, firstMillis,
+                found == scanned ? "" : "  (scan found " + scanned + ")");
+    }
+
+    private static int search(UserProfile profile, TextQuery query) {
+        return profile.getJournalIndex().search(query, Integer.MAX_VALUE).size()
+                + profile.getNoteIndex().search(query, Integer.MAX_VALUE).size();
+    }
+
+    private static int searchFirst(UserProfile profile, TextQuery query) {
+        return profile.getJournalIndex().search(query, FIRST_HITS).size()
+                + profile.getNoteIndex().search(query, FIRST_HITS).size();
+    }
+
+    /**
+     * Folds every text and looks for the words and phrases, like a search without index would
+     */
+    private static int scan(UserProfile profile, TextQuery query) {
+        int found = 0;
+        for (JournalEntry entry : profile.getJournalEntries()) {
+            if (inRange(entry.getDate(), query) && matches(entry.getContent(), query)) found++;
+        }
+        for (MoodEntry entry : profile.getMoodEntries()) {
+            if (inRange(entry.getDate(), query) && matches(entry.getNote(), query)) found++;
+        }
+        return found;
+    }
+
+    private static boolean inRange(LocalDate date, TextQuery query) {
+        return (query.getStartDate() == null || !date.isBefore(query.getStartDate()))
+                && (query.getEndDate() == null || !date.isAfter(query.getEndDate()));
+    }
+
+    private static boolean matches(String text, TextQuery query) {
+        String folded = " " + KeywordMatcher.normalize(text) + " ";
+        for (String term : query.getTerms()) {
+            if (!folded.contains(" " + term + " ")) return false;
+        }
+        for (List<String> phrase : query.getPhrases()) {
+            if (!folded.contains(" " + String.join(" ", phrase) + " ")) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.mental_health;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * A journal entry or mood note matching a text search
+ */
+public class TextSearchHit {
+
+    /**
+     * Best matches first, then the most recent
+     */
+    public static final Comparator<TextSearchHit> BY_RELEVANCE =
+            Comparator.comparingDouble(TextSearchHit::getScore).reversed()
+                    .thenComparing(TextSearchHit::getDate, Comparator.reverseOrder());
+
+    public enum Source {
+        JOURNAL("Journal"),
+        MOOD_NOTE("Note d'humeur");
+
+        private final String label;
+
+        Source(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    private final LocalDate date;
+    private final Source source;
+    private final double score;
+    private final String snippet;
+
+    public TextSearchHit(LocalDate date, Source source, double score, String snippet) {
+        this.date = date;
+        this.source = source;
+        this.score = score;
+        this.snippet = snippet;
+    }
+
+    public LocalDate getDate() { return date; }
+    public Source getSource() { return source; }
+
+    /**
+     * Relevance of the text (BM25); only comparable between hits of the same search
+     */
+    public double getScore() { return score; }
+
+    /**
+     * Extract of the text around the first match
+     */
+    public String getSnippet() { return snippet; }
+
+    @Override
+    public String toString() {
+        return String.format("TextSearchHit{date=%s, source=%s, score=%.2f, snippet='%s'}", date, source, score, snippet);
+    }
+}
@@ -1,32 +1,115 @@
 package com.example.mental_health;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
 
 /**
  * Manages user data storage and retrieval
  */
-public class UserDataManager {
+public class UserDataManager implements Closeable {
     
-    // In-memory storage for demo purposes
-    // In a real application, this would connect to a database
-    private Map<String, UserProfile> userProfiles;
+    // Default budget of the profile cache with durable storage
+    public static final long DEFAULT_CACHE_BYTES = 256L * 1024 * 1024;
+    
+    // Mood series kept open (two file descriptors and a mapping each); the least recently used are closed beyond
+    public static final int MAX_OPEN_MOOD_SERIES = 256;
+    
+    // Windows of the averages kept in the profile; a window of N days starts N days before today
+    public static final int SHORT_AVERAGE_DAYS = 7;
+    public static final int LONG_AVERAGE_DAYS = 30;
+    
+    // Profiles in use; with durable storage, cold profiles are evicted to the profile store
+    private ProfileCache profileCache;
+    private FileProfileStore profileStore;
+    private Path snapshotDirectory;
+    
+    // Trained text compression dictionaries, needed to decode the texts compressed with them
+    private Path dictionaryDirectory;
+    
+    // Durable log of every mutation (null for the in-memory demo mode)
+    private WriteAheadLog writeAheadLog;
+    private WriteAheadLog.ReplayStats logReplayStats;
+    
+    // Memory-mapped mood series of the recently used users (only with durable storage)
+    private Path moodSeriesDirectory;
+    private final Map<String, OpenMoodSeries> moodSeries = new ConcurrentHashMap<>();
+    private final AtomicLong moodSeriesTick = new AtomicLong();
+    // Users whose series were written since the last snapshot, forced to disk before it drops the log
+    private final Set<String> unforcedMoodSeries = ConcurrentHashMap.newKeySet();
+    
+    // Source of "today" for the rolling statistics
+    private final Clock clock;
+    
+    // Scores saved journal entries in the background
+    private final SentimentScorer sentimentScorer = new SentimentScorer();
     
     public UserDataManager() {
-        this.userProfiles = new HashMap<>();
+        this(Clock.systemDefaultZone());
+    }
+    
+    /**
+     * Creates an in-memory manager with sample data, using the given clock for date-based statistics
+     */
+    public UserDataManager(Clock clock) {
+        this.clock = clock;
+        this.profileCache = new ProfileCache(null, Long.MAX_VALUE);
         initializeWithSampleData();
     }
     
+    /**
+     * Creates a manager whose data is persisted in a write-ahead log under the given directory.
+     * The in-memory state is rebuilt by replaying the log.
+     */
+    public UserDataManager(Path dataDirectory) throws IOException {
+        this(dataDirectory, Clock.systemDefaultZone());
+    }
+    
+    public UserDataManager(Path dataDirectory, Clock clock) throws IOException {
+        this(dataDirectory, clock, DEFAULT_CACHE_BYTES);
+    }
+    
+    /**
+     * @param cacheBudgetBytes estimated size in bytes of the profiles kept in memory
+     */
+    public UserDataManager(Path dataDirectory, Clock clock, long cacheBudgetBytes) throws IOException {
+        this.clock = clock;
+        this.profileStore = new FileProfileStore(dataDirectory.resolve("profiles"));
+        this.profileCache = new ProfileCache(profileStore, cacheBudgetBytes);
+        this.writeAheadLog = new WriteAheadLog(dataDirectory.resolve("wal"));
+        this.moodSeriesDirectory = dataDirectory.resolve("moods");
+        this.snapshotDirectory = dataDirectory.resolve("snapshots");
+        this.dictionaryDirectory = dataDirectory.resolve("dictionaries");
+        loadTextDictionaries();
+        
+        // Warm the cache up from the latest snapshot, skipping the profiles stored since
+        // (they are newer and loaded on demand), then replay only the changes logged after it.
+        // Replayed records are idempotent, so replaying them over newer profiles is safe.
+        // Statistics are refreshed lazily when a profile is read.
+        long replayFrom = 0;
+        ProfileSnapshot snapshot = ProfileSnapshot.openLatest(snapshotDirectory);
+        if (snapshot != null) {
+            profileStore.setSnapshot(snapshot);
+            snapshot.restore(profile -> profileStore.isStoredSinceSnapshot(profile.getUserId())
+                    || profileCache.preload(profile));
+            replayFrom = snapshot.getLogSegmentId();
+        }
+        logReplayStats = writeAheadLog.replay(new LogReplayHandler(), replayFrom);
+    }
+    
     /**
      * Gets complete user data for a given user ID
      */
     public UserProfile getCompleteUserData(String userId) {
-        UserProfile profile = userProfiles.get(userId);
-        if (profile == null) {
-            profile = new UserProfile(userId);
-            userProfiles.put(userId, profile);
-        }
+        UserProfile profile = profileFor(userId);
         
         // Calculate dynamic statistics
         updateUserStatistics(profile);
@@ -38,147 +121,619 @@ public class UserDataManager {
      * Saves a mood entry for a user
      */
     public void saveMoodEntry(String userId, MoodEntry moodEntry) {
-        UserProfile profile = getCompleteUserData(userId);
-        
-        // Remove existing entry for the same date
-        profile.getMoodEntries().removeIf(entry -> entry.getDate().equals(moodEntry.getDate()));
-        
-        // Add new entry
-        profile.getMoodEntries().add(moodEntry);
+        log(wal -> wal.appendMoodEntry(userId, moodEntry));
+        applyMoodEntries(userId, List.of(moodEntry));
+        updateUserStatistics(profileFor(userId));
+    }
+    
+    /**
+     * Saves a batch of mood entries for a user.
+     * The batch is merged into the date index in one pass and statistics are refreshed once.
+     */
+    public void saveMoodEntries(String userId, Collection<MoodEntry> moodEntries) {
+        if (moodEntries.isEmpty()) return;
+        log(wal -> {
+            for (MoodEntry moodEntry : moodEntries) {
+                wal.appendMoodEntry(userId, moodEntry);
+            }
+        });
+        applyMoodEntries(userId, moodEntries);
+        updateUserStatistics(profileFor(userId));
+    }
+    
+    private void applyMoodEntries(String userId, Collection<MoodEntry> moodEntries) {
+        UserProfile profile = profileFor(userId);
         
-        // Sort by date (most recent first)
-        profile.getMoodEntries().sort((a, b) -> b.getDate().compareTo(a.getDate()));
+        // Replaces any existing entry for the same date, keeping the list sorted
+        synchronized (profile) {
+            if (moodEntries.size() == 1) {
+                profile.getMoodEntries().add(moodEntries.iterator().next());
+            } else {
+                profile.getMoodEntries().addAll(moodEntries);
+            }
+        }
+        profileCache.markDirty(profile);
         
-        updateUserStatistics(profile);
+        try {
+            withMoodSeries(userId, series -> {
+                for (MoodEntry moodEntry : moodEntries) {
+                    series.put(moodEntry);
+                }
+                unforcedMoodSeries.add(userId);
+                return null;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the mood series of " + userId, e);
+        }
     }
     
     /**
      * Saves a journal entry for a user
      */
     public void saveJournalEntry(String userId, JournalEntry journalEntry) {
-        UserProfile profile = getCompleteUserData(userId);
-        
-        // Remove existing entry for the same date
-        profile.getJournalEntries().removeIf(entry -> entry.getDate().equals(journalEntry.getDate()));
-        
-        // Add new entry
-        profile.getJournalEntries().add(journalEntry);
+        log(wal -> wal.appendJournalEntry(userId, journalEntry));
+        applyJournalEntries(userId, List.of(journalEntry));
+    }
+    
+    /**
+     * Saves a batch of journal entries for a user, merged into the date index in one pass
+     */
+    public void saveJournalEntries(String userId, Collection<JournalEntry> journalEntries) {
+        if (journalEntries.isEmpty()) return;
+        log(wal -> {
+            for (JournalEntry journalEntry : journalEntries) {
+                wal.appendJournalEntry(userId, journalEntry);
+            }
+        });
+        applyJournalEntries(userId, journalEntries);
+    }
+    
+    private void applyJournalEntries(String userId, Collection<JournalEntry> journalEntries) {
+        UserProfile profile = profileFor(userId);
         
-        // Sort by date (most recent first)
-        profile.getJournalEntries().sort((a, b) -> b.getDate().compareTo(a.getDate()));
+        // Replaces any existing entry for the same date, keeping the list sorted
+        synchronized (profile) {
+            if (journalEntries.size() == 1) {
+                profile.getJournalEntries().add(journalEntries.iterator().next());
+            } else {
+                profile.getJournalEntries().addAll(journalEntries);
+            }
+        }
+        profileCache.markDirty(profile);
+        sentimentScorer.submit(journalEntries);
     }
     
     /**
      * Adds a goal for a user
      */
     public void addGoal(String userId, String goal) {
-        UserProfile profile = getCompleteUserData(userId);
-        if (!profile.getGoals().contains(goal)) {
-            profile.getGoals().add(goal);
+        log(wal -> wal.appendGoalAdded(userId, goal));
+        applyGoalAdded(userId, goal);
+    }
+    
+    private void applyGoalAdded(String userId, String goal) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            if (!profile.getGoals().contains(goal)) {
+                profile.getGoals().add(goal);
+                profile.markModified();
+            }
         }
+        profileCache.markDirty(profile);
     }
     
     /**
      * Removes a goal for a user
      */
     public void removeGoal(String userId, String goal) {
-        UserProfile profile = getCompleteUserData(userId);
-        profile.getGoals().remove(goal);
+        log(wal -> wal.appendGoalRemoved(userId, goal));
+        applyGoalRemoved(userId, goal);
+    }
+    
+    private void applyGoalRemoved(String userId, String goal) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            if (profile.getGoals().remove(goal)) {
+                profile.markModified();
+            }
+        }
+        profileCache.markDirty(profile);
     }
     
     /**
      * Adds a reminder for a user
      */
     public void addReminder(String userId, String reminder) {
-        UserProfile profile = getCompleteUserData(userId);
-        if (!profile.getReminders().contains(reminder)) {
-            profile.getReminders().add(reminder);
+        log(wal -> wal.appendReminderAdded(userId, reminder));
+        applyReminderAdded(userId, reminder);
+    }
+    
+    private void applyReminderAdded(String userId, String reminder) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            if (!profile.getReminders().contains(reminder)) {
+                profile.getReminders().add(reminder);
+                profile.markModified();
+            }
         }
+        profileCache.markDirty(profile);
     }
     
     /**
      * Gets mood entries for a specific date range
      */
     public List<MoodEntry> getMoodEntriesInRange(String userId, LocalDate startDate, LocalDate endDate) {
-        UserProfile profile = getCompleteUserData(userId);
+        UserProfile profile = profileFor(userId);
         
-        return profile.getMoodEntries().stream()
-                .filter(entry -> !entry.getDate().isBefore(startDate) && !entry.getDate().isAfter(endDate))
-                .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                .toList();
+        return Collections.unmodifiableList(profile.getMoodEntries().range(startDate, endDate));
+    }
+    
+    /**
+     * Visits the moods of a date range in ascending date order without building MoodEntry objects.
+     * Reads the memory-mapped series when durable storage is enabled.
+     */
+    public int getMoodEntriesInRange(String userId, LocalDate startDate, LocalDate endDate,
+                                     MappedMoodSeries.MoodVisitor visitor) {
+        if (moodSeriesDirectory != null) {
+            try {
+                return withMoodSeries(userId, series -> series.forEachInRange(startDate, endDate, visitor));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the mood series of " + userId, e);
+            }
+        }
+        
+        List<MoodEntry> moodEntries = profileFor(userId).getMoodEntries().range(startDate, endDate);
+        for (int i = moodEntries.size() - 1; i >= 0; i--) {
+            MoodEntry entry = moodEntries.get(i);
+            visitor.visit(entry.getDate().toEpochDay(), entry.getMoodLevel());
+        }
+        return moodEntries.size();
+    }
+    
+    /**
+     * Gets the count, mean, variance and trend of the moods of a user between two dates, inclusive
+     */
+    public MoodRangeIndex.Aggregate getMoodStatisticsInRange(String userId, LocalDate startDate, LocalDate endDate) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            return profile.getMoodRanges().query(startDate.toEpochDay(), endDate.toEpochDay());
+        }
+    }
+    
+    /**
+     * Gets the number of days without a mood entry between two dates, inclusive
+     */
+    public long getMissedDays(String userId, LocalDate startDate, LocalDate endDate) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            return profile.getLoggedDays().missedDays(startDate.toEpochDay(), endDate.toEpochDay());
+        }
+    }
+    
+    /**
+     * Gets the ranges of days without a mood entry between two dates, inclusive, oldest first
+     */
+    public List<DayPresenceBitmap.DayRange> getMissedDayRanges(String userId, LocalDate startDate, LocalDate endDate) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            return profile.getLoggedDays().gaps(startDate.toEpochDay(), endDate.toEpochDay());
+        }
+    }
+    
+    /**
+     * Gets the longest run of consecutive days with a mood entry
+     */
+    public int getLongestStreak(String userId) {
+        UserProfile profile = profileFor(userId);
+        synchronized (profile) {
+            return profile.getLoggedDays().longestStreak();
+        }
     }
     
     /**
      * Gets journal entries for a specific date range
      */
     public List<JournalEntry> getJournalEntriesInRange(String userId, LocalDate startDate, LocalDate endDate) {
-        UserProfile profile = getCompleteUserData(userId);
+        UserProfile profile = profileFor(userId);
         
-        return profile.getJournalEntries().stream()
-                .filter(entry -> !entry.getDate().isBefore(startDate) && !entry.getDate().isAfter(endDate))
-                .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                .toList();
+        return Collections.unmodifiableList(profile.getJournalEntries().range(startDate, endDate));
     }
     
-    // Private helper methods
+    /**
+     * Searches the journal entries and mood notes of a user, best matches first.
+     * The user's indexes are built by the first search and kept up to date by later saves.
+     */
+    public List<TextSearchHit> searchText(String userId, TextQuery query, int limit) {
+        UserProfile profile = findProfile(userId);
+        if (profile == null) return Collections.emptyList();
+        
+        List<TextSearchHit> hits = new ArrayList<>();
+        synchronized (profile) {
+            hits.addAll(profile.getJournalIndex().search(query, limit));
+            hits.addAll(profile.getNoteIndex().search(query, limit));
+        }
+        hits.sort(TextSearchHit.BY_RELEVANCE);
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
     
-    private void updateUserStatistics(UserProfile profile) {
-        List<MoodEntry> moodEntries = profile.getMoodEntries();
+    /**
+     * Gets the ids of every known user (in memory, stored or in the last snapshot), in ascending order
+     */
+    public List<String> getUserIds() {
+        try {
+            return new ArrayList<>(collectUserIds(profileCache.cachedProfiles().keySet()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the stored profiles", e);
+        }
+    }
+    
+    /**
+     * Gets a copy of the profile of a user with up-to-date statistics, which later changes don't affect.
+     * A profile that is not cached is read from the store without being cached, so that scans of every
+     * user (cohort analysis, bulk exports) leave the cache to the users being served.
+     *
+     * @return the copy, or null if the user has no profile
+     */
+    public UserProfile getUserSnapshot(String userId) {
+        UserProfile profile = findCachedProfile(userId);
+        if (profile == null) return readUncachedProfile(userId);
+        synchronized (profile) {
+            updateUserStatistics(profile);
+            return profile.snapshot();
+        }
+    }
+    
+    /**
+     * Writes a point-in-time snapshot of every profile, so that startup only replays the changes
+     * logged after it. Older snapshots, log segments and stored profiles are deleted once it is complete.
+     */
+    public synchronized void writeSnapshot() throws IOException {
+        if (writeAheadLog == null) {
+            throw new IllegalStateException("Snapshots require durable storage");
+        }
+        long segmentId = beginSnapshot();
         
-        if (moodEntries.isEmpty()) {
-            profile.setAverageMoodLast7Days(3.0);
-            profile.setAverageMoodLast30Days(3.0);
-            profile.setTotalEntriesCount(0);
-            profile.setStreakDays(0);
+        Map<String, UserProfile> cachedProfiles = profileCache.cachedProfiles();
+        SortedSet<String> userIds = collectUserIds(cachedProfiles.keySet());
+        ProfileSnapshot snapshot = ProfileSnapshot.write(snapshotDirectory, segmentId, userIds, userId -> {
+            UserProfile profile = cachedProfiles.get(userId);
+            return profile != null ? profile : profileStore.load(userId);
+        });
+        profileStore.setSnapshot(snapshot);
+        // The series were rebuilt from the segments about to be deleted
+        forceMoodSeries();
+        profileStore.dropGenerationsBefore(segmentId);
+        writeAheadLog.deleteSegmentsBefore(segmentId);
+    }
+    
+    /**
+     * Trains a text compression dictionary on the notes and journal entries of the profiles in memory
+     * and makes it the default for the texts saved from now on. With durable storage, the dictionary
+     * is saved so that the texts compressed with it can be read after a restart.
+     */
+    public CompressedTextStore trainTextDictionary() throws IOException {
+        List<String> samples = new ArrayList<>();
+        for (UserProfile profile : profileCache.cachedProfiles().values()) {
+            synchronized (profile) {
+                for (MoodEntry entry : profile.getMoodEntries()) {
+                    samples.add(entry.getNote());
+                }
+                for (JournalEntry entry : profile.getJournalEntries()) {
+                    samples.add(entry.getContent());
+                }
+            }
+        }
+        CompressedTextStore store = CompressedTextStore.train(samples, CompressedTextStore.DEFAULT_DICTIONARY_BYTES);
+        if (dictionaryDirectory != null) {
+            // On disk before any text compressed with it can be
+            saveTextDictionary(store);
+        }
+        CompressedTextStore.setDefault(store);
+        return store;
+    }
+    
+    /**
+     * Gets the profile cache, whose counters help sizing the heap
+     */
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+    
+    /**
+     * Gets the replay of the write-ahead log done at startup, or null for the in-memory demo mode
+     */
+    public WriteAheadLog.ReplayStats getLogReplayStats() {
+        return logReplayStats;
+    }
+    
+    /**
+     * Gets the background scorer of saved journal entries
+     */
+    public SentimentScorer getSentimentScorer() {
+        return sentimentScorer;
+    }
+    
+    /**
+     * Writes changed profiles back to the profile store, then flushes and closes the write-ahead log, if any
+     */
+    @Override
+    public void close() throws IOException {
+        sentimentScorer.close();
+        profileCache.flush();
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+        for (OpenMoodSeries open : moodSeries.values()) {
+            open.series.close();
+        }
+        moodSeries.clear();
+    }
+    
+    // Private helper methods
+    
+    /**
+     * Gets (loading or creating it if needed) the profile of a user without refreshing its statistics
+     */
+    private UserProfile profileFor(String userId) {
+        return profileCache.getOrCreate(userId);
+    }
+    
+    /**
+     * Gets the profile of a user without creating it or refreshing its statistics
+     */
+    protected UserProfile findProfile(String userId) {
+        return profileCache.get(userId);
+    }
+    
+    /**
+     * Gets the profile of a user if it is cached, without loading it
+     */
+    protected UserProfile findCachedProfile(String userId) {
+        return profileCache.getIfCached(userId);
+    }
+    
+    /**
+     * Reads the profile of a user from the store, with up-to-date statistics, without caching it.
+     * Only the caller holds the profile returned.
+     *
+     * @return the profile, or null if the user is not stored
+     */
+    protected UserProfile readUncachedProfile(String userId) {
+        UserProfile profile = profileCache.loadUncached(userId);
+        if (profile != null) {
+            updateUserStatistics(profile);
+        }
+        return profile;
+    }
+    
+    /**
+     * Every user that is cached, stored since the last snapshot or in it
+     */
+    private SortedSet<String> collectUserIds(Set<String> cachedUserIds) throws IOException {
+        SortedSet<String> userIds = new TreeSet<>(cachedUserIds);
+        if (profileStore != null) {
+            userIds.addAll(profileStore.storedUserIds());
+            ProfileSnapshot snapshot = profileStore.getSnapshot();
+            if (snapshot != null) {
+                userIds.addAll(snapshot.userIds());
+            }
+        }
+        return userIds;
+    }
+    
+    /**
+     * Whether reading the profile would have to refresh its statistics (changed entries or day rollover)
+     */
+    protected boolean statisticsNeedRefresh(UserProfile profile) {
+        return profile.getStatisticsFreshness().isStale(LocalDate.now(clock).toEpochDay());
+    }
+    
+    /**
+     * Starts a snapshot: later changes go to a new log segment and later write-backs to a new
+     * store generation. Must not run while a change is logged but not yet applied.
+     *
+     * @return the log segment to replay on top of the snapshot
+     */
+    protected long beginSnapshot() throws IOException {
+        long segmentId = writeAheadLog.rollSegment();
+        profileStore.startGeneration(segmentId);
+        return segmentId;
+    }
+    
+    /**
+     * Registers the saved dictionaries; the most recent one compresses the new texts.
+     * The first time, the dictionary in use (built from the bundled samples, unless one was
+     * trained) is saved instead, so that stored texts don't depend on the samples of a build.
+     */
+    private void loadTextDictionaries() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(dictionaryDirectory)) {
+            try (Stream<Path> listing = Files.list(dictionaryDirectory)) {
+                listing.filter(path -> path.getFileName().toString().endsWith(".dict")).sorted().forEach(files::add);
+            }
+        }
+        if (files.isEmpty()) {
+            saveTextDictionary(CompressedTextStore.getDefault());
             return;
         }
+        CompressedTextStore latest = null;
+        for (Path file : files) {
+            latest = CompressedTextStore.of(Files.readAllBytes(file));
+        }
+        CompressedTextStore.setDefault(latest);
+    }
+    
+    private void saveTextDictionary(CompressedTextStore store) throws IOException {
+        Files.createDirectories(dictionaryDirectory);
+        // Named by creation time, so that the most recent one sorts last
+        DurableFiles.writeAtomically(dictionaryDirectory.resolve(String.format("dictionary-%016x.dict", System.currentTimeMillis())),
+                store.getDictionary());
+    }
+    
+    @FunctionalInterface
+    private interface MoodSeriesAction<T> {
+        T apply(MappedMoodSeries series) throws IOException;
+    }
+    
+    /**
+     * Runs an action on the mood series of a user (durable storage only), opening it if needed.
+     * The series is locked during the action, so that closing it as a cold series waits for the action.
+     */
+    private <T> T withMoodSeries(String userId, MoodSeriesAction<T> action) throws IOException {
+        while (true) {
+            OpenMoodSeries open = moodSeries.get(userId);
+            if (open == null) {
+                open = openMoodSeries(userId);
+            } else {
+                open.lastUse = moodSeriesTick.get();
+            }
+            synchronized (open.series) {
+                if (!open.series.isClosed()) {
+                    return action.apply(open.series);
+                }
+            }
+            // Closed as a cold series meanwhile: open it again
+        }
+    }
+    
+    private OpenMoodSeries openMoodSeries(String userId) throws IOException {
+        OpenMoodSeries open;
+        try {
+            open = moodSeries.computeIfAbsent(userId, id -> {
+                try {
+                    return new OpenMoodSeries(MappedMoodSeries.open(moodSeriesDirectory, id), moodSeriesTick.incrementAndGet());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (moodSeries.size() > MAX_OPEN_MOOD_SERIES) {
+            closeColdMoodSeries();
+        }
+        return open;
+    }
+    
+    /**
+     * Closes the least recently used series down to 7/8 of the limit, so that closing is amortized over many opens
+     */
+    private void closeColdMoodSeries() throws IOException {
+        synchronized (moodSeries) {
+            if (moodSeries.size() <= MAX_OPEN_MOOD_SERIES) return;
+            List<Map.Entry<String, OpenMoodSeries>> entries = new ArrayList<>(moodSeries.entrySet());
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastUse));
+            int excess = entries.size() - MAX_OPEN_MOOD_SERIES * 7 / 8;
+            for (int i = 0; i < excess; i++) {
+                Map.Entry<String, OpenMoodSeries> entry = entries.get(i);
+                if (moodSeries.remove(entry.getKey(), entry.getValue())) {
+                    // Its writes stay in the page cache; forceMoodSeries forces the files if needed
+                    entry.getValue().series.close();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Forces to disk the series written since the last snapshot, open or closed since
+     */
+    private void forceMoodSeries() throws IOException {
+        if (unforcedMoodSeries.isEmpty()) return;
+        for (String userId : List.copyOf(unforcedMoodSeries)) {
+            // Removed first: a write made meanwhile adds it back for the next snapshot
+            unforcedMoodSeries.remove(userId);
+            if (!forceOpenMoodSeries(userId)) {
+                MappedMoodSeries.force(moodSeriesDirectory, userId);
+            }
+        }
+        DurableFiles.forceDirectory(moodSeriesDirectory);
+    }
+    
+    /**
+     * Forces the series of a user if it is open, returning whether it was
+     */
+    private boolean forceOpenMoodSeries(String userId) {
+        OpenMoodSeries open = moodSeries.get(userId);
+        if (open == null) return false;
+        synchronized (open.series) {
+            if (open.series.isClosed()) return false;
+            open.series.force();
+            return true;
+        }
+    }
+    
+    /**
+     * An open series with the tick of its last use, written by readers without locking: recency only has to be approximate
+     */
+    private static final class OpenMoodSeries {
+        final MappedMoodSeries series;
+        volatile long lastUse;
         
-        LocalDate now = LocalDate.now();
+        OpenMoodSeries(MappedMoodSeries series, long lastUse) {
+            this.series = series;
+            this.lastUse = lastUse;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface LogWrite {
+        void write(WriteAheadLog log) throws IOException;
+    }
+    
+    private void log(LogWrite write) {
+        if (writeAheadLog == null) return;
+        try {
+            write.write(writeAheadLog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the write-ahead log", e);
+        }
+    }
+    
+    /**
+     * Applies replayed log records without logging them again
+     */
+    private class LogReplayHandler implements WriteAheadLog.Handler {
+        @Override
+        public void moodEntry(String userId, MoodEntry entry) { applyMoodEntries(userId, List.of(entry)); }
         
-        // Calculate 7-day average
-        double avg7Days = moodEntries.stream()
-                .filter(entry -> ChronoUnit.DAYS.between(entry.getDate(), now) <= 7)
-                .mapToInt(MoodEntry::getMoodLevel)
-                .average()
-                .orElse(3.0);
-        profile.setAverageMoodLast7Days(avg7Days);
+        @Override
+        public void journalEntry(String userId, JournalEntry entry) { applyJournalEntries(userId, List.of(entry)); }
         
-        // Calculate 30-day average
-        double avg30Days = moodEntries.stream()
-                .filter(entry -> ChronoUnit.DAYS.between(entry.getDate(), now) <= 30)
-                .mapToInt(MoodEntry::getMoodLevel)
-                .average()
-                .orElse(3.0);
-        profile.setAverageMoodLast30Days(avg30Days);
+        @Override
+        public void goalAdded(String userId, String goal) { applyGoalAdded(userId, goal); }
         
-        // Set total entries count
-        profile.setTotalEntriesCount(moodEntries.size());
+        @Override
+        public void goalRemoved(String userId, String goal) { applyGoalRemoved(userId, goal); }
         
-        // Calculate current streak
-        profile.setStreakDays(calculateCurrentStreak(moodEntries));
+        @Override
+        public void reminderAdded(String userId, String reminder) { applyReminderAdded(userId, reminder); }
     }
     
-    private int calculateCurrentStreak(List<MoodEntry> moodEntries) {
-        if (moodEntries.isEmpty()) return 0;
-        
-        // Sort by date (most recent first)
-        List<MoodEntry> sortedEntries = new ArrayList<>(moodEntries);
-        sortedEntries.sort((a, b) -> b.getDate().compareTo(a.getDate()));
-        
-        LocalDate today = LocalDate.now();
-        int streak = 0;
-        
-        for (MoodEntry entry : sortedEntries) {
-            long daysDiff = ChronoUnit.DAYS.between(entry.getDate(), today);
+    /**
+     * Refreshes the profile statistics from its mood aggregates.
+     * Only does work when entries changed or the day rolled over since the last refresh.
+     */
+    private void updateUserStatistics(UserProfile profile) {
+        // Under the profile's lock, like every other change, so that snapshot and store writers
+        // never see statistics or a forecast half refreshed
+        synchronized (profile) {
+            DateIndexedList<MoodEntry> moodEntries = profile.getMoodEntries();
+            StatisticsFreshness freshness = profile.getStatisticsFreshness();
+            long today = LocalDate.now(clock).toEpochDay();
             
-            if (daysDiff == streak) {
-                streak++;
-            } else {
-                break;
-            }
+            freshness.advanceTo(today);
+            if (!freshness.isStale()) return;
+            
+            MoodRangeIndex ranges = profile.getMoodRanges();
+            profile.setAverageMoodLast7Days(ranges.query(today - SHORT_AVERAGE_DAYS, Long.MAX_VALUE).getMean(3.0));
+            profile.setAverageMoodLast30Days(ranges.query(today - LONG_AVERAGE_DAYS, Long.MAX_VALUE).getMean(3.0));
+            profile.setTotalEntriesCount(moodEntries.size());
+            profile.setStreakDays(profile.getLoggedDays().streakEndingOn(today));
+            // Done once here rather than by each reader of a snapshot of the profile
+            profile.getMoodStatistics().refresh();
+            profile.getMoodForecaster().refresh();
+            freshness.markRefreshed();
         }
-        
-        return streak;
     }
     
     /**
@@ -189,7 +744,7 @@ public class UserDataManager {
         UserProfile demoProfile = new UserProfile(demoUserId);
         
         // Add sample mood entries for the last 30 days
-        LocalDate today = LocalDate.now();
+        LocalDate today = LocalDate.now(clock);
         Random random = new Random(42); // Fixed seed for consistent demo data
         
         String[] sampleNotes = {
@@ -256,7 +811,7 @@ public class UserDataManager {
             "18:00 - Écrivez dans votre journal (Lundi-Vendredi)"
         ));
         
-        userProfiles.put(demoUserId, demoProfile);
+        profileCache.markDirty(demoProfile);
         System.out.println("Sample data initialized for user: " + demoUserId);
     }
 }
\ No newline at end of file
@@ -2,25 +2,63 @@ package com.example.mental_health;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Complete user profile containing all user data
  */
 public class UserProfile {
     private String userId;
-    private List<MoodEntry> moodEntries;
-    private List<JournalEntry> journalEntries;
+    private DateIndexedList<MoodEntry> moodEntries;
+    private DateIndexedList<JournalEntry> journalEntries;
     private List<String> goals;
     private List<String> reminders;
     private double averageMoodLast7Days;
     private double averageMoodLast30Days;
     private int totalEntriesCount;
     private int streakDays;
+    private final StatisticsFreshness statisticsFreshness = new StatisticsFreshness();
+    private MoodColumns moodColumns = new MoodColumns();
+    private WeekdayMoodAggregates weekdayMoods = new WeekdayMoodAggregates();
+    private OnlineMoodStatistics moodStatistics = new OnlineMoodStatistics(moodColumns, weekdayMoods);
+    private MoodForecaster moodForecaster = new MoodForecaster(moodColumns);
+    private MoodRangeIndex moodRanges;   // built on first use
+    private DayPresenceBitmap loggedDays = new DayPresenceBitmap();
+    private final TextSize noteSize = new TextSize();
+    private final TextSize journalSize = new TextSize();
+    private final VersionBump versionBump = new VersionBump();
+    private volatile long version = VERSIONS.incrementAndGet();
+    
+    // Full-text indexes, built on the first search and then kept up to date by the lists
+    private TextIndex<JournalEntry> journalIndex;
+    private TextIndex<MoodEntry> noteIndex;
+    
+    // Versions are drawn from one counter so that a profile reloaded from the store
+    // or recreated never reuses the version of an earlier state of it
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    
+    // Rough heap footprint of the fixed parts, for estimatedSizeBytes()
+    private static final int PROFILE_BYTES = 512;
+    private static final int MOOD_ENTRY_BYTES = 64;    // entry, LocalDate and index slots
+    private static final int JOURNAL_ENTRY_BYTES = 72;
+    private static final int STRING_BYTES = 40;        // String and byte[] headers
+    private static final int TEXT_BYTES = 48;          // CompressedText and byte[] headers
     
     public UserProfile() {
-        this.moodEntries = new ArrayList<>();
-        this.journalEntries = new ArrayList<>();
+        this.moodEntries = new DateIndexedList<>(MoodEntry::getDate);
+        this.moodEntries.addChangeListener(statisticsFreshness);
+        this.moodEntries.addChangeListener(moodColumns);
+        this.moodEntries.addChangeListener(weekdayMoods);
+        this.moodEntries.addChangeListener(moodStatistics);
+        this.moodEntries.addChangeListener(moodForecaster);
+        this.moodEntries.addChangeListener(loggedDays);
+        this.moodEntries.addChangeListener(noteSize);
+        this.moodEntries.addChangeListener(versionBump);
+        this.journalEntries = new DateIndexedList<>(JournalEntry::getDate);
+        this.journalEntries.addChangeListener(journalSize);
+        this.journalEntries.addChangeListener(versionBump);
         this.goals = new ArrayList<>();
         this.reminders = new ArrayList<>();
     }
@@ -30,46 +68,264 @@ public class UserProfile {
         this.userId = userId;
     }
     
+    /**
+     * Creates a copy of this profile that later changes to this profile don't affect.
+     * The entry lists, mood columns and range index are shared copy-on-write, so copying
+     * doesn't go through the history: the first change to either profile copies what it changes.
+     * Entries themselves are shared. Saved entries are not modified, except for the sentiment
+     * score of journal entries, which the SentimentScorer publishes atomically once computed.
+     */
+    public UserProfile snapshot() {
+        UserProfile copy = new UserProfile(userId);
+        copy.moodEntries = new DateIndexedList<>(moodEntries);
+        copy.moodColumns = new MoodColumns(moodColumns);
+        copy.weekdayMoods = new WeekdayMoodAggregates(weekdayMoods);
+        copy.moodStatistics = new OnlineMoodStatistics(moodStatistics, copy.moodColumns, copy.weekdayMoods);
+        copy.moodForecaster = new MoodForecaster(moodForecaster, copy.moodColumns);
+        copy.loggedDays = new DayPresenceBitmap(loggedDays);
+        copy.moodEntries.addChangeListener(copy.statisticsFreshness);
+        copy.moodEntries.addChangeListener(copy.moodColumns);
+        copy.moodEntries.addChangeListener(copy.weekdayMoods);
+        copy.moodEntries.addChangeListener(copy.moodStatistics);
+        copy.moodEntries.addChangeListener(copy.moodForecaster);
+        copy.moodEntries.addChangeListener(copy.loggedDays);
+        copy.moodEntries.addChangeListener(copy.noteSize);
+        copy.moodEntries.addChangeListener(copy.versionBump);
+        if (moodRanges != null) {
+            copy.moodRanges = new MoodRangeIndex(moodRanges);
+            copy.moodEntries.addChangeListener(copy.moodRanges);
+        }
+        copy.noteSize.bytes = noteSize.bytes;
+        copy.journalEntries = new DateIndexedList<>(journalEntries);
+        copy.journalEntries.addChangeListener(copy.journalSize);
+        copy.journalEntries.addChangeListener(copy.versionBump);
+        copy.journalSize.bytes = journalSize.bytes;
+        copy.goals = new ArrayList<>(goals);
+        copy.reminders = new ArrayList<>(reminders);
+        copy.averageMoodLast7Days = averageMoodLast7Days;
+        copy.averageMoodLast30Days = averageMoodLast30Days;
+        copy.totalEntriesCount = totalEntriesCount;
+        copy.streakDays = streakDays;
+        // Same content, so analyses of either can be shared until one of them changes
+        copy.version = version;
+        return copy;
+    }
+    
+    /**
+     * Estimated heap footprint of the profile, from its entry counts and text lengths.
+     * Kept up to date as entries change, so it is cheap to call after every change.
+     */
+    public long estimatedSizeBytes() {
+        long size = PROFILE_BYTES
+                + (long) moodEntries.size() * MOOD_ENTRY_BYTES + noteSize.bytes
+                + (long) journalEntries.size() * JOURNAL_ENTRY_BYTES + journalSize.bytes
+                + loggedDays.estimatedSizeBytes();
+        if (moodRanges != null) {
+            size += moodRanges.estimatedSizeBytes();
+        }
+        if (journalIndex != null) {
+            size += journalIndex.estimatedSizeBytes();
+        }
+        if (noteIndex != null) {
+            size += noteIndex.estimatedSizeBytes();
+        }
+        for (String goal : goals) {
+            size += STRING_BYTES + goal.length();
+        }
+        for (String reminder : reminders) {
+            size += STRING_BYTES + reminder.length();
+        }
+        return size;
+    }
+    
+    /**
+     * Modification version, changed by every change to the profile and never reused.
+     * Results computed from the profile stay valid as long as its version is the same.
+     */
+    public long getVersion() { return version; }
+    
+    /**
+     * Gives the profile a new version. Entry changes do it by themselves;
+     * changes to the goal and reminder lists must call it.
+     */
+    public void markModified() { version = VERSIONS.incrementAndGet(); }
+    
     // Helper method to get recent mood entries
     public List<MoodEntry> getRecentMoodEntries(int days) {
         LocalDate cutoffDate = LocalDate.now().minusDays(days);
-        return moodEntries.stream()
-            .filter(entry -> entry.getDate().isAfter(cutoffDate) || entry.getDate().equals(cutoffDate))
-            .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-            .toList();
+        return Collections.unmodifiableList(moodEntries.since(cutoffDate));
     }
     
     // Getters and setters
+    public StatisticsFreshness getStatisticsFreshness() { return statisticsFreshness; }
+    
+    /**
+     * Mood entries as primitive arrays, oldest first
+     */
+    public MoodColumns getMoodColumns() { return moodColumns; }
+    
+    /**
+     * Mood aggregates of each weekday, kept up to date as entries change
+     */
+    public WeekdayMoodAggregates getWeekdayMoods() { return weekdayMoods; }
+    
+    /**
+     * Mood statistics kept up to date as entries change
+     */
+    public OnlineMoodStatistics getMoodStatistics() { return moodStatistics; }
+    
+    /**
+     * Mood aggregates of any date range, built on first use and then kept up to date as entries change.
+     * Synchronized on the profile, like its other changes, since building the index registers a listener.
+     */
+    public synchronized MoodRangeIndex getMoodRanges() {
+        if (moodRanges == null) {
+            moodRanges = new MoodRangeIndex(moodColumns);
+            moodEntries.addChangeListener(moodRanges);
+        }
+        return moodRanges;
+    }
+    
+    /**
+     * Days with a mood entry, for streaks and missed days
+     */
+    public DayPresenceBitmap getLoggedDays() { return loggedDays; }
+    
+    /**
+     * Mood forecasting model kept up to date as entries change
+     */
+    public MoodForecaster getMoodForecaster() { return moodForecaster; }
+    
+    /**
+     * Index of the journal texts, built on first use
+     */
+    public synchronized TextIndex<JournalEntry> getJournalIndex() {
+        if (journalIndex == null) {
+            journalIndex = new TextIndex<>(journalEntries, JournalEntry::getDate, JournalEntry::getContent,
+                    TextSearchHit.Source.JOURNAL);
+        }
+        return journalIndex;
+    }
+    
+    /**
+     * Index of the mood notes, built on first use
+     */
+    public synchronized TextIndex<MoodEntry> getNoteIndex() {
+        if (noteIndex == null) {
+            noteIndex = new TextIndex<>(moodEntries, MoodEntry::getDate, MoodEntry::getNote,
+                    TextSearchHit.Source.MOOD_NOTE);
+        }
+        return noteIndex;
+    }
+    
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     
-    public List<MoodEntry> getMoodEntries() { return moodEntries; }
-    public void setMoodEntries(List<MoodEntry> moodEntries) { this.moodEntries = moodEntries; }
+    public DateIndexedList<MoodEntry> getMoodEntries() { return moodEntries; }
+    public void setMoodEntries(List<MoodEntry> moodEntries) {
+        this.moodEntries = new DateIndexedList<>(MoodEntry::getDate);
+        this.moodEntries.addChangeListener(statisticsFreshness);
+        this.moodEntries.addChangeListener(moodColumns);
+        this.moodEntries.addChangeListener(weekdayMoods);
+        this.moodEntries.addChangeListener(moodStatistics);
+        this.moodEntries.addChangeListener(moodForecaster);
+        this.moodEntries.addChangeListener(loggedDays);
+        this.moodEntries.addChangeListener(noteSize);
+        this.moodEntries.addChangeListener(versionBump);
+        statisticsFreshness.reset();
+        moodColumns.clear();
+        weekdayMoods.clear();
+        moodStatistics.clear();
+        moodForecaster.clear();
+        loggedDays.clear();
+        moodRanges = null;
+        noteSize.bytes = 0;
+        noteIndex = null;
+        this.moodEntries.addAll(moodEntries);
+        markModified();
+    }
     
-    public List<JournalEntry> getJournalEntries() { return journalEntries; }
-    public void setJournalEntries(List<JournalEntry> journalEntries) { this.journalEntries = journalEntries; }
+    public DateIndexedList<JournalEntry> getJournalEntries() { return journalEntries; }
+    public void setJournalEntries(List<JournalEntry> journalEntries) {
+        this.journalEntries = new DateIndexedList<>(JournalEntry::getDate);
+        this.journalEntries.addChangeListener(journalSize);
+        this.journalEntries.addChangeListener(versionBump);
+        journalSize.bytes = 0;
+        journalIndex = null;
+        this.journalEntries.addAll(journalEntries);
+        markModified();
+    }
     
     public List<String> getGoals() { return goals; }
-    public void setGoals(List<String> goals) { this.goals = goals; }
+    public void setGoals(List<String> goals) { this.goals = goals; markModified(); }
     
     public List<String> getReminders() { return reminders; }
-    public void setReminders(List<String> reminders) { this.reminders = reminders; }
+    public void setReminders(List<String> reminders) { this.reminders = reminders; markModified(); }
     
     public double getAverageMoodLast7Days() { return averageMoodLast7Days; }
-    public void setAverageMoodLast7Days(double averageMoodLast7Days) { this.averageMoodLast7Days = averageMoodLast7Days; }
+    public void setAverageMoodLast7Days(double averageMoodLast7Days) {
+        if (this.averageMoodLast7Days != averageMoodLast7Days) markModified();
+        this.averageMoodLast7Days = averageMoodLast7Days;
+    }
     
     public double getAverageMoodLast30Days() { return averageMoodLast30Days; }
-    public void setAverageMoodLast30Days(double averageMoodLast30Days) { this.averageMoodLast30Days = averageMoodLast30Days; }
+    public void setAverageMoodLast30Days(double averageMoodLast30Days) {
+        if (this.averageMoodLast30Days != averageMoodLast30Days) markModified();
+        this.averageMoodLast30Days = averageMoodLast30Days;
+    }
     
     public int getTotalEntriesCount() { return totalEntriesCount; }
-    public void setTotalEntriesCount(int totalEntriesCount) { this.totalEntriesCount = totalEntriesCount; }
+    public void setTotalEntriesCount(int totalEntriesCount) {
+        if (this.totalEntriesCount != totalEntriesCount) markModified();
+        this.totalEntriesCount = totalEntriesCount;
+    }
     
     public int getStreakDays() { return streakDays; }
-    public void setStreakDays(int streakDays) { this.streakDays = streakDays; }
+    public void setStreakDays(int streakDays) {
+        if (this.streakDays != streakDays) markModified();
+        this.streakDays = streakDays;
+    }
     
     @Override
     public String toString() {
         return String.format("UserProfile{userId='%s', moods=%d, journals=%d, goals=%d}", 
                            userId, moodEntries.size(), journalEntries.size(), goals.size());
     }
+    
+    /**
+     * Gives the profile a new version whenever one of its entry lists changes
+     */
+    private class VersionBump implements DateIndexedList.ChangeListener<Object> {
+        @Override
+        public void entryAdded(int position, Object entry) { markModified(); }
+        
+        @Override
+        public void entryReplaced(int position, Object previous, Object entry) { markModified(); }
+        
+        @Override
+        public void entryRemoved(int position, Object entry) { markModified(); }
+    }
+    
+    /**
+     * Running total of the size of the notes or journal texts of an entry list
+     */
+    private static class TextSize implements DateIndexedList.ChangeListener<Object> {
+        long bytes;
+        
+        @Override
+        public void entryAdded(int position, Object entry) { bytes += of(entry); }
+        
+        @Override
+        public void entryReplaced(int position, Object previous, Object entry) { bytes += of(entry) - of(previous); }
+        
+        @Override
+        public void entryRemoved(int position, Object entry) { bytes -= of(entry); }
+        
+        private static long of(Object entry) {
+            // Counts the compressed size: decompressed copies are only softly reachable
+            CompressedText text = entry instanceof MoodEntry mood ? mood.getCompressedNote()
+                    : ((JournalEntry) entry).getCompressedContent();
+            return text == null ? 0 : TEXT_BYTES + text.storedBytes();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.example.mental_health;
+
+import java.time.DayOfWeek;
+import java.util.List;
+
+/**
+ * Count, sum and sum of squares of the moods of each weekday, Monday (0) to Sunday (6).
+ *
+ * The weekday of an entry doesn't depend on the other entries, so every change, including
+ * removing an entry or backfilling a past day, updates one slot in constant time and the
+ * aggregates are never stale. Weekday means, variances and the best and worst days are
+ * then read without going through the entries.
+ */
+public class WeekdayMoodAggregates implements DateIndexedList.ChangeListener<MoodEntry> {
+
+    private static final String[] DAY_NAMES = {"Lundi", "Mardi", "Mercredi", "Jeudi", "Vendredi", "Samedi", "Dimanche"};
+
+    private final int[] counts = new int[7];
+    private final long[] sums = new long[7];
+    private final long[] sumSquares = new long[7];
+
+    public WeekdayMoodAggregates() {
+    }
+
+    /**
+     * Aggregates the moods of a list of entries
+     */
+    public WeekdayMoodAggregates(List<MoodEntry> entries) {
+        for (MoodEntry entry : entries) {
+            add(weekdayOf(entry.getDate().toEpochDay()), entry.getMoodLevel());
+        }
+    }
+
+    /**
+     * Copies the aggregates of another profile
+     */
+    public WeekdayMoodAggregates(WeekdayMoodAggregates other) {
+        System.arraycopy(other.counts, 0, counts, 0, 7);
+        System.arraycopy(other.sums, 0, sums, 0, 7);
+        System.arraycopy(other.sumSquares, 0, sumSquares, 0, 7);
+    }
+
+    /**
+     * Resets to the aggregates of an empty history
+     */
+    public void clear() {
+        for (int i = 0; i < 7; i++) {
+            counts[i] = 0;
+            sums[i] = sumSquares[i] = 0;
+        }
+    }
+
+    @Override
+    public void entryAdded(int position, MoodEntry entry) {
+        add(weekdayOf(entry.getDate().toEpochDay()), entry.getMoodLevel());
+    }
+
+    @Override
+    public void entryReplaced(int position, MoodEntry previous, MoodEntry entry) {
+        int weekday = weekdayOf(entry.getDate().toEpochDay());
+        int oldMood = previous.getMoodLevel();
+        int mood = entry.getMoodLevel();
+        sums[weekday] += mood - oldMood;
+        sumSquares[weekday] += mood * mood - oldMood * oldMood;
+    }
+
+    @Override
+    public void entryRemoved(int position, MoodEntry entry) {
+        int weekday = weekdayOf(entry.getDate().toEpochDay());
+        int mood = entry.getMoodLevel();
+        counts[weekday]--;
+        sums[weekday] -= mood;
+        sumSquares[weekday] -= mood * mood;
+    }
+
+    public int getCount(int weekdayIndex) { return counts[weekdayIndex]; }
+    public long getSum(int weekdayIndex) { return sums[weekdayIndex]; }
+
+    /**
+     * Number of moods of all weekdays
+     */
+    public int getTotalCount() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Mean mood of a weekday, or the given default without any mood on that day
+     */
+    public double getMean(int weekdayIndex, double defaultMood) {
+        int count = counts[weekdayIndex];
+        return count == 0 ? defaultMood : (double) sums[weekdayIndex] / count;
+    }
+
+    /**
+     * Population variance of the moods of a weekday
+     */
+    public double getVariance(int weekdayIndex) {
+        int count = counts[weekdayIndex];
+        if (count == 0) return 0.0;
+        double mean = (double) sums[weekdayIndex] / count;
+        return Math.max(0, (double) sumSquares[weekdayIndex] / count - mean * mean);
+    }
+
+    /**
+     * Weekday with the highest mean mood (the first one on ties), or -1 without any mood
+     */
+    public int getBestWeekday() {
+        int best = -1;
+        for (int i = 0; i < 7; i++) {
+            if (counts[i] > 0 && (best < 0 || (double) sums[i] / counts[i] > (double) sums[best] / counts[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Weekday with the lowest mean mood (the first one on ties), or -1 without any mood
+     */
+    public int getWorstWeekday() {
+        int worst = -1;
+        for (int i = 0; i < 7; i++) {
+            if (counts[i] > 0 && (worst < 0 || (double) sums[i] / counts[i] < (double) sums[worst] / counts[worst])) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    private void add(int weekday, int mood) {
+        counts[weekday]++;
+        sums[weekday] += mood;
+        sumSquares[weekday] += mood * mood;
+    }
+
+    /**
+     * Weekday index of an epoch day, Monday being 0
+     */
+    static int weekdayOf(long epochDay) {
+        // Epoch day 0 was a Thursday
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    /**
+     * French name of a weekday, Monday being 0
+     */
+    public static String getDayName(int weekdayIndex) {
+        return DAY_NAMES[weekdayIndex];
+    }
+
+    /**
+     * French name of a day of the week
+     */
+    public static String getDayName(DayOfWeek day) {
+        return DAY_NAMES[day.getValue() - 1];
+    }
+}
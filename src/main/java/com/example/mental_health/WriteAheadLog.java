@@ -0,0 +1,452 @@
+package com.example.mental_health;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented write-ahead log for user data mutations.
+ *
+ * Each record is stored as [payload length][CRC32 of payload][payload] where the
+ * payload starts with a record type followed by the user id and the record fields.
+ * Records are fsynced in batches, and a batch that isn't full is fsynced by a
+ * background timer at most a sync interval after its first record, so that an idle
+ * log doesn't keep records unsynced. A torn record at the tail of the last segment
+ * (e.g. after a crash mid-write) is truncated during replay.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * Receives the records read back during replay
+     */
+    public interface Handler {
+        void moodEntry(String userId, MoodEntry entry);
+        void journalEntry(String userId, JournalEntry entry);
+        void goalAdded(String userId, String goal);
+        void goalRemoved(String userId, String goal);
+        void reminderAdded(String userId, String reminder);
+    }
+
+    /**
+     * Outcome of a replay
+     */
+    public static final class ReplayStats {
+        private final long records;
+        private final int segments;
+        private final long nanos;
+
+        ReplayStats(long records, int segments, long nanos) {
+            this.records = records;
+            this.segments = segments;
+            this.nanos = nanos;
+        }
+
+        public long getRecords() { return records; }
+        public int getSegments() { return segments; }
+        public long getNanos() { return nanos; }
+
+        public double getRecordsPerSecond() {
+            return nanos > 0 ? records * 1_000_000_000.0 / nanos : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d records from %d segment(s) in %.1f ms (%.0f records/s)",
+                    records, segments, nanos / 1_000_000.0, getRecordsPerSecond());
+        }
+    }
+
+    // Record types
+    private static final byte MOOD_ENTRY = 1;
+    private static final byte JOURNAL_ENTRY = 2;
+    private static final byte GOAL_ADDED = 3;
+    private static final byte GOAL_REMOVED = 4;
+    private static final byte REMINDER_ADDED = 5;
+
+    private static final int RECORD_HEADER_BYTES = 8; // length + crc
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_SYNC_BATCH = 64;
+    private static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofMillis(200);
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentSizeBytes;
+    private final int syncBatchSize;
+    private final long syncIntervalNanos;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    private FileChannel channel;
+    private long currentSegmentId;
+    private long currentSegmentBytes;
+    private int unsyncedRecords;
+    private ScheduledFuture<?> scheduledSync;
+    private boolean recovered;
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SYNC_BATCH, DEFAULT_SYNC_INTERVAL);
+    }
+
+    public WriteAheadLog(Path directory, long segmentSizeBytes, int syncBatchSize) throws IOException {
+        this(directory, segmentSizeBytes, syncBatchSize, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * @param segmentSizeBytes size after which a new segment file is started
+     * @param syncBatchSize number of records appended between two fsyncs
+     * @param syncInterval longest time a record stays unsynced when its batch doesn't fill up
+     */
+    public WriteAheadLog(Path directory, long segmentSizeBytes, int syncBatchSize, Duration syncInterval) throws IOException {
+        this.directory = directory;
+        this.segmentSizeBytes = Math.max(RECORD_HEADER_BYTES, segmentSizeBytes);
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+        this.syncIntervalNanos = Math.max(1, syncInterval.toNanos());
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Replays every record in the log, oldest segment first.
+     * A torn or corrupted record at the tail of the last segment is truncated.
+     */
+    public ReplayStats replay(Handler handler) throws IOException {
+        return replay(handler, 0);
+    }
+
+    /**
+     * Replays the records of the given segment and the newer ones, e.g. those written after a snapshot
+     */
+    public synchronized ReplayStats replay(Handler handler, long fromSegmentId) throws IOException {
+        long start = System.nanoTime();
+        List<Path> segments = listSegments();
+        segments.removeIf(segment -> segmentId(segment) < fromSegmentId);
+        long records = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            records += replaySegment(segments.get(i), handler, i == segments.size() - 1);
+        }
+        recovered = true;
+        return new ReplayStats(records, segments.size(), System.nanoTime() - start);
+    }
+
+    public synchronized void appendMoodEntry(String userId, MoodEntry entry) throws IOException {
+        beginRecord(MOOD_ENTRY, userId);
+        putInt((int) entry.getDate().toEpochDay());
+        putByte((byte) entry.getMoodLevel());
+        putText(entry.getNote());
+        commitRecord();
+    }
+
+    public synchronized void appendJournalEntry(String userId, JournalEntry entry) throws IOException {
+        beginRecord(JOURNAL_ENTRY, userId);
+        putInt((int) entry.getDate().toEpochDay());
+        putText(entry.getContent());
+        commitRecord();
+    }
+
+    public synchronized void appendGoalAdded(String userId, String goal) throws IOException {
+        beginRecord(GOAL_ADDED, userId);
+        putText(goal);
+        commitRecord();
+    }
+
+    public synchronized void appendGoalRemoved(String userId, String goal) throws IOException {
+        beginRecord(GOAL_REMOVED, userId);
+        putText(goal);
+        commitRecord();
+    }
+
+    public synchronized void appendReminderAdded(String userId, String reminder) throws IOException {
+        beginRecord(REMINDER_ADDED, userId);
+        putText(reminder);
+        commitRecord();
+    }
+
+    /**
+     * Closes the current segment and starts a new one, so that every record appended so far
+     * is in a segment older than the returned one
+     *
+     * @return the id of the new current segment
+     */
+    public synchronized long rollSegment() throws IOException {
+        ensureOpen();
+        if (currentSegmentBytes > 0) {
+            sync();
+            channel.close();
+            openSegment(currentSegmentId + 1);
+        }
+        return currentSegmentId;
+    }
+
+    /**
+     * Deletes the segments older than the given one, once their records are covered by a snapshot
+     */
+    public synchronized void deleteSegmentsBefore(long segmentId) throws IOException {
+        for (Path segment : listSegments()) {
+            if (segmentId(segment) < segmentId) {
+                Files.delete(segment);
+            }
+        }
+    }
+
+    /**
+     * Forces every appended record to disk
+     */
+    public synchronized void sync() throws IOException {
+        if (scheduledSync != null) {
+            scheduledSync.cancel(false);
+            scheduledSync = null;
+        }
+        if (channel != null && unsyncedRecords > 0) {
+            channel.force(false);
+            unsyncedRecords = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // Replay helpers
+
+    private long replaySegment(Path segment, Handler handler, boolean lastSegment) throws IOException {
+        long size = Files.size(segment);
+        long position = 0;
+        long records = 0;
+        byte[] payload = new byte[1024];
+        String problem = null;
+
+        try (InputStream fileIn = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, 1 << 16))) {
+            while (position < size) {
+                if (size - position < RECORD_HEADER_BYTES) {
+                    problem = "torn record header";
+                    break;
+                }
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    problem = "invalid record length " + length;
+                    break;
+                }
+                if (size - position - RECORD_HEADER_BYTES < length) {
+                    problem = "torn record payload";
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    problem = "checksum mismatch";
+                    break;
+                }
+
+                if (handler != null) {
+                    dispatch(ByteBuffer.wrap(payload, 0, length), handler);
+                }
+                position += RECORD_HEADER_BYTES + length;
+                records++;
+            }
+        }
+
+        if (problem != null) {
+            if (!lastSegment) {
+                throw new IOException(String.format("Corrupted write-ahead log segment %s at offset %d (%s)",
+                        segment.getFileName(), position, problem));
+            }
+            try (FileChannel truncating = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                truncating.truncate(position);
+                truncating.force(true);
+            }
+            System.err.printf("Write-ahead log: truncated %d trailing byte(s) of %s (%s)%n",
+                    size - position, segment.getFileName(), problem);
+        }
+        return records;
+    }
+
+    private void dispatch(ByteBuffer record, Handler handler) {
+        byte type = record.get();
+        String userId = getText(record);
+
+        switch (type) {
+            case MOOD_ENTRY: {
+                LocalDate date = LocalDate.ofEpochDay(record.getInt());
+                int moodLevel = record.get();
+                handler.moodEntry(userId, new MoodEntry(date, moodLevel, getText(record)));
+                break;
+            }
+            case JOURNAL_ENTRY: {
+                LocalDate date = LocalDate.ofEpochDay(record.getInt());
+                handler.journalEntry(userId, new JournalEntry(date, getText(record)));
+                break;
+            }
+            case GOAL_ADDED: handler.goalAdded(userId, getText(record)); break;
+            case GOAL_REMOVED: handler.goalRemoved(userId, getText(record)); break;
+            case REMINDER_ADDED: handler.reminderAdded(userId, getText(record)); break;
+            default: throw new IllegalStateException("Unknown write-ahead log record type: " + type);
+        }
+    }
+
+    private static String getText(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) return null;
+        String text = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return text;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    // Append helpers
+
+    private void ensureOpen() throws IOException {
+        if (channel != null) return;
+        if (!recovered) {
+            // Validates (and truncates) the tail before anything is appended after it
+            replay(null);
+        }
+        List<Path> segments = listSegments();
+        currentSegmentId = segments.isEmpty() ? 1 : segmentId(segments.get(segments.size() - 1));
+        openSegment(currentSegmentId);
+    }
+
+    private void openSegment(long segmentId) throws IOException {
+        channel = FileChannel.open(segmentPath(segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentSegmentId = segmentId;
+        currentSegmentBytes = channel.size();
+    }
+
+    private void beginRecord(byte type, String userId) throws IOException {
+        ensureOpen();
+        buffer.clear();
+        buffer.position(RECORD_HEADER_BYTES);
+        putByte(type);
+        putText(userId);
+    }
+
+    private void commitRecord() throws IOException {
+        int length = buffer.position() - RECORD_HEADER_BYTES;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IOException("Write-ahead log record too large: " + length + " bytes");
+        }
+        crc.reset();
+        crc.update(buffer.array(), RECORD_HEADER_BYTES, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+
+        int recordBytes = buffer.remaining();
+        if (currentSegmentBytes > 0 && currentSegmentBytes + recordBytes > segmentSizeBytes) {
+            sync();
+            channel.close();
+            openSegment(currentSegmentId + 1);
+        }
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        currentSegmentBytes += recordBytes;
+
+        if (++unsyncedRecords >= syncBatchSize) {
+            sync();
+        } else if (scheduledSync == null) {
+            scheduledSync = SyncTimer.INSTANCE.schedule(this::timedSync, syncIntervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void timedSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Write-ahead log sync failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Daemon thread shared by the logs to sync the batches that don't fill up, created on first use
+     */
+    private static final class SyncTimer {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-ahead-log-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    private void putByte(byte value) {
+        ensureRemaining(1);
+        buffer.put(value);
+    }
+
+    private void putInt(int value) {
+        ensureRemaining(4);
+        buffer.putInt(value);
+    }
+
+    private void putText(String text) {
+        if (text == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+    }
+}